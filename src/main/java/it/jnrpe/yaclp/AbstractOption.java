@@ -16,8 +16,8 @@
 
 package it.jnrpe.yaclp;
 
+import java.util.Collections;
 import java.util.LinkedHashSet;
-import java.util.List;
 import java.util.Set;
 
 /**
@@ -51,28 +51,43 @@ abstract class AbstractOption implements IOption {
   private Argument optionArgs = null;
 
   /**
-   * Consumes the passed in command line by parsing the option and removing it.
+   * The required options, as an array. Available only after the option has been frozen.
+   */
+  private AbstractOption[] requiredArray;
+
+  /**
+   * The incompatible options, as an array. Available only after the option has been frozen.
+   */
+  private AbstractOption[] incompatibleArray;
+
+  /**
+   * Whether this option has been frozen by a parser. A frozen option can't be changed anymore.
+   */
+  private boolean frozen = false;
+
+  /**
+   * Consumes the passed in command line by parsing the option and marking it as consumed.
    * Before consuming all sanity checks are performed (checks that required options are present and
-   * incompatible options are not present).
+   * incompatible options are not present). Checks are performed only once, whatever the number of
+   * occurrences of the option.
    *
-   * @param args the command line. It gets changed by the method.
-   * @param res  the result of the parsing
+   * @param ctx the parsing context. Consumed tokens get marked by the method.
+   * @param res the result of the parsing
    * @throws ParsingException on any error parsing the command line
    */
-  final void consume(final List<String> args, final CommandLine res) throws ParsingException {
-    sanityCheck(args, res);
-    doConsume(args, res);
+  final void consume(final ParseContext ctx, final CommandLine res) throws ParsingException {
+    sanityCheck(ctx);
+    doConsume(ctx, res);
   }
 
   /**
    * Consume the option.
    *
-   * @param args the command line. The class <b>must remove</b> the consumed option from this
-   *             object.
-   * @param res  the results
+   * @param ctx the parsing context. The class <b>must mark</b> the consumed option as consumed.
+   * @param res the results
    * @throws ParsingException on any error parsing the command line
    */
-  protected abstract void doConsume(final List<String> args, final CommandLine res)
+  protected abstract void doConsume(final ParseContext ctx, final CommandLine res)
       throws ParsingException;
 
   /**
@@ -81,6 +96,7 @@ abstract class AbstractOption implements IOption {
    * @param option option to be added
    */
   public void addRequiredOption(final IOption option) {
+    checkNotFrozen();
     requiredOptions.add((AbstractOption) option);
   }
 
@@ -90,6 +106,8 @@ abstract class AbstractOption implements IOption {
    * @param option option to be added
    */
   public void addIncompatibleOption(final IOption option) {
+    checkNotFrozen();
+    ((AbstractOption) option).checkNotFrozen();
     incompatibleOptions.add((AbstractOption) option);
     ((AbstractOption) option).incompatibleOptions.add(this);
   }
@@ -103,6 +121,15 @@ abstract class AbstractOption implements IOption {
     return requiredOptions;
   }
 
+  /**
+   * Returns the list of incompatible options.
+   *
+   * @return the list of incompatible options
+   */
+  Set<AbstractOption> getIncompatibleOptions() {
+    return incompatibleOptions;
+  }
+
   /**
    * Returns the argument for this option.
    *
@@ -118,6 +145,7 @@ abstract class AbstractOption implements IOption {
    * @param arg the arguments of this option
    */
   void setArgument(final Argument arg) {
+    checkNotFrozen();
     this.optionArgs = arg;
   }
 
@@ -136,6 +164,7 @@ abstract class AbstractOption implements IOption {
    * @param repeatable true or false
    */
   void setRepeatable(final boolean repeatable) {
+    checkNotFrozen();
     this.repeatable = repeatable;
   }
 
@@ -154,53 +183,116 @@ abstract class AbstractOption implements IOption {
    * @param mandatory true or false
    */
   void setMandatory(final boolean mandatory) {
+    checkNotFrozen();
     this.mandatory = mandatory;
   }
 
+  /**
+   * Freezes this option: after this method is called, the option configuration can't be changed
+   * anymore and can safely be shared between threads through the parser that froze it.
+   * Calling this method more than once has no effects.
+   */
+  void freeze() {
+    if (!frozen) {
+      requiredOptions = Collections.unmodifiableSet(new LinkedHashSet<>(requiredOptions));
+      incompatibleOptions = Collections.unmodifiableSet(new LinkedHashSet<>(incompatibleOptions));
+      requiredArray = requiredOptions.toArray(new AbstractOption[requiredOptions.size()]);
+      incompatibleArray =
+          incompatibleOptions.toArray(new AbstractOption[incompatibleOptions.size()]);
+      frozen = true;
+    }
+  }
+
+  /**
+   * Checks that this option can still be changed.
+   *
+   * @throws IllegalStateException if the option has already been frozen by a parser
+   */
+  private void checkNotFrozen() {
+    if (frozen) {
+      throw new IllegalStateException(
+          String.format("Option [%s] is already used by a parser and can't be changed", this));
+    }
+  }
+
   /**
    * Return whether this option is present or not.
    *
-   * @param args command line to be checked
+   * @param ctx the parsing context
    * @return true or false
    */
-  public abstract boolean isPresent(final List<String> args);
+  boolean isPresent(final ParseContext ctx) {
+    return ctx.isPresent(this);
+  }
 
   /**
    * Performs all the sanity check to safely consume this option.
+   * Required and incompatible options are verified through the bitmasks compiled by the
+   * {@link OptionIndex}: the single options are visited only to build the error message.
    *
-   * @param args the command line
-   * @param res  the results
+   * @param ctx the parsing context
    * @throws ParsingException if sanity checks fails
    */
-  private void sanityCheck(final List<String> args, final CommandLine res) throws ParsingException {
+  private void sanityCheck(final ParseContext ctx) throws ParsingException {
     // Check if the mandatory option is present
-    if (!isPresent(args)) {
-      if (isMandatory() && !res.hasOption(getShortName())) {
+    if (!isPresent(ctx)) {
+      if (isMandatory()) {
         throw new ParsingException("Mandatory option [%s] is missing", getLongName());
       }
       return;
     }
 
-    // Check if a non repeatable option is repeated
-    if (res.hasOption(getShortName()) && !isRepeatable()) {
-      throw new ParsingException("Option [%s] can be specified only one time", getLongName());
+    checkOccurrence(ctx);
+
+    final OptionIndex index = ctx.getIndex();
+    final int id = index.idOf(this);
+
+    // Check required option
+    if (!ctx.isAllPresent(index.getRequiredMask(id)) || index.hasUnknownRequiredOptions(id)) {
+      for (AbstractOption requiredOption : requiredArray) {
+        if (!requiredOption.isPresent(ctx)) {
+          throw new ParsingException(
+              "%s requires [%s]", getLongName(), requiredOption.getLongName());
+        }
+      }
     }
+  }
+
+  /**
+   * Performs the checks that don't need the whole command line: repetitions and incompatible
+   * options. Incremental parsers ({@link ParserSession}) run them as soon as an occurrence of the
+   * option is found.
+   *
+   * @param ctx the parsing context
+   * @throws ParsingException if sanity checks fails
+   */
+  void checkOccurrence(final ParseContext ctx) throws ParsingException {
+    checkRepetitions(ctx);
+
+    final OptionIndex index = ctx.getIndex();
 
     // Check if incompatible options are presents
-    for (AbstractOption option : incompatibleOptions) {
-      if (res.hasOption(option.getShortName()) || option.isPresent(args)) {
-        throw new ParsingException(
-            "Option [%s] can not be specified together with option [%s]",
-            getLongName(),
-            option.getLongName());
+    if (ctx.isAnyPresent(index.getIncompatibleMask(index.idOf(this)))) {
+      for (AbstractOption option : incompatibleArray) {
+        if (option.isPresent(ctx)) {
+          throw new ParsingException(
+              "Option [%s] can not be specified together with option [%s]",
+              getLongName(),
+              option.getLongName());
+        }
       }
     }
+  }
 
-    // Check required option. If they are found, consume them
-    for (AbstractOption requiredOption : getRequiredOptions()) {
-      if (!requiredOption.isPresent(args) && !res.hasOption(requiredOption.getShortName())) {
-        throw new ParsingException("%s requires [%s]", getLongName(), requiredOption.getLongName());
-      }
+  /**
+   * Checks that a non repeatable option is not repeated.
+   *
+   * @param ctx the parsing context
+   * @throws ParsingException if the option is repeated
+   */
+  void checkRepetitions(final ParseContext ctx) throws ParsingException {
+    if (ctx.getOccurrences(this) > 1 && !isRepeatable()) {
+      throw new ParsingException("Option [%s] can be specified only one time", getLongName());
     }
   }
 }
@@ -17,11 +17,10 @@
 package it.jnrpe.yaclp;
 
 import it.jnrpe.yaclp.validators.IArgumentValidator;
-
-import java.util.List;
+import it.jnrpe.yaclp.validators.IAsyncArgumentValidator;
 
 /**
- * Consumes the command line by removing the arguments of the current option.
+ * Consumes the command line by marking the arguments of the current option as consumed.
  */
 class Argument implements IArgument {
 
@@ -43,6 +42,55 @@ class Argument implements IArgument {
   private final int minRepetitions;
   private final int maxRepetitions;
 
+  /**
+   * Maximum number of values validated at the same time. 1 means the values are validated one
+   * by one while they are consumed.
+   */
+  private final int parallelism;
+
+  /**
+   * Receives the values instead of the command line, or <code>null</code>.
+   */
+  private final IValueSink sink;
+
+  /**
+   * Create a new argument object.
+   *
+   * @param name       the name of the argument
+   * @param mandatory  <code>true</code> if the argument is mandatory
+   * @param minRepetitions minimum number of times the argument must be present
+   * @param maxRepetitions maximum number of times the argument must be present
+   * @param validators the list of validators to be used to validate this argument value
+   */
+  Argument(
+      final String name,
+      final boolean mandatory,
+      final int minRepetitions,
+      final int maxRepetitions,
+      final IArgumentValidator... validators) {
+    this(name, mandatory, minRepetitions, maxRepetitions, 1, validators);
+  }
+
+  /**
+   * Create a new argument object.
+   *
+   * @param name       the name of the argument
+   * @param mandatory  <code>true</code> if the argument is mandatory
+   * @param minRepetitions minimum number of times the argument must be present
+   * @param maxRepetitions maximum number of times the argument must be present
+   * @param parallelism maximum number of values validated at the same time
+   * @param validators the list of validators to be used to validate this argument value
+   */
+  Argument(
+      final String name,
+      final boolean mandatory,
+      final int minRepetitions,
+      final int maxRepetitions,
+      final int parallelism,
+      final IArgumentValidator... validators) {
+    this(name, mandatory, minRepetitions, maxRepetitions, parallelism, null, validators);
+  }
+
   /**
    * Create a new argument object.
    *
@@ -50,6 +98,8 @@ class Argument implements IArgument {
    * @param mandatory  <code>true</code> if the argument is mandatory
    * @param minRepetitions minimum number of times the argument must be present
    * @param maxRepetitions maximum number of times the argument must be present
+   * @param parallelism maximum number of values validated at the same time
+   * @param sink       receives the values instead of the command line, or <code>null</code>
    * @param validators the list of validators to be used to validate this argument value
    */
   Argument(
@@ -57,8 +107,12 @@ class Argument implements IArgument {
       final boolean mandatory,
       final int minRepetitions,
       final int maxRepetitions,
+      final int parallelism,
+      final IValueSink sink,
       final IArgumentValidator... validators) {
     this.mandatory = mandatory;
+    this.parallelism = parallelism;
+    this.sink = sink;
     this.name = name;
     this.validators = validators;
     this.minRepetitions = minRepetitions;
@@ -66,37 +120,39 @@ class Argument implements IArgument {
   }
 
   /**
-   * Consumes the argument. After the execution of the method, the argument won't be inside args
-   * anymore.
+   * Consumes the argument. After the execution of the method, the argument values will be marked
+   * as consumed. Already consumed tokens are skipped.
+   * When parallel validation is enabled, the {@link IAsyncArgumentValidator} validators of all
+   * the values are run concurrently before returning. If more than one value is not valid, the
+   * error of the first one in the command line is reported.
    *
    * @param option Owner option for this argument
-   * @param args   command line to be parsed
-   * @param pos    position where this argument value should be found in the command line
+   * @param ctx    the parsing context
+   * @param from   position where this argument value should be found in the command line
    * @param res    result
    * @throws ParsingException on error parsing the argument or ig the argument is not present
    */
-  public final void consume(final IOption option, final List<String> args,
-                            final int pos, final CommandLine res) throws ParsingException {
-    int numberOfArgsFound = 0;
+  public final void consume(final AbstractOption option, final ParseContext ctx,
+                            final int from, final CommandLine res) throws ParsingException {
+    final int numberOfArgsFound;
 
-    while (pos < args.size() && !args.get(pos).startsWith("-")) {
-      // Argument found
-      String value = args.remove(pos);
+    // When parsing asynchronously, the validations are already collected for the whole command
+    // line. Values delivered to a sink must be validated before being delivered.
+    AsyncValidations batch = parallelism > 1 && sink == null && res.getAsyncValidations() == null
+        ? new AsyncValidations() : null;
 
-      for (IArgumentValidator validator : validators) {
-        validator.validate(option, this, value);
+    try {
+      numberOfArgsFound = consumeValues(option, ctx, from, res, batch);
+    } catch (ParsingException e) {
+      // errors of the values preceding the failure come first
+      if (batch != null) {
+        awaitValidations(batch);
       }
+      throw e;
+    }
 
-      saveValue(res, option, value);
-      numberOfArgsFound++;
-
-      if (numberOfArgsFound > maxRepetitions) {
-        throw new ParsingException(
-            "At most %d <%s> arguments for option <%s> must be present",
-            maxRepetitions,
-            getName(),
-            option.getLongName());
-      }
+    if (batch != null) {
+      awaitValidations(batch);
     }
 
     if (numberOfArgsFound == 0 && mandatory) {
@@ -118,16 +174,139 @@ class Argument implements IArgument {
   }
 
   /**
-   * Saves the value of the argument inside res.
+   * Runs the collected validations, at most {@link #parallelism} at the same time.
+   *
+   * @param batch the collected validations
+   * @throws ParsingException the error of the first value in command line order that is not valid
+   */
+  private void awaitValidations(final AsyncValidations batch) throws ParsingException {
+    batch.await(new BoundedExecutor(AsyncExecutors.defaultExecutor(), parallelism));
+  }
+
+  /**
+   * Consumes the values of the argument.
+   *
+   * @param option Owner option for this argument
+   * @param ctx    the parsing context
+   * @param from   position where this argument value should be found in the command line
+   * @param res    result
+   * @param batch  where asynchronous validations are collected when validating in parallel, or
+   *               <code>null</code>
+   * @return the number of values found
+   * @throws ParsingException on error parsing the argument
+   */
+  private int consumeValues(final AbstractOption option, final ParseContext ctx,
+                            final int from, final CommandLine res,
+                            final AsyncValidations batch) throws ParsingException {
+    Tokens tokens = ctx.getTokens();
+    int numberOfArgsFound = 0;
+
+    for (int pos = tokens.nextUnconsumed(from);
+         pos < tokens.size() && !tokens.isOptionLike(pos);
+         pos = tokens.nextUnconsumed(pos + 1)) {
+      // Argument found
+      tokens.consume(pos);
+
+      if (validators.length != 0) {
+        if (batch != null) {
+          validate(validators, option, tokens.get(pos), pos, batch);
+        } else if (sink != null) {
+          // values must be valid before being delivered
+          validate(validators, option, tokens.get(pos), pos, (AsyncValidations) null);
+        } else {
+          validate(validators, option, tokens.get(pos), pos, res);
+        }
+      }
+
+      numberOfArgsFound++;
+      if (numberOfArgsFound > maxRepetitions) {
+        throw new ParsingException(
+            "At most %d <%s> arguments for option <%s> must be present",
+            maxRepetitions,
+            getName(),
+            option.getLongName());
+      }
+
+      if (sink != null) {
+        sink.accept(res, option, tokens.get(pos));
+      } else {
+        saveValue(res, ctx, option, pos);
+      }
+    }
+
+    return numberOfArgsFound;
+  }
+
+  /**
+   * Validates a value. When parsing asynchronously, {@link IAsyncArgumentValidator} validators
+   * are not executed: they are collected to be started after the parsing.
+   *
+   * @param argValidators the validators
+   * @param option        option owning the argument
+   * @param value         the value to be validated
+   * @param pos           position of the token containing the value
+   * @param res           the command line parsing result
+   * @throws ParsingException if the value is not valid
+   */
+  final void validate(final IArgumentValidator[] argValidators,
+                      final IOption option,
+                      final String value,
+                      final int pos,
+                      final CommandLine res) throws ParsingException {
+    validate(argValidators, option, value, pos, res.getAsyncValidations());
+  }
+
+  /**
+   * Validates a value. {@link IAsyncArgumentValidator} validators are collected into
+   * asyncValidations, if not <code>null</code>.
+   *
+   * @param argValidators    the validators
+   * @param option           option owning the argument
+   * @param value            the value to be validated
+   * @param pos              position of the token containing the value
+   * @param asyncValidations where asynchronous validations are collected, or <code>null</code>
+   * @throws ParsingException if the value is not valid
+   */
+  private void validate(final IArgumentValidator[] argValidators,
+                        final IOption option,
+                        final String value,
+                        final int pos,
+                        final AsyncValidations asyncValidations) throws ParsingException {
+    for (IArgumentValidator validator : argValidators) {
+      if (asyncValidations != null && validator instanceof IAsyncArgumentValidator) {
+        asyncValidations.add((IAsyncArgumentValidator) validator, option, this, value, pos);
+      } else {
+        validator.validate(option, this, value);
+      }
+    }
+  }
+
+  /**
+   * Saves the value of the argument inside res. Lazy command lines only record the position of
+   * the value.
    *
    * @param res    the command line parsing result
+   * @param ctx    the parsing context
    * @param option option owning the argument
-   * @param value  value to be saved
+   * @param pos    position of the token containing the value
    * @throws ParsingException on error saving the argument value
    */
   protected void saveValue(final CommandLine res,
-                           final IOption option,
-                           final String value) throws ParsingException {
+                           final ParseContext ctx,
+                           final AbstractOption option,
+                           final int pos) throws ParsingException {
+    res.addValue(ctx, option, pos);
+  }
+
+  /**
+   * Stores an already validated value inside res. Used by lazy command lines when the value is
+   * requested.
+   *
+   * @param res    the command line parsing result
+   * @param option option owning the argument
+   * @param value  value to be stored
+   */
+  void materialize(final CommandLine res, final IOption option, final String value) {
     res.addValue(option, value);
   }
 
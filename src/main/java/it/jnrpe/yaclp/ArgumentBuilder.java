@@ -17,6 +17,7 @@
 package it.jnrpe.yaclp;
 
 import it.jnrpe.yaclp.validators.IArgumentValidator;
+import it.jnrpe.yaclp.validators.IAsyncArgumentValidator;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -51,6 +52,16 @@ public final class ArgumentBuilder {
    */
   private int maxRepetitions = 1;
 
+  /**
+   * Maximum number of values validated at the same time.
+   */
+  private int parallelism = 1;
+
+  /**
+   * Receives the values instead of the command line.
+   */
+  private IValueSink sink;
+
   /**
    * Constructor.
    *
@@ -116,6 +127,42 @@ public final class ArgumentBuilder {
     return this;
   }
 
+  /**
+   * Validates the values of a repeated argument concurrently, running at most parallelism
+   * validations at the same time. Only {@link IAsyncArgumentValidator} validators (for example
+   * the file validator) are run concurrently: the others are still run while the values are
+   * consumed. If more than one value is not valid, the error of the first one in the command line
+   * is reported.
+   * Defaults to 1 (values are validated one by one).
+   * @param parallelism maximum number of values validated at the same time
+   * @return this builder
+   */
+  public ArgumentBuilder withParallelValidation(final int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /**
+   * Delivers the values of this argument to the given sink, while they are parsed, instead of
+   * storing them inside the {@link CommandLine}: each value is processed once and can then be
+   * garbage collected, so that arguments with a huge number of repetitions (see
+   * {@link #withMaxRepetitions(int)}) don't need to be kept in memory. The presence of the option
+   * is still recorded, but {@link CommandLine#getValues(String)} returns no value.
+   * Values are validated on the parsing thread before being delivered, so parallel validation
+   * does not apply to arguments with a sink.
+   * The sink is shared by all the parse calls of the parser, so it must be thread safe (see
+   * {@link IValueSink}).
+   * @param sink receives the values
+   * @return this builder
+   */
+  public ArgumentBuilder withValueSink(final IValueSink sink) {
+    this.sink = sink;
+    return this;
+  }
+
   /**
    * Builds the argument with the provided options.
    *
@@ -123,7 +170,7 @@ public final class ArgumentBuilder {
    */
   public IArgument build() {
     return new Argument(
-        name, mandatory, minRepetitions, maxRepetitions,
+        name, mandatory, minRepetitions, maxRepetitions, parallelism, sink,
         validators.toArray(new IArgumentValidator[validators.size()]));
   }
 }
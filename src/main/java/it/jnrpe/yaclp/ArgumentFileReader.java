@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package it.jnrpe.yaclp;
+
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the arguments contained into a UTF-8 argument file (<code>@file</code>), following the
+ * conventions of the JDK launcher and of javac:
+ * <ul>
+ * <li>arguments are separated by white spaces (space, tab, form feed and line terminators);</li>
+ * <li>a <code>#</code> at the beginning of an argument starts a comment that ends with the
+ * line;</li>
+ * <li>characters between single or double quotes are preserved, white spaces included. Inside
+ * quotes a backslash escapes the following character (<code>\n</code>, <code>\r</code>,
+ * <code>\t</code> and <code>\f</code> are translated) and a backslash at the end of the line
+ * joins the next line, after removing its leading white spaces. A quote is closed by the end of
+ * the line;</li>
+ * <li>outside quotes a backslash has no special meaning, so that Windows paths don't need to be
+ * escaped;</li>
+ * <li>argument files are not expanded recursively.</li>
+ * </ul>
+ * The file is memory mapped and tokenized in a single pass: each argument is passed to the
+ * handler as soon as it is complete, so that the whole content of the file is never copied.
+ * A reader can be reused for many files, keeping its buffer, but it is not thread safe.
+ */
+final class ArgumentFileReader {
+
+  /**
+   * Receives the arguments read from the file.
+   */
+  interface ArgumentHandler {
+
+    /**
+     * Receives an argument.
+     *
+     * @param arg the argument
+     */
+    void argument(String arg);
+  }
+
+  /**
+   * Buffer receiving the bytes of the current argument.
+   */
+  private byte[] token = new byte[256];
+
+  /**
+   * Number of used bytes inside {@link #token}.
+   */
+  private int length;
+
+  /**
+   * Reads a file.
+   *
+   * @param path    path of the file
+   * @param handler receives the arguments
+   * @throws ParsingException if the file can't be read
+   */
+  void read(final String path, final ArgumentHandler handler) throws ParsingException {
+    final MappedByteBuffer buffer = MappedFiles.map(path, "argument file");
+    final int size = buffer.limit();
+    int pos = MappedFiles.contentStart(buffer);
+
+    length = 0;
+    // true while inside an argument, even if it is still empty (for example after "")
+    boolean inToken = false;
+    while (pos < size) {
+      final byte b = buffer.get(pos++);
+      if (isWhitespace(b)) {
+        if (inToken) {
+          emit(handler);
+          inToken = false;
+        }
+      } else if (b == '#' && !inToken) {
+        while (pos < size && !isLineTerminator(buffer.get(pos))) {
+          pos++;
+        }
+      } else if (b == '"' || b == '\'') {
+        inToken = true;
+        pos = readQuoted(buffer, pos, size, b);
+      } else {
+        inToken = true;
+        append(b);
+      }
+    }
+    if (inToken) {
+      emit(handler);
+    }
+  }
+
+  /**
+   * Appends to the current argument the content of a quoted string.
+   *
+   * @param buffer the file content
+   * @param from   position following the opening quote
+   * @param size   size of the file
+   * @param quote  the opening quote
+   * @return the position following the closing quote (or the end of the line, if the quote is not
+   *     closed)
+   */
+  private int readQuoted(final MappedByteBuffer buffer, final int from, final int size,
+                         final byte quote) {
+    int pos = from;
+    while (pos < size) {
+      final byte b = buffer.get(pos);
+      if (b == quote) {
+        return pos + 1;
+      }
+      if (isLineTerminator(b)) {
+        return pos;
+      }
+      pos++;
+      if (b != '\\' || pos == size) {
+        append(b);
+        continue;
+      }
+
+      final byte escaped = buffer.get(pos++);
+      switch (escaped) {
+        case 'n':
+          append((byte) '\n');
+          break;
+        case 'r':
+          append((byte) '\r');
+          break;
+        case 't':
+          append((byte) '\t');
+          break;
+        case 'f':
+          append((byte) '\f');
+          break;
+        case '\r':
+        case '\n':
+          // line continuation: the line terminator and the leading white spaces are removed
+          if (escaped == '\r' && pos < size && buffer.get(pos) == '\n') {
+            pos++;
+          }
+          while (pos < size && isBlank(buffer.get(pos))) {
+            pos++;
+          }
+          break;
+        default:
+          append(escaped);
+          break;
+      }
+    }
+    return pos;
+  }
+
+  /**
+   * Appends a byte to the current argument.
+   *
+   * @param b the byte
+   */
+  private void append(final byte b) {
+    if (length == token.length) {
+      token = Arrays.copyOf(token, length * 2);
+    }
+    token[length++] = b;
+  }
+
+  /**
+   * Passes the current argument to the handler.
+   *
+   * @param handler the handler
+   */
+  private void emit(final ArgumentHandler handler) {
+    handler.argument(new String(token, 0, length, StandardCharsets.UTF_8));
+    length = 0;
+  }
+
+  /**
+   * Returns whether the byte separates arguments.
+   *
+   * @param b the byte
+   * @return <code>true</code> if the byte is a white space
+   */
+  private static boolean isWhitespace(final byte b) {
+    return isBlank(b) || isLineTerminator(b);
+  }
+
+  /**
+   * Returns whether the byte is a white space that does not terminate the line.
+   *
+   * @param b the byte
+   * @return <code>true</code> if the byte is a space, a tab or a form feed
+   */
+  private static boolean isBlank(final byte b) {
+    return b == ' ' || b == '\t' || b == '\f';
+  }
+
+  /**
+   * Returns whether the byte terminates a line.
+   *
+   * @param b the byte
+   * @return <code>true</code> if the byte is a line feed or a carriage return
+   */
+  private static boolean isLineTerminator(final byte b) {
+    return b == '\n' || b == '\r';
+  }
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package it.jnrpe.yaclp;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides the executor used by default to run asynchronous validations.
+ * On Java 8 it is a bounded pool of daemon threads, so that many concurrent parse calls can't
+ * create an unbounded number of threads. When running on Java 21 or later, the version of this
+ * class contained into the multi release jar uses virtual threads instead.
+ */
+final class AsyncExecutors {
+
+  /**
+   * Maximum number of threads used to run blocking validations.
+   */
+  private static final int MAX_THREADS =
+      Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+  /**
+   * Seconds an idle thread is kept alive.
+   */
+  private static final long KEEP_ALIVE_SECONDS = 60;
+
+  /**
+   * Constructor.
+   */
+  private AsyncExecutors() {
+  }
+
+  /**
+   * Returns the default executor for asynchronous validations.
+   *
+   * @return the default executor
+   */
+  static Executor defaultExecutor() {
+    return Holder.EXECUTOR;
+  }
+
+  /**
+   * Lazily builds the executor, the first time it is needed.
+   */
+  private static final class Holder {
+
+    /**
+     * The default executor.
+     */
+    private static final Executor EXECUTOR = build();
+
+    /**
+     * Builds the bounded executor.
+     *
+     * @return the executor
+     */
+    private static Executor build() {
+      final AtomicInteger count = new AtomicInteger();
+      ThreadFactory factory = runnable -> {
+        Thread thread = new Thread(runnable, "yaclp-validator-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      };
+
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(
+          MAX_THREADS, MAX_THREADS, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(), factory);
+      executor.allowCoreThreadTimeOut(true);
+      return executor;
+    }
+  }
+}
@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package it.jnrpe.yaclp;
+
+import it.jnrpe.yaclp.validators.IAsyncArgumentValidator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Asynchronous validations collected while parsing a command line with
+ * {@link Parser#parseAsync(String[], Executor)} or while consuming the values of an argument
+ * validated in parallel.
+ */
+final class AsyncValidations {
+
+  /**
+   * The collected validations, in the order the options have been consumed.
+   */
+  private final List<PendingValidation> pending = new ArrayList<>();
+
+  /**
+   * Schedules the validation of a value.
+   *
+   * @param validator the validator
+   * @param option    the option owning the argument
+   * @param argument  the argument
+   * @param value     the value to be validated
+   * @param position  position of the value inside the command line
+   */
+  void add(final IAsyncArgumentValidator validator,
+           final IOption option,
+           final IArgument argument,
+           final String value,
+           final int position) {
+    pending.add(new PendingValidation(validator, option, argument, value, position));
+  }
+
+  /**
+   * Starts all the collected validations.
+   * If more than one validation fails, the returned future fails with the error of the value
+   * that comes first in the command line, whatever the order the validations complete in.
+   *
+   * @param executor the executor to be used by the validators
+   * @return a future completed when all the validations are completed
+   */
+  CompletableFuture<Void> run(final Executor executor) {
+    // Options are consumed in declaration order: sort by command line position (stable, so that
+    // the validators of the same value keep their order)
+    pending.sort(Comparator.comparingInt(validation -> validation.position));
+
+    final CompletableFuture<?>[] futures = new CompletableFuture<?>[pending.size()];
+    for (int i = 0; i < futures.length; i++) {
+      futures[i] = pending.get(i).start(executor);
+    }
+
+    return CompletableFuture.allOf(futures).handle((ignored, error) -> {
+      if (error != null) {
+        for (CompletableFuture<?> future : futures) {
+          if (future.isCompletedExceptionally()) {
+            throw new CompletionException(unwrap(future.handle((res, e) -> e).join()));
+          }
+        }
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Runs all the collected validations and waits for them to complete.
+   *
+   * @param executor the executor to be used by the validators
+   * @throws ParsingException the error of the first value in command line order that is not valid
+   */
+  void await(final Executor executor) throws ParsingException {
+    if (pending.isEmpty()) {
+      return;
+    }
+    try {
+      run(executor).join();
+    } catch (CompletionException e) {
+      Throwable error = unwrap(e);
+      if (error instanceof ParsingException) {
+        throw (ParsingException) error;
+      }
+      if (error instanceof RuntimeException) {
+        throw (RuntimeException) error;
+      }
+      if (error instanceof Error) {
+        throw (Error) error;
+      }
+      throw e;
+    } finally {
+      pending.clear();
+    }
+  }
+
+  /**
+   * Removes the {@link CompletionException} wrapper, if any.
+   *
+   * @param error the error
+   * @return the wrapped error
+   */
+  private static Throwable unwrap(final Throwable error) {
+    if (error instanceof CompletionException && error.getCause() != null) {
+      return error.getCause();
+    }
+    return error;
+  }
+
+  /**
+   * A value to be validated.
+   */
+  private static final class PendingValidation {
+
+    /**
+     * The validator.
+     */
+    private final IAsyncArgumentValidator validator;
+
+    /**
+     * The option owning the argument.
+     */
+    private final IOption option;
+
+    /**
+     * The argument.
+     */
+    private final IArgument argument;
+
+    /**
+     * The value to be validated.
+     */
+    private final String value;
+
+    /**
+     * Position of the value inside the command line.
+     */
+    private final int position;
+
+    /**
+     * Builds the pending validation.
+     *
+     * @param validator the validator
+     * @param option    the option owning the argument
+     * @param argument  the argument
+     * @param value     the value to be validated
+     * @param position  position of the value inside the command line
+     */
+    private PendingValidation(final IAsyncArgumentValidator validator,
+                              final IOption option,
+                              final IArgument argument,
+                              final String value,
+                              final int position) {
+      this.validator = validator;
+      this.option = option;
+      this.argument = argument;
+      this.value = value;
+      this.position = position;
+    }
+
+    /**
+     * Starts the validation.
+     *
+     * @param executor the executor to be used by the validator
+     * @return the validation future
+     */
+    private CompletableFuture<Void> start(final Executor executor) {
+      try {
+        return validator.validateAsync(option, argument, value, executor);
+      } catch (RuntimeException e) {
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(e);
+        return failed;
+      }
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package it.jnrpe.yaclp;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks on a delegate executor, never running more than a fixed number of them at the same
+ * time. Exceeding tasks are queued and started as soon as one of the running tasks completes:
+ * submitting a task never blocks the caller.
+ */
+final class BoundedExecutor implements Executor {
+
+  /**
+   * The executor the tasks are run on.
+   */
+  private final Executor delegate;
+
+  /**
+   * Maximum number of tasks running at the same time.
+   */
+  private final int parallelism;
+
+  /**
+   * Tasks waiting to be started.
+   */
+  private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Number of tasks currently submitted to the delegate.
+   */
+  private final AtomicInteger running = new AtomicInteger();
+
+  /**
+   * Builds the executor.
+   *
+   * @param delegate    the executor the tasks are run on
+   * @param parallelism maximum number of tasks running at the same time
+   */
+  BoundedExecutor(final Executor delegate, final int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+    }
+    this.delegate = delegate;
+    this.parallelism = parallelism;
+  }
+
+  @Override
+  public void execute(final Runnable task) {
+    queue.add(task);
+    drain();
+  }
+
+  /**
+   * Starts queued tasks while there are free slots.
+   */
+  private void drain() {
+    while (!queue.isEmpty()) {
+      int current = running.get();
+      if (current >= parallelism) {
+        // a running task will drain the queue when it completes
+        return;
+      }
+      if (!running.compareAndSet(current, current + 1)) {
+        continue;
+      }
+      final Runnable task = queue.poll();
+      if (task == null) {
+        running.decrementAndGet();
+        continue;
+      }
+      try {
+        delegate.execute(() -> {
+          try {
+            task.run();
+          } finally {
+            running.decrementAndGet();
+            drain();
+          }
+        });
+      } catch (RuntimeException e) {
+        running.decrementAndGet();
+        throw e;
+      }
+    }
+  }
+}
@@ -16,8 +16,6 @@
 
 package it.jnrpe.yaclp;
 
-import java.util.List;
-
 /**
  * This object represent a command (for example: "checkout" in "git checkout").
  */
@@ -89,34 +87,32 @@ public final class Command {
   }
 
   /**
-   * Return whether the command is present or not.
+   * Consumes the command. The command sub-parser continues parsing the same tokens, starting from
+   * the one following the command name: when this method is executed, the command and its command
+   * line are marked as consumed.
    *
-   * @param args the received command line
-   * @return true or false
+   * @param tokens the command line to be parsed
+   * @param pos    position of the command name
+   * @param res    the results
+   * @throws ParsingException on any error parsing or validating the command line
    */
-  boolean isPresent(final List<String> args) {
-    if (args.isEmpty()) {
-      return false;
-    }
-
-    String arg = args.get(0);
-    return arg.equals(shortName) || arg.equals(longName);
+  void consume(final Tokens tokens, final int pos, final CommandLine res)
+      throws ParsingException {
+    select(tokens, pos, res);
+    parser.parseFrom(tokens, pos + 1, res);
   }
 
   /**
-   * Consumes the command. When this method is executed, the command and its command line are
-   * removed from args.
+   * Records the command inside the result and marks its name as consumed, without parsing the
+   * command line.
    *
-   * @param args the command line to be parsed
-   * @param res  the results
-   * @throws ParsingException on any error parsing or validating the command line
+   * @param tokens the command line to be parsed
+   * @param pos    position of the command name
+   * @param res    the results
    */
-  void consume(final List<String> args, final CommandLine res) throws ParsingException {
-    if (isPresent(args)) {
-      res.setCommand(args.remove(0));
-      parser.parse(args.toArray(new String[args.size()]), res);
-      args.clear();
-    }
+  void select(final Tokens tokens, final int pos, final CommandLine res) {
+    res.setCommand(tokens.get(pos));
+    tokens.consume(pos);
   }
 
   /**
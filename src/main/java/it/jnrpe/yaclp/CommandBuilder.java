@@ -18,6 +18,7 @@ package it.jnrpe.yaclp;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -109,8 +110,7 @@ public final class CommandBuilder {
    * @return the newly build command instance
    */
   public Command build() {
-    Parser parser = new Parser();
-    options.forEach(parser::addOption);
+    Parser parser = new Parser(options, Collections.emptyList());
 
     return new Command(shortName, longName, description, parser);
   }
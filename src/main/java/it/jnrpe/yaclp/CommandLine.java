@@ -16,10 +16,16 @@
 
 package it.jnrpe.yaclp;
 
+import it.jnrpe.yaclp.validators.EnumValidator;
+
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,17 +33,69 @@ import java.util.Properties;
 
 /**
  * Contains the parsed command line.
+ * A command line object can be reused for many parse calls (see
+ * {@link Parser#parse(String[], CommandLine)}): resetting it keeps all the internal buffers, so
+ * that parsing similar command lines does not allocate new objects.
+ * <p>
+ * A {@link Storage#LAZY} command line only records, while parsing, the position of each value
+ * inside the received arguments: strings and collections are built the first time the values of
+ * an option are requested. This is useful when only a few of many parsed options are read.
+ * Lazy command lines keep a reference to the parsed arguments array, so it must not be changed
+ * until the values have been read.
+ * <p>
+ * A {@link Storage#COMPACT} command line copies the characters of the values of each option into
+ * a single growable array, together with the offset of the end of each value: no object is kept
+ * for each value and, as long as all the characters are in the ISO-8859-1 range, each character
+ * takes a single byte. Options with a huge number of values (for example a list of paths) need a
+ * fraction of the memory. Strings are built only when requested, while
+ * {@link #getCharSequences(String)} returns views over the array.
  */
 public class CommandLine {
+
+  /**
+   * How the parsed values are stored.
+   */
+  public enum Storage {
+    /**
+     * Values are stored while parsing.
+     */
+    EAGER,
+
+    /**
+     * Only the position of the values is recorded while parsing. Values are built when requested.
+     */
+    LAZY,
+
+    /**
+     * The characters of the values are packed into an array while parsing. Values are built when
+     * requested.
+     */
+    COMPACT
+  }
+
+  /**
+   * All the parsed options, together with its values. The same {@link OptionValues} object is
+   * registered with both the short and the long name of the option.
+   */
+  private final Map<String, OptionValues> parmAndValue = new HashMap<>();
+
+  /**
+   * All the value holders ever created by this object, used to reset them without iterating the
+   * map.
+   */
+  private final List<OptionValues> allValues = new ArrayList<>();
+
   /**
-   * All the parsed options, together with its values.
+   * All the parsed property options. The same {@link PropertyValues} object is registered with
+   * both the short and the long name of the option.
    */
-  private Map<String, List<String>> parmAndValue = new HashMap<>();
+  private final Map<String, PropertyValues> propertyParams = new HashMap<>();
 
   /**
-   * All the parsed property options.
+   * All the property holders ever created by this object, used to reset them without iterating
+   * the map.
    */
-  private Map<String, Properties> propertyParams = new HashMap<>();
+  private final List<PropertyValues> allProperties = new ArrayList<>();
 
   /**
    * The parsed command.
@@ -45,23 +103,113 @@ public class CommandLine {
   private String command;
 
   /**
-   * Adds a new value for the given option.
+   * Recorded values positions for lazy command lines, <code>null</code> otherwise.
+   */
+  private final LazyValues lazyValues;
+
+  /**
+   * Whether the values are packed into arrays of characters.
+   */
+  private final boolean compact;
+
+  /**
+   * Asynchronous validations collected while parsing, <code>null</code> when validations must be
+   * executed synchronously.
+   */
+  private AsyncValidations asyncValidations;
+
+  /**
+   * Builds an eager command line.
+   */
+  public CommandLine() {
+    this(Storage.EAGER);
+  }
+
+  /**
+   * Builds a command line using the given storage.
    *
-   * @param params   map containing the param/value pairs
-   * @param key      key whose value must be changed
-   * @param newValue new value to add to the list of values
-   */
-  private void addValue(final Map<String, List<String>> params,
-                        final String key,
-                        final String newValue) {
-    List<String> values = params.get(key);
-    if (values == null) {
-      values = new ArrayList<>();
-      params.put(key, values);
+   * @param storage how the values must be stored
+   */
+  public CommandLine(final Storage storage) {
+    this.lazyValues = storage == Storage.LAZY ? new LazyValues() : null;
+    this.compact = storage == Storage.COMPACT;
+  }
+
+  /**
+   * Discards the result of the previous parsing. Internal buffers are kept to be reused.
+   */
+  public void reset() {
+    if (lazyValues != null) {
+      lazyValues.reset();
+    }
+    for (int i = 0; i < allValues.size(); i++) {
+      allValues.get(i).clear();
+    }
+    for (int i = 0; i < allProperties.size(); i++) {
+      allProperties.get(i).clear();
+    }
+    command = null;
+  }
+
+  /**
+   * Sets the object collecting the asynchronous validations.
+   *
+   * @param asyncValidations the validations collector or <code>null</code> to validate
+   *                         synchronously
+   */
+  void setAsyncValidations(final AsyncValidations asyncValidations) {
+    this.asyncValidations = asyncValidations;
+  }
+
+  /**
+   * Returns the object collecting the asynchronous validations.
+   *
+   * @return the validations collector or <code>null</code> if validations must be executed
+   *     synchronously
+   */
+  AsyncValidations getAsyncValidations() {
+    return asyncValidations;
+  }
+
+  /**
+   * Returns whether this is a lazy command line.
+   *
+   * @return true or false
+   */
+  boolean isLazy() {
+    return lazyValues != null;
+  }
+
+  /**
+   * Records the presence of the given option.
+   *
+   * @param ctx    the parsing context
+   * @param option the option
+   */
+  void addOption(final ParseContext ctx, final AbstractOption option) {
+    if (lazyValues != null) {
+      lazyValues.recordOption(ctx, option);
+    } else {
+      addValue(option, null);
     }
+  }
 
-    if (newValue != null) {
-      values.add(newValue);
+  /**
+   * Adds the value contained into the token at the given position.
+   *
+   * @param ctx    the parsing context
+   * @param option the option
+   * @param pos    position of the token containing the value
+   */
+  void addValue(final ParseContext ctx, final AbstractOption option, final int pos) {
+    if (lazyValues != null) {
+      lazyValues.recordValue(ctx, option, pos);
+    } else if (compact) {
+      final Tokens tokens = ctx.getTokens();
+      valuesOf(option).add(tokens.getArgs()[tokens.getArgIndex(pos)], tokens.getStart(pos),
+          tokens.length(pos));
+    } else {
+      addValue(option, ctx.getTokens().get(pos));
     }
   }
 
@@ -69,11 +217,27 @@ public class CommandLine {
    * Adds a value for the given option.
    *
    * @param option the option
-   * @param value  the new value
+   * @param value  the new value (<code>null</code> to just record the option presence)
    */
   void addValue(final IOption option, final String value) {
-    addValue(parmAndValue, option.getShortName(), value);
-    addValue(parmAndValue, option.getLongName(), value);
+    valuesOf(option).add(value);
+  }
+
+  /**
+   * Returns the values holder of the given option, creating it if needed.
+   *
+   * @param option the option
+   * @return the values holder
+   */
+  private OptionValues valuesOf(final IOption option) {
+    OptionValues values = parmAndValue.get(option.getShortName());
+    if (values == null) {
+      values = new OptionValues(compact);
+      allValues.add(values);
+      parmAndValue.put(option.getShortName(), values);
+      parmAndValue.put(option.getLongName(), values);
+    }
+    return values;
   }
 
   /**
@@ -84,13 +248,15 @@ public class CommandLine {
    * @param value  the property value
    */
   void addProperty(final IOption option, final String key, final String value) {
-    Properties props = propertyParams.get(option.getShortName());
+    PropertyValues props = propertyParams.get(option.getShortName());
     if (props == null) {
-      props = new Properties();
+      props = new PropertyValues();
+      allProperties.add(props);
       propertyParams.put(option.getShortName(), props);
+      propertyParams.put(option.getLongName(), props);
     }
 
-    props.setProperty(key, value);
+    props.put(key, value);
   }
 
   /**
@@ -121,8 +287,8 @@ public class CommandLine {
    * @return the option value or the default if the option is not present.
    */
   public String getValue(final String param, final String defaultValue) {
-    List<String> values = parmAndValue.get(param);
-    if (values == null) {
+    OptionValues values = lookupValues(param);
+    if (values == null || values.size == 0) {
       return defaultValue;
     }
 
@@ -158,12 +324,29 @@ public class CommandLine {
    * @return the option values or the defaults if the option is not present.
    */
   public String[] getValues(final String param, final String... defaultValues) {
-    List<String> values = parmAndValue.get(param);
-    if (values == null) {
+    OptionValues values = lookupValues(param);
+    if (values == null || !values.present) {
       return defaultValues;
     }
 
-    return values.toArray(new String[values.size()]);
+    return values.toArray();
+  }
+
+  /**
+   * Returns all the values for the given option name, without building a string for each value.
+   * The values of {@link Storage#COMPACT} command lines are views over the internal buffers: they
+   * must not be used after the command line is reset.
+   *
+   * @param param the option name
+   * @return the values or <code>null</code> if the option is not present
+   */
+  public List<CharSequence> getCharSequences(final String param) {
+    OptionValues values = lookupValues(param);
+    if (values == null || !values.present) {
+      return null;
+    }
+
+    return values.asList();
   }
 
   /**
@@ -173,7 +356,55 @@ public class CommandLine {
    * @return a {@link Properties} object representing the option value
    */
   public Properties getProperties(final String optionName) {
-    return propertyParams.get(optionName);
+    PropertyValues props = lookupProperties(optionName);
+    return props == null ? null : props.asProperties();
+  }
+
+  /**
+   * Returns the properties value for the given property option as a read only map.
+   *
+   * @param optionName the option name
+   * @return a read only view of the option value or <code>null</code> if the option is not
+   *     present
+   */
+  public Map<String, String> getPropertyMap(final String optionName) {
+    PropertyValues props = lookupProperties(optionName);
+    return props == null ? null : props.view;
+  }
+
+  /**
+   * Returns the properties holder for the given option name, materializing the values of lazy
+   * command lines.
+   *
+   * @param optionName the option name
+   * @return the properties holder or <code>null</code> if the option is not present
+   */
+  private PropertyValues lookupProperties(final String optionName) {
+    PropertyValues props = propertyParams.get(optionName);
+    if ((props == null || props.map.isEmpty())
+        && lazyValues != null && lazyValues.materialize(optionName, this)) {
+      props = propertyParams.get(optionName);
+    }
+    if (props == null || props.map.isEmpty()) {
+      return null;
+    }
+    return props;
+  }
+
+  /**
+   * Returns the values holder for the given option name, materializing the values of lazy
+   * command lines.
+   *
+   * @param param the option name
+   * @return the values holder or <code>null</code>
+   */
+  private OptionValues lookupValues(final String param) {
+    OptionValues values = parmAndValue.get(param);
+    if ((values == null || !values.present)
+        && lazyValues != null && lazyValues.materialize(param, this)) {
+      values = parmAndValue.get(param);
+    }
+    return values;
   }
 
   /**
@@ -183,7 +414,9 @@ public class CommandLine {
    * @return true or false
    */
   public boolean hasOption(final String name) {
-    return parmAndValue.containsKey(name);
+    OptionValues values = parmAndValue.get(name);
+    return (values != null && values.present)
+        || (lazyValues != null && lazyValues.isPresent(name));
   }
 
   /**
@@ -196,6 +429,392 @@ public class CommandLine {
     return (this.command != null && this.command.equals(command));
   }
 
+  /**
+   * Reusable holder of the values of an option.
+   * The values of compact command lines are packed into an arena: no object is kept for each
+   * value. The arena is an array of ISO-8859-1 bytes ({@link #latin1}) until a value containing
+   * a character outside that range is received, then it is inflated to an array of chars
+   * ({@link #chars}).
+   */
+  private static final class OptionValues {
+
+    /**
+     * Whether the option has been found in the command line.
+     */
+    private boolean present;
+
+    /**
+     * The option values, <code>null</code> for compact command lines. Only the first
+     * {@link #size} elements are meaningful.
+     */
+    private String[] values;
+
+    /**
+     * Number of values.
+     */
+    private int size;
+
+    /**
+     * The arena of compact command lines when all the characters are ISO-8859-1, otherwise
+     * <code>null</code>.
+     */
+    private byte[] latin1;
+
+    /**
+     * The arena of compact command lines after a character outside the ISO-8859-1 range has been
+     * received, otherwise <code>null</code>.
+     */
+    private char[] chars;
+
+    /**
+     * Number of used elements of the arena.
+     */
+    private int arenaSize;
+
+    /**
+     * For each value, the offset following its last character inside the arena.
+     */
+    private int[] ends;
+
+    /**
+     * Constructor.
+     *
+     * @param compact whether the values must be packed into an arena
+     */
+    private OptionValues(final boolean compact) {
+      if (compact) {
+        latin1 = new byte[32];
+        ends = new int[1];
+      } else {
+        values = new String[1];
+      }
+    }
+
+    /**
+     * Records the option presence and, if not null, adds a value.
+     *
+     * @param value the value to be added or <code>null</code>
+     */
+    private void add(final String value) {
+      if (value != null && values == null) {
+        add(value, 0, value.length());
+        return;
+      }
+      present = true;
+      if (value != null) {
+        if (size == values.length) {
+          values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+      }
+    }
+
+    /**
+     * Records the option presence and copies a value into the arena of a compact command line.
+     *
+     * @param str    the string containing the value
+     * @param from   offset of the first character of the value
+     * @param length length of the value
+     */
+    private void add(final String str, final int from, final int length) {
+      present = true;
+      reserve(length);
+
+      int copied = 0;
+      if (latin1 != null) {
+        for (; copied < length; copied++) {
+          final char c = str.charAt(from + copied);
+          if (c > 0xFF) {
+            inflate();
+            break;
+          }
+          latin1[arenaSize++] = (byte) c;
+        }
+      }
+      if (copied < length) {
+        str.getChars(from + copied, from + length, chars, arenaSize);
+        arenaSize += length - copied;
+      }
+      ends[size++] = arenaSize;
+    }
+
+    /**
+     * Grows the arena and the offsets table so that they can receive a new value.
+     *
+     * @param length the length of the new value
+     */
+    private void reserve(final int length) {
+      final int capacity = latin1 != null ? latin1.length : chars.length;
+      if (arenaSize + length > capacity) {
+        final int newCapacity = Math.max(arenaSize + length, capacity * 2);
+        if (latin1 != null) {
+          latin1 = Arrays.copyOf(latin1, newCapacity);
+        } else {
+          chars = Arrays.copyOf(chars, newCapacity);
+        }
+      }
+      if (size == ends.length) {
+        ends = Arrays.copyOf(ends, size * 2);
+      }
+    }
+
+    /**
+     * Converts the arena from bytes to chars.
+     */
+    private void inflate() {
+      chars = new char[latin1.length];
+      for (int i = 0; i < arenaSize; i++) {
+        chars[i] = (char) (latin1[i] & 0xFF);
+      }
+      latin1 = null;
+    }
+
+    /**
+     * Returns a value.
+     *
+     * @param index the index of the value
+     * @return the value
+     */
+    private String get(final int index) {
+      if (values != null) {
+        return values[index];
+      }
+      final int start = index == 0 ? 0 : ends[index - 1];
+      if (latin1 != null) {
+        return new String(latin1, start, ends[index] - start, StandardCharsets.ISO_8859_1);
+      }
+      return new String(chars, start, ends[index] - start);
+    }
+
+    /**
+     * Returns all the values.
+     *
+     * @return a new array containing the values
+     */
+    private String[] toArray() {
+      if (values != null) {
+        return Arrays.copyOf(values, size);
+      }
+      String[] res = new String[size];
+      for (int i = 0; i < size; i++) {
+        res[i] = get(i);
+      }
+      return res;
+    }
+
+    /**
+     * Returns all the values as an unmodifiable list.
+     *
+     * @return the values
+     */
+    private List<CharSequence> asList() {
+      if (values != null) {
+        return Collections.unmodifiableList(Arrays.<CharSequence>asList(toArray()));
+      }
+      return new ArenaList(latin1, chars, ends, size);
+    }
+
+    /**
+     * Discards all the values, keeping the buffers.
+     */
+    private void clear() {
+      if (values != null) {
+        Arrays.fill(values, 0, size, null);
+      }
+      size = 0;
+      arenaSize = 0;
+      present = false;
+    }
+  }
+
+  /**
+   * Unmodifiable list of the values packed into an arena. Each value is returned as a view over
+   * the arena.
+   */
+  private static final class ArenaList extends AbstractList<CharSequence> {
+
+    /**
+     * The arena, if made of ISO-8859-1 bytes.
+     */
+    private final byte[] latin1;
+
+    /**
+     * The arena, if made of chars.
+     */
+    private final char[] chars;
+
+    /**
+     * For each value, the offset following its last character.
+     */
+    private final int[] ends;
+
+    /**
+     * Number of values.
+     */
+    private final int size;
+
+    /**
+     * Constructor.
+     *
+     * @param latin1 the arena, if made of ISO-8859-1 bytes
+     * @param chars  the arena, if made of chars
+     * @param ends   for each value, the offset following its last character
+     * @param size   number of values
+     */
+    private ArenaList(final byte[] latin1, final char[] chars, final int[] ends, final int size) {
+      this.latin1 = latin1;
+      this.chars = chars;
+      this.ends = ends;
+      this.size = size;
+    }
+
+    @Override
+    public CharSequence get(final int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      return new ArenaSequence(latin1, chars, index == 0 ? 0 : ends[index - 1], ends[index]);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
+  /**
+   * A value stored inside an arena. The string is built only when requested.
+   */
+  private static final class ArenaSequence implements CharSequence {
+
+    /**
+     * The arena, if made of ISO-8859-1 bytes.
+     */
+    private final byte[] latin1;
+
+    /**
+     * The arena, if made of chars.
+     */
+    private final char[] chars;
+
+    /**
+     * Offset of the first character.
+     */
+    private final int start;
+
+    /**
+     * Offset following the last character.
+     */
+    private final int end;
+
+    /**
+     * Constructor.
+     *
+     * @param latin1 the arena, if made of ISO-8859-1 bytes
+     * @param chars  the arena, if made of chars
+     * @param start  offset of the first character
+     * @param end    offset following the last character
+     */
+    private ArenaSequence(final byte[] latin1, final char[] chars, final int start,
+                          final int end) {
+      this.latin1 = latin1;
+      this.chars = chars;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public int length() {
+      return end - start;
+    }
+
+    @Override
+    public char charAt(final int index) {
+      if (index < 0 || index >= end - start) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + (end - start));
+      }
+      return latin1 != null ? (char) (latin1[start + index] & 0xFF) : chars[start + index];
+    }
+
+    @Override
+    public CharSequence subSequence(final int from, final int to) {
+      if (from < 0 || to > end - start || from > to) {
+        throw new IndexOutOfBoundsException(
+            "From: " + from + ", To: " + to + ", Length: " + (end - start));
+      }
+      return new ArenaSequence(latin1, chars, start + from, start + to);
+    }
+
+    @Override
+    public String toString() {
+      if (latin1 != null) {
+        return new String(latin1, start, end - start, StandardCharsets.ISO_8859_1);
+      }
+      return new String(chars, start, end - start);
+    }
+  }
+
+  /**
+   * Reusable holder of the values of a property option. Values are stored into an unsynchronized
+   * map: the {@link Properties} object is built only when requested.
+   */
+  private static final class PropertyValues {
+
+    /**
+     * Initial capacity of the map: clearing the map keeps its capacity, so command lines reused
+     * for many parse calls resize it only once.
+     */
+    private static final int INITIAL_CAPACITY = 32;
+
+    /**
+     * The properties.
+     */
+    private final Map<String, String> map = new HashMap<>(INITIAL_CAPACITY);
+
+    /**
+     * Read only view of {@link #map}.
+     */
+    private final Map<String, String> view = Collections.unmodifiableMap(map);
+
+    /**
+     * The properties as a {@link Properties} object, built on request. <code>null</code> when the
+     * map changes.
+     */
+    private Properties properties;
+
+    /**
+     * Adds a property.
+     *
+     * @param key   the property key
+     * @param value the property value
+     */
+    private void put(final String key, final String value) {
+      map.put(key, value);
+      properties = null;
+    }
+
+    /**
+     * Returns the properties as a {@link Properties} object.
+     *
+     * @return the properties
+     */
+    private Properties asProperties() {
+      if (properties == null) {
+        properties = new Properties();
+        properties.putAll(map);
+      }
+      return properties;
+    }
+
+    /**
+     * Discards all the properties, keeping the map capacity.
+     */
+    private void clear() {
+      map.clear();
+      properties = null;
+    }
+  }
+
   /**
    * Parsed value object. Used to convert from string to the desired object.
    */
@@ -366,5 +985,38 @@ public class CommandLine {
         throw new IllegalArgumentException(e);
       }
     }
+
+    /**
+     * Returns the value as a constant of the given enum. The value is compared with the names of
+     * the constants ignoring the case.
+     * @param type the enum type
+     * @param <E> the enum type
+     * @return the value as a constant of the given enum
+     */
+    public <E extends Enum<E>> E asEnum(final Class<E> type) {
+      return asEnum(type, null);
+    }
+
+    /**
+     * Returns the value as a constant of the given enum. The value is compared with the names of
+     * the constants ignoring the case.
+     * If the option has not been specified, defaultValue is returned.
+     * @param type the enum type
+     * @param defaultValue value to be returned if the option is not specified
+     * @param <E> the enum type
+     * @return the value as a constant of the given enum
+     */
+    public <E extends Enum<E>> E asEnum(final Class<E> type, final E defaultValue) {
+      if (value == null) {
+        return defaultValue;
+      }
+
+      E res = EnumValidator.toEnum(type, value);
+      if (res == null) {
+        throw new IllegalArgumentException(
+            String.format("No constant of %s matches '%s'", type.getName(), value));
+      }
+      return res;
+    }
   }
 }
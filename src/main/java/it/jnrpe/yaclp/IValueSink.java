@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package it.jnrpe.yaclp;
+
+/**
+ * Receives the values of an argument while they are parsed, instead of having them stored
+ * inside the {@link CommandLine} (see {@link ArgumentBuilder#withValueSink(IValueSink)}).
+ * Each value is delivered once, in command line order, after it has been validated. If the
+ * parsing fails, the values already delivered must be discarded by the sink.
+ * <p>
+ * The sink belongs to the argument, so it is shared by all the parse calls of the parser,
+ * including the concurrent ones ({@link Parser#parseAll(java.util.List, int)},
+ * {@link Parser#parseAsync(String[])} or calls from different threads): implementations must be
+ * thread safe and can use the received {@link CommandLine} to know which parse call each value
+ * belongs to.
+ */
+public interface IValueSink {
+
+  /**
+   * Receives a value.
+   *
+   * @param commandLine the command line being parsed: it is the object returned by the parse
+   *                    call if the parsing succeeds
+   * @param option      the option owning the argument
+   * @param value       the validated value
+   * @throws ParsingException to stop parsing if the value can't be accepted
+   */
+  void accept(CommandLine commandLine, IOption option, String value) throws ParsingException;
+}
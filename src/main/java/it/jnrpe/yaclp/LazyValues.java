@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package it.jnrpe.yaclp;
+
+import java.util.Arrays;
+
+/**
+ * Storage used by lazy {@link CommandLine} objects.
+ * While parsing, only the id of the matched option and the offset of its value inside the
+ * received command line are recorded, in a compact int array. Strings and collections are built
+ * only when the values of an option are requested.
+ */
+final class LazyValues {
+
+  /**
+   * Number of ints used by each record.
+   */
+  private static final int RECORD_SIZE = 4;
+
+  /**
+   * The command line the recorded offsets refer to.
+   */
+  private String[] args;
+
+  /**
+   * Indexes of the parsers that filled this object (the main parser and, possibly, a command
+   * sub-parser).
+   */
+  private OptionIndex[] indexes = new OptionIndex[1];
+
+  /**
+   * For each index, the mask of the options found in the command line.
+   */
+  private long[][] presentMasks = new long[1][];
+
+  /**
+   * For each index, the mask of the options whose values have already been materialized.
+   */
+  private long[][] materializedMasks = new long[1][];
+
+  /**
+   * Number of used indexes.
+   */
+  private int indexCount;
+
+  /**
+   * The records. Each record is made of: index slot, option id, argument index and offset of the
+   * value inside the argument. Presence alone is tracked by {@link #presentMasks}.
+   */
+  private int[] records = new int[RECORD_SIZE * 8];
+
+  /**
+   * Number of used ints inside {@link #records}.
+   */
+  private int size;
+
+  /**
+   * Discards all the records.
+   */
+  void reset() {
+    args = null;
+    for (int i = 0; i < indexCount; i++) {
+      indexes[i] = null;
+    }
+    indexCount = 0;
+    size = 0;
+  }
+
+  /**
+   * Records the presence of an option.
+   *
+   * @param ctx    the parsing context
+   * @param option the option
+   */
+  void recordOption(final ParseContext ctx, final AbstractOption option) {
+    final OptionIndex index = ctx.getIndex();
+    OptionMask.set(presentMasks[slotOf(index)], index.idOf(option));
+  }
+
+  /**
+   * Records a value of an option.
+   *
+   * @param ctx    the parsing context
+   * @param option the option
+   * @param pos    position of the token containing the value
+   */
+  void recordValue(final ParseContext ctx, final AbstractOption option, final int pos) {
+    Tokens tokens = ctx.getTokens();
+    args = tokens.getArgs();
+    record(ctx, option, tokens.getArgIndex(pos), tokens.getStart(pos));
+  }
+
+  /**
+   * Appends a record.
+   *
+   * @param ctx      the parsing context
+   * @param option   the option
+   * @param argIndex the index of the argument containing the value
+   * @param start    offset of the value inside the argument
+   */
+  private void record(final ParseContext ctx,
+                      final AbstractOption option,
+                      final int argIndex,
+                      final int start) {
+    final OptionIndex index = ctx.getIndex();
+    final int slot = slotOf(index);
+    final int id = index.idOf(option);
+
+    OptionMask.set(presentMasks[slot], id);
+
+    if (size == records.length) {
+      records = Arrays.copyOf(records, size * 2);
+    }
+    records[size++] = slot;
+    records[size++] = id;
+    records[size++] = argIndex;
+    records[size++] = start;
+  }
+
+  /**
+   * Returns the slot of the given index, registering it if needed.
+   *
+   * @param index the index
+   * @return the slot
+   */
+  private int slotOf(final OptionIndex index) {
+    for (int i = 0; i < indexCount; i++) {
+      if (indexes[i] == index) {
+        return i;
+      }
+    }
+
+    if (indexCount == indexes.length) {
+      indexes = Arrays.copyOf(indexes, indexCount + 1);
+      presentMasks = Arrays.copyOf(presentMasks, indexCount + 1);
+      materializedMasks = Arrays.copyOf(materializedMasks, indexCount + 1);
+    }
+
+    int slot = indexCount++;
+    indexes[slot] = index;
+    presentMasks[slot] = reuse(presentMasks[slot], index.size());
+    materializedMasks[slot] = reuse(materializedMasks[slot], index.size());
+    return slot;
+  }
+
+  /**
+   * Returns an empty mask for the given number of options, reusing the passed in one if
+   * possible.
+   *
+   * @param mask the mask to be reused (can be null)
+   * @param size the number of options
+   * @return an empty mask
+   */
+  private static long[] reuse(final long[] mask, final int size) {
+    if (mask == null || mask.length != OptionMask.wordsFor(size)) {
+      return OptionMask.create(size);
+    }
+    Arrays.fill(mask, 0);
+    return mask;
+  }
+
+  /**
+   * Returns whether the option with the given name has been found in the command line.
+   *
+   * @param name the option name
+   * @return true or false
+   */
+  boolean isPresent(final String name) {
+    for (int slot = 0; slot < indexCount; slot++) {
+      int id = indexes[slot].lookup(name);
+      if (id != OptionIndex.NOT_FOUND && OptionMask.get(presentMasks[slot], id)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Builds the values of the option with the given name and stores them inside the command line.
+   * Values are materialized only once.
+   *
+   * @param name   the option name
+   * @param target the command line receiving the values
+   * @return <code>true</code> if values have been materialized
+   */
+  boolean materialize(final String name, final CommandLine target) {
+    for (int slot = 0; slot < indexCount; slot++) {
+      int id = indexes[slot].lookup(name);
+      if (id == OptionIndex.NOT_FOUND
+          || !OptionMask.get(presentMasks[slot], id)
+          || OptionMask.get(materializedMasks[slot], id)) {
+        continue;
+      }
+
+      OptionMask.set(materializedMasks[slot], id);
+      AbstractOption option = indexes[slot].getOption(id);
+      Argument argument = option.getArgument();
+      target.addValue(option, null);
+
+      for (int i = 0; i < size; i += RECORD_SIZE) {
+        if (records[i] == slot && records[i + 1] == id) {
+          String arg = args[records[i + 2]];
+          String value = records[i + 3] == 0 ? arg : arg.substring(records[i + 3]);
+          argument.materialize(target, option, value);
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+}
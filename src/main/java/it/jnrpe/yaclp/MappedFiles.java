@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package it.jnrpe.yaclp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory maps the UTF-8 files read while parsing, such as properties files and argument files.
+ * UTF-8 is self synchronizing: the byte of an ASCII character is never part of another
+ * character, so readers can look for ASCII separators directly into the mapped bytes and decode
+ * only the strings they extract.
+ */
+final class MappedFiles {
+
+  /**
+   * The UTF-8 byte order mark.
+   */
+  private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+  /**
+   * Constructor.
+   */
+  private MappedFiles() {
+  }
+
+  /**
+   * Maps a whole file in read only mode.
+   *
+   * @param path path of the file
+   * @param kind kind of the file, used in error messages (for example <code>argument file</code>)
+   * @return the content of the file
+   * @throws ParsingException if the file can't be read or is bigger than 2GB
+   */
+  static MappedByteBuffer map(final String path, final String kind) throws ParsingException {
+    try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new ParsingException("%s%s <%s> is too big",
+            Character.toUpperCase(kind.charAt(0)), kind.substring(1), path);
+      }
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    } catch (IOException | InvalidPathException e) {
+      throw new ParsingException("Unable to read %s <%s>: %s", kind, path, e.getMessage());
+    }
+  }
+
+  /**
+   * Returns the position of the first byte of content, skipping the UTF-8 byte order mark.
+   *
+   * @param buffer the content of the file
+   * @return 3 if the content starts with a byte order mark, 0 otherwise
+   */
+  static int contentStart(final ByteBuffer buffer) {
+    if (buffer.limit() < BOM.length) {
+      return 0;
+    }
+    for (int i = 0; i < BOM.length; i++) {
+      if (buffer.get(i) != BOM[i]) {
+        return 0;
+      }
+    }
+    return BOM.length;
+  }
+}
@@ -87,9 +87,8 @@ public final class MutuallyExclusiveOptionBuilder {
    */
   public IOption build() {
     MutuallyExclusiveOptions opt =
-        new MutuallyExclusiveOptions(options.toArray(new IOption[options.size()]));
+        new MutuallyExclusiveOptions(description, options.toArray(new IOption[options.size()]));
     opt.setMandatory(mandatory);
-    opt.setDescription(description);
 
     return opt;
   }
@@ -17,7 +17,6 @@
 package it.jnrpe.yaclp;
 
 import java.util.Arrays;
-import java.util.List;
 
 /**
  * A mutually exclusive option object manages a list of options that can'b be present together.
@@ -27,14 +26,21 @@ class MutuallyExclusiveOptions extends AbstractOption {
   /**
    * The list of mutually exclusive options.
    */
-  private AbstractOption[] options;
+  private final AbstractOption[] options;
+
+  /**
+   * The mutually exclusive options group description.
+   */
+  private final String description;
 
   /**
    * Builds a mutually exclusive options object.
    *
-   * @param options the list of mutually exclusive options
+   * @param description the group description
+   * @param options     the list of mutually exclusive options
    */
-  MutuallyExclusiveOptions(final IOption... options) {
+  MutuallyExclusiveOptions(final String description, final IOption... options) {
+    this.description = description;
     this.options = Arrays.copyOf(options, options.length, AbstractOption[].class);
   }
 
@@ -55,57 +61,59 @@ class MutuallyExclusiveOptions extends AbstractOption {
     return String.join(separator, params);
   }
 
+  /**
+   * Checks that only one of the embedded options is present. The occurrences of the group are the
+   * sum of the occurrences of its options: the repetitions of each option are checked by the
+   * option itself.
+   *
+   * @param ctx the parsing context
+   * @throws ParsingException if more than one of the embedded options is present
+   */
+  @Override
+  void checkRepetitions(final ParseContext ctx) throws ParsingException {
+    final OptionIndex index = ctx.getIndex();
+    if (ctx.countPresent(index.getMemberMask(index.idOf(this))) > 1) {
+      throw new ParsingException(
+          "Incompatible options present: only one of [%s] must be specified",
+          getOptionNames(","));
+    }
+  }
+
   /**
    * Checks wich (if any) of the embedded option is present and consumes it.
    * If more then one of the embedded option is present, an exception is raised.
    *
-   * @param args the command line. The class <b>must remove</b> the consumed option from this
-   *             object.
-   * @param res  the results
+   * @param ctx the parsing context. The class <b>must mark</b> the consumed option as consumed.
+   * @param res the results
    * @throws ParsingException on error parsing the command line
    */
-  protected void doConsume(final List<String> args, final CommandLine res) throws ParsingException {
-    // Only one must be present...
-    AbstractOption passedInOption = null;
+  protected void doConsume(final ParseContext ctx, final CommandLine res) throws ParsingException {
+    final OptionIndex index = ctx.getIndex();
+    final int presentCount = ctx.countPresent(index.getMemberMask(index.idOf(this)));
 
-    for (AbstractOption opt : options) {
-      if (opt.isPresent(args)) {
-        if (passedInOption != null) {
-          throw new ParsingException(
-              "Incompatible options present: only one of [%s] must be specified",
-              getOptionNames(","));
-        } else {
-          passedInOption = opt;
-        }
-      }
+    // Only one must be present...
+    if (presentCount > 1) {
+      throw new ParsingException(
+          "Incompatible options present: only one of [%s] must be specified",
+          getOptionNames(","));
     }
 
-    // Ok, only at most one is present...
-    if (passedInOption != null) {
-      passedInOption.consume(args, res);
-    } else {
+    if (presentCount == 0) {
       if (isMandatory()) {
         throw new ParsingException(
             "Mandatory option missing: one of [%s] must be passed",
             getOptionNames(","));
       }
+      return;
     }
-  }
-
-  /**
-   * Returns whether at least one of the embedded options is present.
-   *
-   * @param args received command line
-   * @return true or false
-   */
-  public boolean isPresent(final List<String> args) {
-    boolean present = false;
 
+    // Ok, exactly one is present...
     for (AbstractOption opt : options) {
-      present |= opt.isPresent(args);
+      if (opt.isPresent(ctx)) {
+        opt.consume(ctx, res);
+        return;
+      }
     }
-
-    return present;
   }
 
   @Override
@@ -125,7 +133,7 @@ class MutuallyExclusiveOptions extends AbstractOption {
    * @return the list of embedded options.
    */
   IOption[] getOptions() {
-    return options;
+    return options.clone();
   }
 
   /**
@@ -134,15 +142,7 @@ class MutuallyExclusiveOptions extends AbstractOption {
    * @return the mutually exclusive options group desciption.
    */
   public String getDescription() {
-    return null;
-  }
-
-  /**
-   * Sets the mutually exclusive options group desciption.
-   *
-   * @param description the description
-   */
-  public void setDescription(final String description) {
+    return description;
   }
 
   /**
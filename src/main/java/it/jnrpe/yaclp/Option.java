@@ -16,8 +16,6 @@
 
 package it.jnrpe.yaclp;
 
-import java.util.List;
-
 /**
  * Concrete option class.
  */
@@ -36,49 +34,42 @@ class Option extends AbstractOption {
   /**
    * The option description.
    */
-  private String description = "";
+  private final String description;
 
   /**
    * Builds a new option object.
    *
-   * @param shortName the option short name
-   * @param longName  the option long name
+   * @param shortName   the option short name
+   * @param longName    the option long name
+   * @param description the option description
    */
-  Option(final String shortName, final String longName) {
+  Option(final String shortName, final String longName, final String description) {
     this.shortName = shortName;
     this.longName = longName;
-  }
-
-  /**
-   * Checks if the option is present in the command line.
-   *
-   * @param args command line to be checked
-   * @return true or false
-   */
-  public boolean isPresent(final List<String> args) {
-    return args.contains(shortName) || args.contains(longName);
+    this.description = description;
   }
 
   /**
    * Consumes the option. After the method executes, the option won't be present in args anymore.
    *
-   * @param args the command line. The class <b>must remove</b> the consumed option from this
-   *             object.
-   * @param res  the results
+   * @param ctx the parsing context. The class <b>must mark</b> the consumed option as consumed.
+   * @param res the results
    * @throws ParsingException on any error parsing the command line
    */
-  protected final void doConsume(final List<String> args, final CommandLine res)
+  protected final void doConsume(final ParseContext ctx, final CommandLine res)
       throws ParsingException {
-    for (int i = 0; i < args.size(); i++) {
-      if (args.get(i).equals(shortName) || args.get(i).equals(longName)) {
-        // consume and manage it
-        args.remove(i);
-        res.addValue(this, null);
-        if (getArgument() != null) {
-          getArgument().consume(this, args, i, res);
-        }
-        // consume again if repeated
-        consume(args, res);
+    Tokens tokens = ctx.getTokens();
+    // visit all the occurrences in a single pass
+    for (int i = ctx.firstOccurrence(this);
+         i != OptionIndex.NOT_FOUND;
+         i = ctx.nextOccurrence(i)) {
+      if (tokens.isConsumed(i)) {
+        continue;
+      }
+      tokens.consume(i);
+      res.addOption(ctx, this);
+      if (getArgument() != null) {
+        getArgument().consume(this, ctx, i + 1, res);
       }
     }
   }
@@ -110,15 +101,6 @@ class Option extends AbstractOption {
     return description;
   }
 
-  /**
-   * Sets the option description.
-   *
-   * @param description the new description
-   */
-  public void setDescription(final String description) {
-    this.description = description;
-  }
-
   @Override
   public String toString() {
     if (!longName.equals(shortName)) {
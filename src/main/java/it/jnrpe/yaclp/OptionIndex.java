@@ -0,0 +1,286 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package it.jnrpe.yaclp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled view of the options managed by a parser.
+ * Every option (including mutually exclusive groups) receives a dense id, and every short and long
+ * name is hashed to the id of the option owning it, so that a token can be classified in O(1).
+ */
+final class OptionIndex {
+
+  /**
+   * Id returned when a token or an option is unknown to the index.
+   */
+  static final int NOT_FOUND = -1;
+
+  /**
+   * Option ids, keyed by short and long name.
+   */
+  private final Map<String, Integer> idsByName = new HashMap<>();
+
+  /**
+   * Option ids, keyed by option instance.
+   */
+  private final Map<AbstractOption, Integer> idsByOption = new IdentityHashMap<>();
+
+  /**
+   * Option ids of the single character short names ('-x'), keyed by the ASCII character.
+   * Used to classify the short option part of split tokens without building a string.
+   */
+  private final int[] idsByShortChar = new int[128];
+
+  /**
+   * All the indexed options. The position inside the array is the option id.
+   */
+  private final AbstractOption[] options;
+
+  /**
+   * For each option id, the id of the mutually exclusive group containing it or
+   * {@link #NOT_FOUND}.
+   */
+  private final int[] groupIds;
+
+  /**
+   * For each option id, the mask of the options it requires.
+   */
+  private final long[][] requiredMasks;
+
+  /**
+   * For each option id, the mask of the options it is incompatible with.
+   */
+  private final long[][] incompatibleMasks;
+
+  /**
+   * For each mutually exclusive group id, the mask of its direct members. Empty for options.
+   */
+  private final long[][] memberMasks;
+
+  /**
+   * For each option id, whether it requires an option not managed by the parser (such
+   * requirement can never be satisfied).
+   */
+  private final boolean[] unknownRequirements;
+
+  /**
+   * Compiles the index for the given options.
+   *
+   * @param parserOptions the options managed by the parser
+   */
+  OptionIndex(final List<IOption> parserOptions) {
+    List<AbstractOption> all = new ArrayList<>();
+    List<Integer> groups = new ArrayList<>();
+    Arrays.fill(idsByShortChar, NOT_FOUND);
+
+    for (IOption option : parserOptions) {
+      register((AbstractOption) option, NOT_FOUND, all, groups);
+    }
+
+    this.options = all.toArray(new AbstractOption[all.size()]);
+    this.groupIds = new int[groups.size()];
+    for (int i = 0; i < groupIds.length; i++) {
+      groupIds[i] = groups.get(i);
+    }
+
+    this.requiredMasks = new long[options.length][];
+    this.incompatibleMasks = new long[options.length][];
+    this.memberMasks = new long[options.length][];
+    this.unknownRequirements = new boolean[options.length];
+
+    for (int id = 0; id < options.length; id++) {
+      requiredMasks[id] = OptionMask.create(options.length);
+      incompatibleMasks[id] = OptionMask.create(options.length);
+      memberMasks[id] = OptionMask.create(options.length);
+
+      for (AbstractOption required : options[id].getRequiredOptions()) {
+        int requiredId = idOf(required);
+        if (requiredId == NOT_FOUND) {
+          unknownRequirements[id] = true;
+        } else {
+          OptionMask.set(requiredMasks[id], requiredId);
+        }
+      }
+
+      for (AbstractOption incompatible : options[id].getIncompatibleOptions()) {
+        int incompatibleId = idOf(incompatible);
+        if (incompatibleId != NOT_FOUND) {
+          OptionMask.set(incompatibleMasks[id], incompatibleId);
+        }
+      }
+
+      if (groupIds[id] != NOT_FOUND) {
+        OptionMask.set(memberMasks[groupIds[id]], id);
+      }
+    }
+  }
+
+  /**
+   * Assigns an id to the option and hashes its names.
+   *
+   * @param option  the option to be registered
+   * @param groupId id of the enclosing mutually exclusive group or {@link #NOT_FOUND}
+   * @param all     the list of already registered options
+   * @param groups  the enclosing group of each already registered option
+   */
+  private void register(final AbstractOption option,
+                        final int groupId,
+                        final List<AbstractOption> all,
+                        final List<Integer> groups) {
+    if (idsByOption.containsKey(option)) {
+      throw new IllegalArgumentException(
+          String.format("Option [%s] has been added more than once", option));
+    }
+
+    final int id = all.size();
+    all.add(option);
+    groups.add(groupId);
+    idsByOption.put(option, id);
+
+    if (option instanceof MutuallyExclusiveOptions) {
+      for (IOption nested : ((MutuallyExclusiveOptions) option).getOptions()) {
+        register((AbstractOption) nested, id, all, groups);
+      }
+      return;
+    }
+
+    for (String name : Arrays.asList(option.getShortName(), option.getLongName())) {
+      Integer previous = idsByName.put(name, id);
+      if (previous != null && previous != id) {
+        throw new IllegalArgumentException(
+            String.format("Option name [%s] is used by more than one option", name));
+      }
+      if (name.length() == 2 && name.charAt(0) == '-' && name.charAt(1) < idsByShortChar.length) {
+        idsByShortChar[name.charAt(1)] = id;
+      }
+    }
+  }
+
+  /**
+   * Returns the id of the option whose short or long name is the given token.
+   *
+   * @param token the token to be classified
+   * @return the option id or {@link #NOT_FOUND}
+   */
+  int lookup(final String token) {
+    Integer id = idsByName.get(token);
+    return id == null ? NOT_FOUND : id;
+  }
+
+  /**
+   * Returns the id of the option whose short or long name is the token at the given position.
+   *
+   * @param tokens the command line tokens
+   * @param pos    the position of the token to be classified
+   * @return the option id or {@link #NOT_FOUND}
+   */
+  int lookup(final Tokens tokens, final int pos) {
+    if (tokens.isSplitOption(pos)) {
+      char c = tokens.charAt(pos, 1);
+      if (c < idsByShortChar.length) {
+        return idsByShortChar[c];
+      }
+    }
+    return lookup(tokens.get(pos));
+  }
+
+  /**
+   * Returns the id of the given option.
+   *
+   * @param option the option
+   * @return the option id or {@link #NOT_FOUND} if the option is not managed by the parser
+   */
+  int idOf(final AbstractOption option) {
+    Integer id = idsByOption.get(option);
+    return id == null ? NOT_FOUND : id;
+  }
+
+  /**
+   * Returns the id of the mutually exclusive group containing the given option.
+   *
+   * @param id the option id
+   * @return the group id or {@link #NOT_FOUND}
+   */
+  int getGroupId(final int id) {
+    return groupIds[id];
+  }
+
+  /**
+   * Returns the mask of the options required by the given option.
+   *
+   * @param id the option id
+   * @return the mask of the required options
+   */
+  long[] getRequiredMask(final int id) {
+    return requiredMasks[id];
+  }
+
+  /**
+   * Returns the mask of the options incompatible with the given option.
+   *
+   * @param id the option id
+   * @return the mask of the incompatible options
+   */
+  long[] getIncompatibleMask(final int id) {
+    return incompatibleMasks[id];
+  }
+
+  /**
+   * Returns the mask of the direct members of the given mutually exclusive group.
+   *
+   * @param id the group id
+   * @return the mask of the group members
+   */
+  long[] getMemberMask(final int id) {
+    return memberMasks[id];
+  }
+
+  /**
+   * Returns whether the given option requires an option that is not managed by the parser.
+   *
+   * @param id the option id
+   * @return true or false
+   */
+  boolean hasUnknownRequiredOptions(final int id) {
+    return unknownRequirements[id];
+  }
+
+  /**
+   * Returns the option with the given id.
+   *
+   * @param id the option id
+   * @return the option
+   */
+  AbstractOption getOption(final int id) {
+    return options[id];
+  }
+
+  /**
+   * Returns the number of indexed options.
+   *
+   * @return the number of indexed options
+   */
+  int size() {
+    return options.length;
+  }
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package it.jnrpe.yaclp;
+
+/**
+ * Helper methods to manage sets of option ids stored as bitmasks (one bit per dense option id,
+ * 64 ids per word). All the masks built for the same {@link OptionIndex} have the same length,
+ * so that they can be combined word by word.
+ */
+final class OptionMask {
+
+  /**
+   * Number of bits stored in each word.
+   */
+  private static final int WORD_SIZE = Long.SIZE;
+
+  /**
+   * Constructor.
+   */
+  private OptionMask() {
+  }
+
+  /**
+   * Builds an empty mask big enough to contain the given number of ids.
+   *
+   * @param size the number of ids
+   * @return an empty mask
+   */
+  static long[] create(final int size) {
+    return new long[wordsFor(size)];
+  }
+
+  /**
+   * Returns the number of words of a mask containing the given number of ids.
+   *
+   * @param size the number of ids
+   * @return the length of the mask
+   */
+  static int wordsFor(final int size) {
+    return (size + WORD_SIZE - 1) / WORD_SIZE;
+  }
+
+  /**
+   * Adds an id to the mask.
+   *
+   * @param mask the mask
+   * @param id   the id to be added
+   */
+  static void set(final long[] mask, final int id) {
+    mask[id / WORD_SIZE] |= 1L << (id % WORD_SIZE);
+  }
+
+  /**
+   * Returns whether the mask contains the given id.
+   *
+   * @param mask the mask
+   * @param id   the id to be checked
+   * @return true or false
+   */
+  static boolean get(final long[] mask, final int id) {
+    return (mask[id / WORD_SIZE] & (1L << (id % WORD_SIZE))) != 0;
+  }
+
+  /**
+   * Returns whether the two masks have at least one id in common.
+   *
+   * @param mask1 the first mask
+   * @param mask2 the second mask
+   * @return true or false
+   */
+  static boolean intersects(final long[] mask1, final long[] mask2) {
+    for (int i = 0; i < mask1.length; i++) {
+      if ((mask1[i] & mask2[i]) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns whether all the ids of <code>subset</code> are contained into <code>mask</code>.
+   *
+   * @param mask   the mask
+   * @param subset the ids that must be contained into the mask
+   * @return true or false
+   */
+  static boolean containsAll(final long[] mask, final long[] subset) {
+    for (int i = 0; i < mask.length; i++) {
+      if ((subset[i] & ~mask[i]) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of ids the two masks have in common.
+   *
+   * @param mask1 the first mask
+   * @param mask2 the second mask
+   * @return the number of ids contained into both the masks
+   */
+  static int countCommon(final long[] mask1, final long[] mask2) {
+    int count = 0;
+    for (int i = 0; i < mask1.length; i++) {
+      count += Long.bitCount(mask1[i] & mask2[i]);
+    }
+    return count;
+  }
+}
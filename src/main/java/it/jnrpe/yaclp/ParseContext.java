@@ -0,0 +1,366 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package it.jnrpe.yaclp;
+
+import java.util.Arrays;
+
+/**
+ * State of a single parse call.
+ * The tokens are classified once, left to right, against the {@link OptionIndex} of the parser:
+ * after that, every 'is this option present' question is answered without scanning the command
+ * line again.
+ * Contexts are kept per thread by the parser and reset at each call, so that once the buffers
+ * are large enough parsing does not allocate.
+ */
+final class ParseContext {
+
+  /**
+   * The index used to classify the tokens.
+   */
+  private final OptionIndex index;
+
+  /**
+   * Scratch buffer used to normalize the command lines received by the parser.
+   */
+  private final Tokens ownTokens = new Tokens();
+
+  /**
+   * The command line being parsed. It is either {@link #ownTokens} or, for command sub-parsers,
+   * the tokens of the parent parser.
+   */
+  private Tokens tokens;
+
+  /**
+   * Position of the first token to be parsed.
+   */
+  private int from;
+
+  /**
+   * For each token naming an option, the position of the next token naming the same option or
+   * {@link OptionIndex#NOT_FOUND}.
+   */
+  private int[] nextOccurrence = new int[0];
+
+  /**
+   * For each option id, the number of occurrences inside the command line.
+   */
+  private final int[] occurrences;
+
+  /**
+   * Mask of the options (and groups) present in the command line.
+   */
+  private final long[] presentMask;
+
+  /**
+   * For each option id, the position of the first token naming it or
+   * {@link OptionIndex#NOT_FOUND}.
+   */
+  private final int[] firstOccurrence;
+
+  /**
+   * For each option id, the position of the last token naming it or
+   * {@link OptionIndex#NOT_FOUND}.
+   */
+  private final int[] lastOccurrence;
+
+  /**
+   * Tokenizer used to split command lines received as a single string. Built on first use.
+   */
+  private ShellTokenizer tokenizer;
+
+  /**
+   * Reader used to expand the argument files. Built on first use.
+   */
+  private ArgumentFileReader argumentFileReader;
+
+  /**
+   * Whether this context is currently used by a parse call.
+   */
+  private boolean inUse = false;
+
+  /**
+   * Builds the context.
+   *
+   * @param index the index of the options managed by the parser
+   */
+  ParseContext(final OptionIndex index) {
+    this.index = index;
+    this.occurrences = new int[index.size()];
+    this.presentMask = OptionMask.create(index.size());
+    this.firstOccurrence = new int[index.size()];
+    this.lastOccurrence = new int[index.size()];
+  }
+
+  /**
+   * Prepares the context for a new command line: the command line is normalized and all the
+   * tokens are classified. The occurrences of each option are chained together, so that each
+   * option can visit all its occurrences without scanning the whole command line.
+   *
+   * @param args the command line
+   */
+  void reset(final String[] args) {
+    ownTokens.reset(args);
+    reset(ownTokens, 0);
+  }
+
+  /**
+   * Prepares the context for a new command line split by a {@link ShellTokenizer}. The words are
+   * appended to the tokens without building an intermediate array.
+   *
+   * @param words the words of the command line
+   */
+  void reset(final ShellTokenizer words) {
+    ownTokens.reset(words);
+    reset(ownTokens, 0);
+  }
+
+  /**
+   * Prepares the context for a new command line, replacing each <code>@file</code> argument with
+   * the arguments contained into the file. The arguments read from the files are appended to the
+   * command line as soon as they are tokenized. An argument starting with <code>@@</code> is
+   * kept, without the first <code>@</code>.
+   *
+   * @param args the command line
+   * @throws ParsingException if an argument file can't be read
+   */
+  void expand(final String[] args) throws ParsingException {
+    if (argumentFileReader == null) {
+      argumentFileReader = new ArgumentFileReader();
+    }
+
+    ownTokens.reset();
+    for (String arg : args) {
+      if (arg.length() < 2 || arg.charAt(0) != '@') {
+        ownTokens.append(arg);
+      } else if (arg.charAt(1) == '@') {
+        ownTokens.append(arg.substring(1));
+      } else {
+        argumentFileReader.read(arg.substring(1), ownTokens::append);
+      }
+    }
+    reset(ownTokens, 0);
+  }
+
+  /**
+   * Prepares the context to continue parsing already normalized tokens (for example, the tokens
+   * following a command) starting from the given position. Tokens are neither copied nor
+   * normalized again.
+   *
+   * @param parentTokens the tokens to be parsed
+   * @param start        position of the first token to be parsed
+   */
+  void reset(final Tokens parentTokens, final int start) {
+    begin(parentTokens, start);
+    for (int i = start; i < tokens.size(); i++) {
+      classify(i);
+    }
+  }
+
+  /**
+   * Prepares the context for a new command line without classifying any token. Tokens must then
+   * be classified one by one, in order, through {@link #classify(int)}.
+   *
+   * @param parentTokens the tokens to be parsed
+   * @param start        position of the first token to be parsed
+   */
+  void begin(final Tokens parentTokens, final int start) {
+    this.tokens = parentTokens;
+    this.from = start;
+    Arrays.fill(occurrences, 0);
+    Arrays.fill(presentMask, 0);
+    Arrays.fill(firstOccurrence, OptionIndex.NOT_FOUND);
+    Arrays.fill(lastOccurrence, OptionIndex.NOT_FOUND);
+
+    if (nextOccurrence.length < tokens.size()) {
+      nextOccurrence = new int[tokens.size()];
+    }
+  }
+
+  /**
+   * Classifies the token at the given position, chaining it to the previous occurrences of the
+   * same option.
+   *
+   * @param pos the token position
+   * @return the id of the option named by the token or {@link OptionIndex#NOT_FOUND}
+   */
+  int classify(final int pos) {
+    if (nextOccurrence.length <= pos) {
+      nextOccurrence = Arrays.copyOf(nextOccurrence, Math.max(pos + 1, nextOccurrence.length * 2));
+    }
+
+    int id = index.size() == 0 ? OptionIndex.NOT_FOUND : index.lookup(tokens, pos);
+    nextOccurrence[pos] = OptionIndex.NOT_FOUND;
+    if (id != OptionIndex.NOT_FOUND) {
+      if (lastOccurrence[id] == OptionIndex.NOT_FOUND) {
+        firstOccurrence[id] = pos;
+      } else {
+        nextOccurrence[lastOccurrence[id]] = pos;
+      }
+      lastOccurrence[id] = pos;
+      count(id);
+    }
+    return id;
+  }
+
+  /**
+   * Marks this context as used by a parse call.
+   *
+   * @return <code>false</code> if the context was already in use
+   */
+  boolean acquire() {
+    if (inUse) {
+      return false;
+    }
+    inUse = true;
+    return true;
+  }
+
+  /**
+   * Releases the context, dropping any reference to the parsed command line.
+   */
+  void release() {
+    ownTokens.clear();
+    tokens = null;
+    inUse = false;
+  }
+
+  /**
+   * Increments the occurrence counter of the option and of all its enclosing groups.
+   *
+   * @param id the option id
+   */
+  private void count(final int id) {
+    for (int current = id; current != OptionIndex.NOT_FOUND; current = index.getGroupId(current)) {
+      occurrences[current]++;
+      OptionMask.set(presentMask, current);
+    }
+  }
+
+  /**
+   * Returns the tokenizer to be used to split command lines received as a single string.
+   *
+   * @return the tokenizer
+   */
+  ShellTokenizer getTokenizer() {
+    if (tokenizer == null) {
+      tokenizer = new ShellTokenizer();
+    }
+    return tokenizer;
+  }
+
+  /**
+   * Returns the command line being parsed.
+   *
+   * @return the command line being parsed
+   */
+  Tokens getTokens() {
+    return tokens;
+  }
+
+  /**
+   * Returns the index used to classify the tokens.
+   *
+   * @return the index used to classify the tokens
+   */
+  OptionIndex getIndex() {
+    return index;
+  }
+
+  /**
+   * Returns whether at least one of the options in the mask is present.
+   *
+   * @param mask the options to be checked
+   * @return true or false
+   */
+  boolean isAnyPresent(final long[] mask) {
+    return OptionMask.intersects(presentMask, mask);
+  }
+
+  /**
+   * Returns whether all the options in the mask are present.
+   *
+   * @param mask the options to be checked
+   * @return true or false
+   */
+  boolean isAllPresent(final long[] mask) {
+    return OptionMask.containsAll(presentMask, mask);
+  }
+
+  /**
+   * Returns how many of the options in the mask are present.
+   *
+   * @param mask the options to be checked
+   * @return the number of present options
+   */
+  int countPresent(final long[] mask) {
+    return OptionMask.countCommon(presentMask, mask);
+  }
+
+  /**
+   * Returns the position of the first token to be parsed.
+   *
+   * @return the position of the first token to be parsed
+   */
+  int getFrom() {
+    return from;
+  }
+
+  /**
+   * Returns the position of the first token naming the given option.
+   *
+   * @param option the option
+   * @return the token position or {@link OptionIndex#NOT_FOUND}
+   */
+  int firstOccurrence(final AbstractOption option) {
+    int id = index.idOf(option);
+    return id == OptionIndex.NOT_FOUND ? OptionIndex.NOT_FOUND : firstOccurrence[id];
+  }
+
+  /**
+   * Returns the position of the next token naming the same option as the token at the given
+   * position.
+   *
+   * @param pos the position of a token naming an option
+   * @return the token position or {@link OptionIndex#NOT_FOUND}
+   */
+  int nextOccurrence(final int pos) {
+    return nextOccurrence[pos];
+  }
+
+  /**
+   * Returns how many times the option (or, for groups, any of the grouped options) is present in
+   * the command line.
+   *
+   * @param option the option to be checked
+   * @return the number of occurrences
+   */
+  int getOccurrences(final AbstractOption option) {
+    int id = index.idOf(option);
+    return id == OptionIndex.NOT_FOUND ? 0 : occurrences[id];
+  }
+
+  /**
+   * Returns whether the option (or, for groups, any of the grouped options) is present in the
+   * command line.
+   *
+   * @param option the option to be checked
+   * @return true or false
+   */
+  boolean isPresent(final AbstractOption option) {
+    return getOccurrences(option) > 0;
+  }
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package it.jnrpe.yaclp;
+
+/**
+ * Outcome of the parsing of one of the command lines passed to
+ * {@link Parser#parseAll(java.util.List, int)}: either the parsed command line or the parsing
+ * error.
+ */
+public final class ParseResult {
+
+  /**
+   * The parsed command line, <code>null</code> on error.
+   */
+  private final CommandLine commandLine;
+
+  /**
+   * The parsing error, <code>null</code> on success.
+   */
+  private final ParsingException error;
+
+  /**
+   * Builds a new result.
+   *
+   * @param commandLine the parsed command line
+   * @param error       the parsing error
+   */
+  private ParseResult(final CommandLine commandLine, final ParsingException error) {
+    this.commandLine = commandLine;
+    this.error = error;
+  }
+
+  /**
+   * Builds a successful result.
+   *
+   * @param commandLine the parsed command line
+   * @return the result
+   */
+  static ParseResult success(final CommandLine commandLine) {
+    return new ParseResult(commandLine, null);
+  }
+
+  /**
+   * Builds a failed result.
+   *
+   * @param error the parsing error
+   * @return the result
+   */
+  static ParseResult failure(final ParsingException error) {
+    return new ParseResult(null, error);
+  }
+
+  /**
+   * Returns whether the command line has been successfully parsed.
+   *
+   * @return true or false
+   */
+  public boolean isSuccess() {
+    return error == null;
+  }
+
+  /**
+   * Returns the parsed command line.
+   *
+   * @return the parsed command line or <code>null</code> if parsing failed
+   */
+  public CommandLine getCommandLine() {
+    return commandLine;
+  }
+
+  /**
+   * Returns the parsing error.
+   *
+   * @return the parsing error or <code>null</code> if parsing succeeded
+   */
+  public ParsingException getError() {
+    return error;
+  }
+}
@@ -16,49 +16,132 @@
 
 package it.jnrpe.yaclp;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Parse a command line.
+ * Parsers are immutable and thread safe: a single instance can be used to parse many command
+ * lines concurrently, since all the state of a parse call is kept in per-call objects.
  */
 public class Parser {
 
+  /**
+   * Number of tasks each worker of a batch parse should get, to balance the load when command
+   * lines have different lengths.
+   */
+  private static final int BATCH_SPLITS = 4;
+
   /**
    * List of commands managed by this parser.
    */
-  private final List<Command> commands = new ArrayList<>();
+  private final List<Command> commands;
   /**
    * List of options managed by this parser.
    */
-  private List<IOption> options = new ArrayList<>();
+  private final List<IOption> options;
+
+  /**
+   * The top level options managed by this parser, in the order they must be consumed.
+   */
+  private final AbstractOption[] topLevelOptions;
+
+  /**
+   * The commands managed by this parser, keyed by short and long name.
+   */
+  private final Map<String, Command> commandsByName = new HashMap<>();
 
   /**
-   * Constructor.
+   * Comma separated list of the command names, used for error messages.
    */
-  Parser() {
+  private final String commandNames;
+
+  /**
+   * Compiled index of the options managed by this parser.
+   */
+  private final OptionIndex index;
+
+  /**
+   * Per thread parsing scratch buffers.
+   */
+  private final ThreadLocal<ParseContext> contexts;
+
+  /**
+   * Whether arguments starting with <code>@</code> must be replaced with the content of the
+   * named file.
+   */
+  private final boolean argumentFiles;
+
+  /**
+   * Builds, compiles and freezes the parser.
+   * Options can be simple options ({@link Option}) or mutually exclusive options
+   * ({@link MutuallyExclusiveOptions}). After the constructor completes, neither the parser nor
+   * its options can be changed anymore: since all the state is reachable only through final
+   * fields, a built parser can be shared between threads without any synchronization.
+   *
+   * @param options  the options managed by this parser
+   * @param commands the commands managed by this parser
+   */
+  Parser(final List<IOption> options, final List<Command> commands) {
+    this(options, commands, false);
   }
 
   /**
-   * Adds an option to the list of supported options.
-   * It can be a simple option ({@link Option}) or a mutually exclusive option
-   * ({@link MutuallyExclusiveOptions})
+   * Builds, compiles and freezes the parser.
    *
-   * @param option the option to be added to the parser
+   * @param options       the options managed by this parser
+   * @param commands      the commands managed by this parser
+   * @param argumentFiles whether <code>@file</code> arguments must be expanded
    */
-  void addOption(final IOption option) {
-    this.options.add(option);
+  Parser(final List<IOption> options, final List<Command> commands,
+         final boolean argumentFiles) {
+    this.argumentFiles = argumentFiles;
+    this.options = Collections.unmodifiableList(new ArrayList<>(options));
+    this.commands = Collections.unmodifiableList(new ArrayList<>(commands));
+    this.topLevelOptions =
+        this.options.toArray(new AbstractOption[this.options.size()]);
+
+    List<String> names = new ArrayList<>(this.commands.size());
+    for (Command command : this.commands) {
+      registerCommand(command.getShortName(), command);
+      registerCommand(command.getLongName(), command);
+      names.add(command.getLongName());
+    }
+    this.commandNames = String.join(",", names);
+    this.index = new OptionIndex(this.options);
+
+    for (int id = 0; id < index.size(); id++) {
+      index.getOption(id).freeze();
+    }
+
+    final OptionIndex compiledIndex = this.index;
+    this.contexts = ThreadLocal.withInitial(() -> new ParseContext(compiledIndex));
   }
 
   /**
-   * Adds a new command to this parser.
+   * Hashes the command name.
    *
-   * @param command the command to be added
+   * @param name    the command name
+   * @param command the command
    */
-  void addCommand(final Command command) {
-    this.commands.add(command);
+  private void registerCommand(final String name, final Command command) {
+    Command previous = commandsByName.put(name, command);
+    if (previous != null && previous != command) {
+      throw new IllegalArgumentException(
+          String.format("Command name [%s] is used by more than one command", name));
+    }
   }
 
   /**
@@ -67,7 +150,7 @@ public class Parser {
    * @return the list of options managed by this parser.
    */
   List<IOption> getOptions() {
-    return Collections.unmodifiableList(options);
+    return options;
   }
 
   /**
@@ -76,11 +159,18 @@ public class Parser {
    * @return the list of commands managed by this parser.
    */
   List<Command> getCommands() {
-    return Collections.unmodifiableList(commands);
+    return commands;
   }
 
   /**
    * Parses the command line and returns a {@link CommandLine} object if the parsing succeeds.
+   * If argument files are enabled (see
+   * {@link ParserBuilder.OptionsBasedParserBuilder#withArgumentFiles(boolean)}), each
+   * <code>@file</code> argument is replaced with the arguments contained into the file, as done
+   * by javac and by the java launcher: arguments are separated by white spaces, can be quoted
+   * with single or double quotes and <code>#</code> starts a comment. The file is tokenized
+   * straight from a memory mapped buffer and its arguments are not expanded again. Use
+   * <code>@@</code> to pass an argument starting with <code>@</code>.
    *
    * @param args the command line to be parsed
    * @return the parsed command line
@@ -88,7 +178,192 @@ public class Parser {
    */
   public CommandLine parse(final String[] args) throws ParsingException {
     CommandLine res = new CommandLine();
-    return parse(args, res);
+    return parseInto(args, res);
+  }
+
+  /**
+   * Parses the command line storing the result inside a caller owned {@link CommandLine}.
+   * The command line object is reset before parsing, so the same instance can be reused for many
+   * calls: together with the per thread scratch buffers kept by the parser, this makes steady
+   * state parsing (almost) allocation free.
+   *
+   * @param args the command line to be parsed
+   * @param cl   the result object. Its previous content is discarded.
+   * @return the result object
+   * @throws ParsingException if the command line is not valid according to the parser configuration
+   */
+  public CommandLine parse(final String[] args, final CommandLine cl) throws ParsingException {
+    cl.reset();
+    return parseInto(args, cl);
+  }
+
+  /**
+   * Parses a command line contained into a single string. The string is split into arguments
+   * following the POSIX shell quoting rules (see {@link ShellTokenizer}) and must not contain
+   * the program name. The words are appended straight to the parser tokens, with no intermediate
+   * array; a string is still built for each word, since option values are exposed as strings.
+   *
+   * @param commandLine the command line to be parsed
+   * @return the parsed command line
+   * @throws ParsingException if the command line is not valid according to the parser configuration
+   */
+  public CommandLine parse(final CharSequence commandLine) throws ParsingException {
+    return parseInto(commandLine, new CommandLine());
+  }
+
+  /**
+   * Parses a command line contained into a single string storing the result inside a caller
+   * owned {@link CommandLine}. The string is split with a per thread {@link ShellTokenizer}.
+   *
+   * @param commandLine the command line to be parsed
+   * @param cl          the result object. Its previous content is discarded.
+   * @return the result object
+   * @throws ParsingException if the command line is not valid according to the parser configuration
+   */
+  public CommandLine parse(final CharSequence commandLine, final CommandLine cl)
+      throws ParsingException {
+    cl.reset();
+    return parseInto(commandLine, cl);
+  }
+
+  /**
+   * Parses a command line contained into a region of a char array, as
+   * {@link #parse(CharSequence)} does. The array is tokenized in place.
+   *
+   * @param text   the command line to be parsed
+   * @param offset offset of the first char
+   * @param length number of chars
+   * @return the parsed command line
+   * @throws ParsingException if the command line is not valid according to the parser configuration
+   */
+  public CommandLine parse(final char[] text, final int offset, final int length)
+      throws ParsingException {
+    return parseInto(text, offset, length, new CommandLine());
+  }
+
+  /**
+   * Parses a command line contained into a region of a char array storing the result inside a
+   * caller owned {@link CommandLine}.
+   *
+   * @param text   the command line to be parsed
+   * @param offset offset of the first char
+   * @param length number of chars
+   * @param cl     the result object. Its previous content is discarded.
+   * @return the result object
+   * @throws ParsingException if the command line is not valid according to the parser configuration
+   */
+  public CommandLine parse(final char[] text, final int offset, final int length,
+                           final CommandLine cl) throws ParsingException {
+    cl.reset();
+    return parseInto(text, offset, length, cl);
+  }
+
+  /**
+   * Parses a command line contained into the remaining bytes of a buffer, as
+   * {@link #parse(CharSequence)} does. The buffer position is not changed. US-ASCII and
+   * ISO-8859-1 buffers are tokenized in place, other charsets are decoded once (see
+   * {@link ShellTokenizer#tokenize(ByteBuffer, Charset)}).
+   *
+   * @param bytes   the command line to be parsed
+   * @param charset the charset of the command line
+   * @return the parsed command line
+   * @throws ParsingException if the command line is not valid according to the parser configuration
+   */
+  public CommandLine parse(final ByteBuffer bytes, final Charset charset)
+      throws ParsingException {
+    return parseInto(bytes, charset, new CommandLine());
+  }
+
+  /**
+   * Parses a command line contained into the remaining bytes of a buffer storing the result
+   * inside a caller owned {@link CommandLine}.
+   *
+   * @param bytes   the command line to be parsed
+   * @param charset the charset of the command line
+   * @param cl      the result object. Its previous content is discarded.
+   * @return the result object
+   * @throws ParsingException if the command line is not valid according to the parser configuration
+   */
+  public CommandLine parse(final ByteBuffer bytes, final Charset charset, final CommandLine cl)
+      throws ParsingException {
+    cl.reset();
+    return parseInto(bytes, charset, cl);
+  }
+
+  /**
+   * Splits the command line and parses it.
+   *
+   * @param commandLine the command line
+   * @param cl          the result object
+   * @return the result object
+   * @throws ParsingException on any error parsing the command line
+   */
+  private CommandLine parseInto(final CharSequence commandLine, final CommandLine cl)
+      throws ParsingException {
+    ParseContext ctx = acquireContext();
+    try {
+      return parseWords(ctx, ctx.getTokenizer().tokenize(commandLine), cl);
+    } finally {
+      ctx.release();
+    }
+  }
+
+  /**
+   * Splits the command line contained into a char array region and parses it.
+   *
+   * @param text   the command line
+   * @param offset offset of the first char
+   * @param length number of chars
+   * @param cl     the result object
+   * @return the result object
+   * @throws ParsingException on any error parsing the command line
+   */
+  private CommandLine parseInto(final char[] text, final int offset, final int length,
+                                final CommandLine cl) throws ParsingException {
+    ParseContext ctx = acquireContext();
+    try {
+      return parseWords(ctx, ctx.getTokenizer().tokenize(text, offset, length), cl);
+    } finally {
+      ctx.release();
+    }
+  }
+
+  /**
+   * Splits the command line contained into a byte buffer and parses it.
+   *
+   * @param bytes   the command line
+   * @param charset the charset of the command line
+   * @param cl      the result object
+   * @return the result object
+   * @throws ParsingException on any error parsing the command line
+   */
+  private CommandLine parseInto(final ByteBuffer bytes, final Charset charset,
+                                final CommandLine cl) throws ParsingException {
+    ParseContext ctx = acquireContext();
+    try {
+      return parseWords(ctx, ctx.getTokenizer().tokenize(bytes, charset), cl);
+    } finally {
+      ctx.release();
+    }
+  }
+
+  /**
+   * Parses the words of a tokenized command line.
+   *
+   * @param ctx   the parsing context
+   * @param words the words
+   * @param cl    the result object
+   * @return the result object
+   * @throws ParsingException on any error parsing the command line
+   */
+  private CommandLine parseWords(final ParseContext ctx, final ShellTokenizer words,
+                                 final CommandLine cl) throws ParsingException {
+    if (argumentFiles) {
+      ctx.expand(words.toArray());
+    } else {
+      ctx.reset(words);
+    }
+    return parse(ctx, cl);
   }
 
   /**
@@ -100,64 +375,340 @@ public class Parser {
    * @return the result object
    * @throws ParsingException on any error parsing the command line
    */
-  CommandLine parse(final String[] args, final CommandLine cl) throws ParsingException {
-    List<String> argsList = normalize(args);
+  CommandLine parseInto(final String[] args, final CommandLine cl) throws ParsingException {
+    ParseContext ctx = acquireContext();
+    try {
+      reset(ctx, args);
+      return parse(ctx, cl);
+    } finally {
+      ctx.release();
+    }
+  }
 
-    if (commands != null && !commands.isEmpty()) {
-      boolean commandFound = false;
+  /**
+   * Prepares the context for a new command line, expanding the argument files if they are
+   * enabled.
+   *
+   * @param ctx  the parsing context
+   * @param args the command line
+   * @throws ParsingException if an argument file can't be read
+   */
+  private void reset(final ParseContext ctx, final String[] args) throws ParsingException {
+    if (argumentFiles && hasArgumentFiles(args)) {
+      ctx.expand(args);
+    } else {
+      ctx.reset(args);
+    }
+  }
 
-      for (Command command : commands) {
-        if (command.isPresent(argsList)) {
-          commandFound = true;
-          command.consume(argsList, cl);
-        }
+  /**
+   * Returns whether the command line references any argument file.
+   *
+   * @param args the command line
+   * @return <code>true</code> if an argument starts with <code>@</code>
+   */
+  private static boolean hasArgumentFiles(final String[] args) {
+    for (String arg : args) {
+      if (arg.length() > 1 && arg.charAt(0) == '@') {
+        return true;
       }
+    }
+    return false;
+  }
 
-      if (!commandFound) {
-        // FIXME: improve error message
-        List<String> commandNames = new ArrayList<>(commands.size());
-        commands.forEach(command -> commandNames.add(command.getLongName()));
+  /**
+   * Continues parsing already normalized tokens starting from the given position. Used by
+   * commands to parse their own options without copying or normalizing the command line again.
+   *
+   * @param tokens the tokens to be parsed
+   * @param from   position of the first token to be parsed
+   * @param cl     the result object
+   * @return the result object
+   * @throws ParsingException on any error parsing the command line
+   */
+  CommandLine parseFrom(final Tokens tokens, final int from, final CommandLine cl)
+      throws ParsingException {
+    ParseContext ctx = acquireContext();
+    try {
+      ctx.reset(tokens, from);
+      return parse(ctx, cl);
+    } finally {
+      ctx.release();
+    }
+  }
 
-        throw new ParsingException(
-            "At least one of [%s] must be specified", String.join(",", commandNames));
-      }
+  /**
+   * Returns the parsing context of the current thread.
+   *
+   * @return the parsing context to be used for a new parse call. It must be released.
+   */
+  private ParseContext acquireContext() {
+    ParseContext ctx = contexts.get();
+    if (!ctx.acquire()) {
+      // Reentrant call (for example from inside a validator): use a private context
+      ctx = new ParseContext(index);
+      ctx.acquire();
     }
+    return ctx;
+  }
+
+  /**
+   * Parses the command line without waiting for slow validations.
+   * The command line is parsed on the calling thread, except for the
+   * {@link it.jnrpe.yaclp.validators.IAsyncArgumentValidator} validators (for example the
+   * {@link it.jnrpe.yaclp.validators.FileValidator}): they are all started when parsing
+   * completes, so that checks on different values run concurrently on the default executor
+   * (virtual threads when running on Java 21 or later, a bounded thread pool otherwise).
+   *
+   * @param args the command line to be parsed
+   * @return a future completed with the parsed command line or, on error, with a
+   *     {@link ParsingException}
+   */
+  public CompletableFuture<CommandLine> parseAsync(final String[] args) {
+    return parseAsync(args, AsyncExecutors.defaultExecutor());
+  }
+
+  /**
+   * Parses the command line running the slow validations on the given executor.
+   * Errors found while parsing are reported before the asynchronous validations are started.
+   * If more than one asynchronous validation fails, the error for the value that comes first in
+   * the command line is reported.
+   *
+   * @param args     the command line to be parsed
+   * @param executor the executor used by the asynchronous validators
+   * @return a future completed with the parsed command line or, on error, with a
+   *     {@link ParsingException}
+   */
+  public CompletableFuture<CommandLine> parseAsync(final String[] args, final Executor executor) {
+    final CommandLine cl = new CommandLine();
+    final AsyncValidations validations = new AsyncValidations();
 
-    for (IOption opt : options) {
-      ((AbstractOption) opt).consume(argsList, cl);
+    cl.setAsyncValidations(validations);
+    try {
+      parseInto(args, cl);
+    } catch (ParsingException e) {
+      CompletableFuture<CommandLine> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    } finally {
+      cl.setAsyncValidations(null);
     }
 
-    if (!argsList.isEmpty()) {
-      throw new ParsingException("Unexpected tokens: " + argsList);
+    return validations.run(executor).thenApply(ignored -> cl);
+  }
+
+  /**
+   * Parses many command lines in parallel, using a dedicated fork join pool with the given
+   * parallelism level.
+   *
+   * @param argvs       the command lines to be parsed
+   * @param parallelism the maximum number of threads to be used
+   * @return the results, in the same order as the command lines
+   */
+  public List<ParseResult> parseAll(final List<String[]> argvs, final int parallelism) {
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      return parseAll(argvs, pool);
+    } finally {
+      pool.shutdown();
     }
+  }
 
-    return cl;
+  /**
+   * Parses many command lines in parallel, using a dedicated fork join pool with the given
+   * parallelism level.
+   * The whole stream is collected into a list before parsing starts: it must be finite and all
+   * its command lines are kept in memory until the batch completes.
+   *
+   * @param argvs       the command lines to be parsed
+   * @param parallelism the maximum number of threads to be used
+   * @return the results, in the same order as the command lines
+   */
+  public List<ParseResult> parseAll(final Stream<String[]> argvs, final int parallelism) {
+    return parseAll(argvs.collect(Collectors.toList()), parallelism);
   }
 
   /**
-   * Separates options from arguments when they are attached (for example
-   * -Dkey=value becomes -D key=value), so that
-   * they can be managed as all the other options.
+   * Parses many command lines in parallel using the given fork join pool.
+   * Each command line is parsed as with {@link #parse(String[])}: parsing errors don't stop the
+   * batch, they are returned inside the result of the failed command line. Unexpected runtime
+   * exceptions, for example thrown by a custom validator, are reported the same way as a
+   * {@link ParsingException} whose cause is the original exception.
    *
-   * @param args the command line
-   * @return a List contained the command line (options and arguments)
+   * @param argvs the command lines to be parsed
+   * @param pool  the pool to be used
+   * @return the results, in the same order as the command lines
    */
-  private List<String> normalize(final String[] args) {
-    List<String> res = new LinkedList<>();
+  public List<ParseResult> parseAll(final List<String[]> argvs, final ForkJoinPool pool) {
+    String[][] input = argvs.toArray(new String[argvs.size()][]);
+    ParseResult[] results = new ParseResult[input.length];
+    int batchSize = Math.max(1, input.length / (pool.getParallelism() * BATCH_SPLITS));
 
-    for (String arg : args) {
+    pool.invoke(new BatchParseTask(this, input, results, 0, input.length, batchSize));
+    return Collections.unmodifiableList(Arrays.asList(results));
+  }
 
-      if (arg.length() == 1
-          || arg.startsWith("--")
-          || (arg.startsWith("-") && arg.length() == 2) || !arg.startsWith("-")) {
-        res.add(arg);
-        continue;
-      }
+  /**
+   * Starts an incremental parse: arguments are passed to the returned session one by one, as soon
+   * as they are available, and are matched against the options while they arrive.
+   *
+   * @return a new parsing session
+   */
+  public ParserSession newSession() {
+    return new ParserSession(this);
+  }
+
+  /**
+   * Returns whether this parser manages commands.
+   *
+   * @return true or false
+   */
+  boolean hasCommands() {
+    return !commandsByName.isEmpty();
+  }
 
-      res.add("-" + arg.substring(1, 2));
-      res.add(arg.substring(2));
+  /**
+   * Returns the command named by the token at the given position.
+   *
+   * @param tokens the command line
+   * @param pos    position of the command name
+   * @return the command
+   * @throws ParsingException if the token does not name a command
+   */
+  Command lookupCommand(final Tokens tokens, final int pos) throws ParsingException {
+    Command command = null;
+    if (pos < tokens.size() && !tokens.isConsumed(pos)) {
+      command = commandsByName.get(tokens.get(pos));
     }
 
-    return res;
+    if (command == null) {
+      // FIXME: improve error message
+      throw new ParsingException("At least one of [%s] must be specified", commandNames);
+    }
+    return command;
+  }
+
+  /**
+   * Returns the compiled index of the options managed by this parser.
+   *
+   * @return the compiled index of the options managed by this parser
+   */
+  OptionIndex getIndex() {
+    return index;
+  }
+
+  /**
+   * Parses the command line contained into the context.
+   *
+   * @param ctx the parsing context
+   * @param cl  the result object
+   * @return the result object
+   * @throws ParsingException on any error parsing the command line
+   */
+  CommandLine parse(final ParseContext ctx, final CommandLine cl) throws ParsingException {
+    Tokens tokens = ctx.getTokens();
+    int from = ctx.getFrom();
+
+    if (hasCommands()) {
+      lookupCommand(tokens, from).consume(tokens, from, cl);
+    }
+
+    for (AbstractOption opt : topLevelOptions) {
+      opt.consume(ctx, cl);
+    }
+
+    if (tokens.nextUnconsumed(from) < tokens.size()) {
+      throw new ParsingException("Unexpected tokens: " + tokens.getUnconsumed(from));
+    }
+
+    return cl;
+  }
+
+  /**
+   * Parses a range of a batch of command lines, splitting it until it is small enough.
+   */
+  private static final class BatchParseTask extends RecursiveAction {
+
+    /**
+     * Serial version.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The parser.
+     */
+    private final Parser parser;
+
+    /**
+     * All the command lines of the batch.
+     */
+    private final String[][] input;
+
+    /**
+     * All the results of the batch.
+     */
+    private final ParseResult[] results;
+
+    /**
+     * First command line of the range.
+     */
+    private final int from;
+
+    /**
+     * End of the range (exclusive).
+     */
+    private final int to;
+
+    /**
+     * Maximum number of command lines parsed without splitting the range.
+     */
+    private final int batchSize;
+
+    /**
+     * Builds the task.
+     *
+     * @param parser    the parser
+     * @param input     all the command lines of the batch
+     * @param results   all the results of the batch
+     * @param from      first command line of the range
+     * @param to        end of the range (exclusive)
+     * @param batchSize maximum number of command lines parsed without splitting the range
+     */
+    private BatchParseTask(final Parser parser,
+                           final String[][] input,
+                           final ParseResult[] results,
+                           final int from,
+                           final int to,
+                           final int batchSize) {
+      this.parser = parser;
+      this.input = input;
+      this.results = results;
+      this.from = from;
+      this.to = to;
+      this.batchSize = batchSize;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > batchSize) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new BatchParseTask(parser, input, results, from, middle, batchSize),
+            new BatchParseTask(parser, input, results, middle, to, batchSize));
+        return;
+      }
+
+      for (int i = from; i < to; i++) {
+        try {
+          results[i] = ParseResult.success(parser.parse(input[i]));
+        } catch (ParsingException e) {
+          results[i] = ParseResult.failure(e);
+        } catch (RuntimeException e) {
+          ParsingException error =
+              new ParsingException("Unexpected error parsing the command line: %s", e);
+          error.initCause(e);
+          results[i] = ParseResult.failure(error);
+        }
+      }
+    }
   }
 }
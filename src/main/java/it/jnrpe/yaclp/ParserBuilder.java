@@ -18,6 +18,7 @@ package it.jnrpe.yaclp;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -59,6 +60,11 @@ public final class ParserBuilder {
      */
     private List<Command> commands = new ArrayList<>();
 
+    /**
+     * Whether <code>@file</code> arguments must be expanded.
+     */
+    private boolean argumentFiles = false;
+
     /**
      * Constructor.
      */
@@ -89,15 +95,27 @@ public final class ParserBuilder {
       return this;
     }
 
+    /**
+     * Enables the expansion of argument files: each argument in the form <code>@file</code> is
+     * replaced with the arguments contained into the file, split following the javac conventions
+     * (see {@link Parser#parse(String[])}). Disabled by default, since command lines received
+     * from remote clients must not be allowed to read local files.
+     *
+     * @param argumentFiles <code>true</code> to expand the argument files
+     * @return this builder
+     */
+    public CommandBasedParserBuilder withArgumentFiles(final boolean argumentFiles) {
+      this.argumentFiles = argumentFiles;
+      return this;
+    }
+
     /**
      * Builds the parser.
      *
      * @return return the newly built parser
      */
     public Parser build() {
-      Parser parser = new Parser();
-      commands.forEach(parser::addCommand);
-      return parser;
+      return new Parser(Collections.emptyList(), commands, argumentFiles);
     }
   }
 
@@ -111,6 +129,11 @@ public final class ParserBuilder {
      */
     private List<IOption> options = new ArrayList<>();
 
+    /**
+     * Whether <code>@file</code> arguments must be expanded.
+     */
+    private boolean argumentFiles = false;
+
     /**
      * Constructor.
      */
@@ -141,15 +164,27 @@ public final class ParserBuilder {
       return this;
     }
 
+    /**
+     * Enables the expansion of argument files: each argument in the form <code>@file</code> is
+     * replaced with the arguments contained into the file, split following the javac conventions
+     * (see {@link Parser#parse(String[])}). Disabled by default, since command lines received
+     * from remote clients must not be allowed to read local files.
+     *
+     * @param argumentFiles <code>true</code> to expand the argument files
+     * @return this builder
+     */
+    public OptionsBasedParserBuilder withArgumentFiles(final boolean argumentFiles) {
+      this.argumentFiles = argumentFiles;
+      return this;
+    }
+
     /**
      * Builds the parser.
      *
      * @return the newly built parser
      */
     public Parser build() {
-      Parser parser = new Parser();
-      options.forEach(parser::addOption);
-      return parser;
+      return new Parser(options, Collections.emptyList(), argumentFiles);
     }
   }
 }
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package it.jnrpe.yaclp;
+
+import java.util.Collections;
+
+/**
+ * Incremental parsing of a command line whose arguments arrive one at a time (for example, from a
+ * network connection).
+ * Each argument is normalized and matched against the options as soon as it is fed, so that
+ * errors that don't depend on the rest of the command line (unknown options or commands,
+ * repeated or incompatible options) are reported immediately. The remaining checks and the
+ * values extraction are performed by {@link #finish()}, with the same rules used by
+ * {@link Parser#parse(String[])}.
+ * <p>
+ * A session is not thread safe and can be used for a single command line: after
+ * {@link #finish()} or after the first error it can't be used anymore.
+ */
+public final class ParserSession {
+
+  /**
+   * The parser that created this session.
+   */
+  private final Parser parser;
+
+  /**
+   * The arguments received so far, already normalized.
+   */
+  private final Tokens tokens = new Tokens();
+
+  /**
+   * The parser whose options are matched against the received tokens: the session parser or,
+   * once the command has been received, the command sub-parser.
+   */
+  private Parser current;
+
+  /**
+   * Classification of the received tokens.
+   */
+  private ParseContext ctx;
+
+  /**
+   * The received command, if any.
+   */
+  private Command command;
+
+  /**
+   * Whether the session has been finished or has failed.
+   */
+  private boolean closed = false;
+
+  /**
+   * Builds a new session.
+   *
+   * @param parser the parser
+   */
+  ParserSession(final Parser parser) {
+    this.parser = parser;
+    this.current = parser;
+    this.ctx = new ParseContext(parser.getIndex());
+    this.ctx.begin(tokens, 0);
+  }
+
+  /**
+   * Receives the next argument of the command line.
+   *
+   * @param arg the argument
+   * @throws ParsingException if the argument makes the command line invalid
+   */
+  public void feed(final CharSequence arg) throws ParsingException {
+    checkNotClosed();
+
+    int pos = tokens.size();
+    tokens.append(arg.toString());
+
+    try {
+      for (; pos < tokens.size(); pos++) {
+        if (command == null && parser.hasCommands()) {
+          command = parser.lookupCommand(tokens, pos);
+          current = command.getParser();
+          ctx = new ParseContext(current.getIndex());
+          ctx.begin(tokens, pos + 1);
+        } else {
+          accept(pos);
+        }
+      }
+    } catch (ParsingException e) {
+      closed = true;
+      throw e;
+    }
+  }
+
+  /**
+   * Classifies the token at the given position and performs all the checks that don't depend on
+   * the following tokens.
+   *
+   * @param pos the token position
+   * @throws ParsingException if the token makes the command line invalid
+   */
+  private void accept(final int pos) throws ParsingException {
+    final int id = ctx.classify(pos);
+
+    if (id == OptionIndex.NOT_FOUND) {
+      // Option like tokens are never consumed as values
+      if (tokens.isOptionLike(pos)) {
+        throw new ParsingException(
+            "Unexpected tokens: " + Collections.singletonList(tokens.get(pos)));
+      }
+      return;
+    }
+
+    final OptionIndex index = ctx.getIndex();
+    for (int optionId = id;
+         optionId != OptionIndex.NOT_FOUND;
+         optionId = index.getGroupId(optionId)) {
+      index.getOption(optionId).checkOccurrence(ctx);
+    }
+  }
+
+  /**
+   * Completes the parsing of the received arguments.
+   *
+   * @return the parsed command line
+   * @throws ParsingException if the command line is not valid according to the parser configuration
+   */
+  public CommandLine finish() throws ParsingException {
+    return finish(new CommandLine());
+  }
+
+  /**
+   * Completes the parsing of the received arguments storing the result inside a caller owned
+   * {@link CommandLine}. The command line object is reset before parsing.
+   *
+   * @param cl the result object. Its previous content is discarded.
+   * @return the result object
+   * @throws ParsingException if the command line is not valid according to the parser configuration
+   */
+  public CommandLine finish(final CommandLine cl) throws ParsingException {
+    checkNotClosed();
+    closed = true;
+
+    cl.reset();
+    if (command != null) {
+      command.select(tokens, ctx.getFrom() - 1, cl);
+    }
+    return current.parse(ctx, cl);
+  }
+
+  /**
+   * Checks that the session can still be used.
+   */
+  private void checkNotClosed() {
+    if (closed) {
+      throw new IllegalStateException("The parser session is already finished or failed");
+    }
+  }
+}
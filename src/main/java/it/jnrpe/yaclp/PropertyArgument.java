@@ -18,47 +18,100 @@ package it.jnrpe.yaclp;
 
 import it.jnrpe.yaclp.validators.IArgumentValidator;
 
-import java.util.regex.Pattern;
-
 /**
  * Represent an argument in the form 'key=value'.
+ * If enabled, an argument in the form '@path' loads the properties contained into the given file
+ * (see {@link PropertyFileReader}).
  */
 class PropertyArgument extends Argument {
 
+  /**
+   * Prefix of the file references.
+   */
+  private static final char FILE_PREFIX = '@';
+
   /**
    * Separator for key and value.
    */
   private final String keyValueSeparator;
 
   /**
-   * List of validators to be used to validate the argument value.
+   * Validators to be used to validate the argument value, by key.
    */
-  private final IArgumentValidator[] validators;
+  private final PropertySchema schema;
+
+  /**
+   * Whether arguments in the form '@path' load the properties from a file.
+   */
+  private final boolean fileReferences;
 
   /**
    * Constructor.
    *
    * @param name              name of the argument
    * @param keyValueSeparator separator
-   * @param validators        list of validators to be used to validate the option value
+   * @param schema            validators to be used to validate the option value, by key
+   * @param fileReferences    whether arguments in the form '@path' load the properties from a
+   *                          file
    */
   PropertyArgument(final String name,
                    final String keyValueSeparator,
-                   final IArgumentValidator... validators) {
+                   final PropertySchema schema,
+                   final boolean fileReferences) {
     // Value must be extracted from the key=value string. We will manage validation locally.
     super(name, true, 1, Integer.MAX_VALUE, new IArgumentValidator[0]);
-    this.validators = validators;
+    this.schema = schema;
     this.keyValueSeparator = keyValueSeparator;
+    this.fileReferences = fileReferences;
+  }
+
+  /**
+   * Checks if a value is a file reference.
+   *
+   * @param value the value
+   * @return <code>true</code> for values in the form '@path'
+   */
+  private boolean isFileReference(final String value) {
+    return fileReferences && value.length() > 1 && value.charAt(0) == FILE_PREFIX
+        && !value.contains(keyValueSeparator);
+  }
+
+  /**
+   * Returns the validators of the value of a key.
+   *
+   * @param option option owning the argument
+   * @param key    the key or <code>null</code> if the validators don't depend on the key
+   * @return the validators
+   * @throws ParsingException if the key is not accepted
+   */
+  private IArgumentValidator[] getValidators(final IOption option, final String key)
+      throws ParsingException {
+    IArgumentValidator[] validators = schema.getValidators(key);
+    if (validators == null) {
+      throw new ParsingException(
+          "Property <%s> is not allowed for option <%s>", key, option.getLongName());
+    }
+    return validators;
   }
 
   @Override
   protected void saveValue(final CommandLine res,
-                           final IOption option,
-                           final String value) throws ParsingException {
+                           final ParseContext ctx,
+                           final AbstractOption option,
+                           final int pos) throws ParsingException {
+    Tokens tokens = ctx.getTokens();
+    int separatorPos = tokens.indexOf(pos, keyValueSeparator);
+    // the properties read from a file are stored while parsing, so that they are the ones that
+    // have been validated. To preserve the command line order, lazy command lines store all the
+    // values of the option.
+    boolean lazy = res.isLazy() && !fileReferences;
 
-    int pos = value.indexOf(keyValueSeparator);
+    if (separatorPos == -1 && isFileReference(tokens.get(pos))) {
+      readFile(res, option, tokens.get(pos).substring(1), pos);
+      return;
+    }
 
-    if (pos < 1 || pos >= (value.length() - 1)) {
+    if (separatorPos < 1 || separatorPos >= (tokens.length(pos) - 1)) {
       throw new ParsingException(
           "Argument <%s> for option <%s> must be in format key%svalue",
           getName(),
@@ -66,14 +119,57 @@ class PropertyArgument extends Argument {
           keyValueSeparator);
     }
 
-    // Value is in the correct format
-    String[] keyValuePair = value.split(Pattern.quote(keyValueSeparator), 2);
+    String keyValue = tokens.get(pos);
+    String key = schema.isKeyed() ? keyValue.substring(0, separatorPos) : null;
+    String value = null;
+
+    IArgumentValidator[] validators = getValidators(option, key);
 
     // Validate value
-    for (IArgumentValidator validator : validators) {
-      validator.validate(option, this, keyValuePair[1]);
+    if (validators.length != 0) {
+      value = keyValue.substring(separatorPos + keyValueSeparator.length());
+      validate(validators, option, value, pos, res);
+    }
+
+    if (lazy) {
+      res.addValue(ctx, option, pos);
+    } else {
+      if (value == null) {
+        value = keyValue.substring(separatorPos + keyValueSeparator.length());
+      }
+      if (key == null) {
+        key = keyValue.substring(0, separatorPos);
+      }
+      res.addProperty(option, key, value);
     }
+  }
+
+  /**
+   * Validates and stores the properties contained into a file.
+   *
+   * @param res    the command line parsing result
+   * @param option option owning the argument
+   * @param path   path of the file
+   * @param pos    position of the token containing the file reference
+   * @throws ParsingException if the file can't be read or contains invalid properties
+   */
+  private void readFile(final CommandLine res, final IOption option, final String path,
+                        final int pos) throws ParsingException {
+    new PropertyFileReader(keyValueSeparator).read(path, (key, value) -> {
+      IArgumentValidator[] validators = getValidators(option, key);
+      if (validators.length != 0) {
+        validate(validators, option, value, pos, res);
+      }
+      res.addProperty(option, key, value);
+    });
+  }
 
-    res.addProperty(option, keyValuePair[0], keyValuePair[1]);
+  @Override
+  void materialize(final CommandLine res, final IOption option, final String value) {
+    // Value is in the correct format
+    int separatorPos = value.indexOf(keyValueSeparator);
+    res.addProperty(option,
+        value.substring(0, separatorPos),
+        value.substring(separatorPos + keyValueSeparator.length()));
   }
 }
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package it.jnrpe.yaclp;
+
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the properties contained into a UTF-8 file, one <code>key=value</code> pair per line.
+ * Empty lines and lines starting with <code>#</code> are ignored.
+ * The file is memory mapped and parsed in a single pass: no intermediate string is built for the
+ * lines.
+ */
+final class PropertyFileReader {
+
+  /**
+   * Receives the properties read from the file.
+   */
+  interface PropertyHandler {
+
+    /**
+     * Receives a property.
+     *
+     * @param key   the property key
+     * @param value the property value
+     * @throws ParsingException if the property is not valid
+     */
+    void property(String key, String value) throws ParsingException;
+  }
+
+  /**
+   * Bytes of the separator between keys and values.
+   */
+  private final byte[] separator;
+
+  /**
+   * The separator, used in error messages.
+   */
+  private final String separatorString;
+
+  /**
+   * Buffer receiving the bytes of the current line.
+   */
+  private byte[] line = new byte[256];
+
+  /**
+   * Constructor.
+   *
+   * @param separator separator between keys and values
+   */
+  PropertyFileReader(final String separator) {
+    this.separator = separator.getBytes(StandardCharsets.UTF_8);
+    this.separatorString = separator;
+  }
+
+  /**
+   * Reads a file.
+   *
+   * @param path    path of the file
+   * @param handler receives the properties
+   * @throws ParsingException if the file can't be read, a line is not in the key=value format
+   *     or the handler rejects a property
+   */
+  void read(final String path, final PropertyHandler handler) throws ParsingException {
+    final MappedByteBuffer buffer = MappedFiles.map(path, "properties file");
+    final int size = buffer.limit();
+    int pos = MappedFiles.contentStart(buffer);
+
+    int lineNumber = 1;
+    int len = 0;
+    for (; pos < size; pos++) {
+      final byte b = buffer.get(pos);
+      if (b == '\n') {
+        parseLine(path, lineNumber++, len, handler);
+        len = 0;
+        continue;
+      }
+      if (len == line.length) {
+        line = Arrays.copyOf(line, len * 2);
+      }
+      line[len++] = b;
+    }
+    parseLine(path, lineNumber, len, handler);
+  }
+
+  /**
+   * Parses the line contained into {@link #line}.
+   *
+   * @param path       path of the file
+   * @param lineNumber number of the line
+   * @param length     length of the line
+   * @param handler    receives the property
+   * @throws ParsingException if the line is not in the key=value format or the handler rejects
+   *     the property
+   */
+  private void parseLine(final String path, final int lineNumber, final int length,
+                         final PropertyHandler handler) throws ParsingException {
+    int len = length;
+    if (len > 0 && line[len - 1] == '\r') {
+      len--;
+    }
+
+    int start = 0;
+    while (start < len && (line[start] == ' ' || line[start] == '\t')) {
+      start++;
+    }
+    if (start == len || line[start] == '#') {
+      return;
+    }
+
+    final int separatorPos = indexOfSeparator(start, len);
+    if (separatorPos <= start || separatorPos + separator.length >= len) {
+      throw new ParsingException("Line %d of properties file <%s> must be in format key%svalue",
+          lineNumber, path, separatorString);
+    }
+
+    final int valueStart = separatorPos + separator.length;
+    handler.property(
+        new String(line, start, separatorPos - start, StandardCharsets.UTF_8),
+        new String(line, valueStart, len - valueStart, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Finds the first occurrence of the separator inside the current line.
+   *
+   * @param from start of the search
+   * @param to   end (exclusive) of the line
+   * @return the position of the separator or -1
+   */
+  private int indexOfSeparator(final int from, final int to) {
+    outer:
+    for (int i = from; i <= to - separator.length; i++) {
+      for (int j = 0; j < separator.length; j++) {
+        if (line[i + j] != separator[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+}
@@ -21,7 +21,9 @@ import it.jnrpe.yaclp.validators.IArgumentValidator;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Builder for property option (options that has a MANDATORY argument in the form key=value).
@@ -45,6 +47,22 @@ public final class PropertyOptionBuilder {
    */
   private List<IArgumentValidator> argValidators = new ArrayList<>();
 
+  /**
+   * Validators of the values of each declared key.
+   */
+  private Map<String, List<IArgumentValidator>> keyValidators = new LinkedHashMap<>();
+
+  /**
+   * Whether keys that have not been declared with {@link #withKey(String, IArgumentValidator...)}
+   * are accepted. Defaults to true.
+   */
+  private boolean allowUnknownKeys = true;
+
+  /**
+   * Whether arguments in the form '@path' load the properties from a file. Defaults to false.
+   */
+  private boolean allowFileReferences = false;
+
   /**
    * Builds a new builder for property options.
    *
@@ -112,6 +130,50 @@ public final class PropertyOptionBuilder {
     return this;
   }
 
+  /**
+   * Declares a key, with the validators to be used to check its values. The validators are
+   * executed after the ones added with {@link #withArgumentValidator(IArgumentValidator)}.
+   * This method can be called many times for the same key, to add more validators.
+   *
+   * @param key        the key
+   * @param validators the validators of the values of the key
+   * @return this builder
+   */
+  public PropertyOptionBuilder withKey(final String key, final IArgumentValidator... validators) {
+    this.keyValidators.computeIfAbsent(key, k -> new ArrayList<>())
+        .addAll(Arrays.asList(validators));
+    return this;
+  }
+
+  /**
+   * Whether keys that have not been declared with {@link #withKey(String, IArgumentValidator...)}
+   * are accepted or not. Defaults to true.
+   *
+   * @param allowUnknownKeys true to accept undeclared keys
+   * @return this builder
+   */
+  public PropertyOptionBuilder allowUnknownKeys(final boolean allowUnknownKeys) {
+    this.allowUnknownKeys = allowUnknownKeys;
+    return this;
+  }
+
+  /**
+   * Whether arguments in the form '@path' (for example <code>-D@props.txt</code>) load the
+   * properties contained into the given UTF-8 file, one key=value pair per line. Empty lines and
+   * lines starting with '#' are ignored. Each property is validated as if it had been passed on
+   * the command line. Defaults to false: enable it only if the command line comes from a trusted
+   * source.
+   * Files are read only while parsing: {@link CommandLine.Storage#LAZY} command lines store the
+   * values of options accepting file references while parsing, as eager command lines do.
+   *
+   * @param allowFileReferences true to load properties from files
+   * @return this builder
+   */
+  public PropertyOptionBuilder allowFileReferences(final boolean allowFileReferences) {
+    this.allowFileReferences = allowFileReferences;
+    return this;
+  }
+
   /**
    * Sets the value separator for this option.
    *
@@ -132,7 +194,9 @@ public final class PropertyOptionBuilder {
     final String argName = MessageFormat.format("<property>{0}<value>", keyValueSeparator);
 
     return simpleOptionBuilder
-        .argument(new PropertyArgument(argName, keyValueSeparator))
+        .argument(new PropertyArgument(argName, keyValueSeparator,
+            new PropertySchema(argValidators, keyValidators, allowUnknownKeys),
+            allowFileReferences))
         .build();
   }
 }
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package it.jnrpe.yaclp;
+
+import it.jnrpe.yaclp.validators.IArgumentValidator;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validators of the values of a property option, by key. The validator chain of each key
+ * (validators common to all the keys followed by the ones of the key) is computed when the schema
+ * is built, so that each key=value pair requires a single hash lookup.
+ */
+final class PropertySchema {
+
+  /**
+   * Validators applied to the values of all the keys.
+   */
+  private final IArgumentValidator[] common;
+
+  /**
+   * Validator chain of each declared key.
+   */
+  private final Map<String, IArgumentValidator[]> chains;
+
+  /**
+   * Whether keys that have not been declared are accepted.
+   */
+  private final boolean allowUnknownKeys;
+
+  /**
+   * Constructor.
+   *
+   * @param common           validators applied to the values of all the keys
+   * @param keys             validators of each declared key
+   * @param allowUnknownKeys whether keys that have not been declared are accepted
+   */
+  PropertySchema(final List<IArgumentValidator> common,
+                 final Map<String, List<IArgumentValidator>> keys,
+                 final boolean allowUnknownKeys) {
+    this.common = common.toArray(new IArgumentValidator[common.size()]);
+    this.allowUnknownKeys = allowUnknownKeys;
+    this.chains = new HashMap<>(Math.max(16, keys.size() * 2));
+    for (Map.Entry<String, List<IArgumentValidator>> entry : keys.entrySet()) {
+      IArgumentValidator[] chain =
+          Arrays.copyOf(this.common, this.common.length + entry.getValue().size());
+      for (int i = 0; i < entry.getValue().size(); i++) {
+        chain[this.common.length + i] = entry.getValue().get(i);
+      }
+      chains.put(entry.getKey(), chain);
+    }
+  }
+
+  /**
+   * Whether the key is needed to choose the validators: if not, {@link #getValidators(String)}
+   * can be called with a <code>null</code> key.
+   *
+   * @return <code>true</code> if validators depend on the key
+   */
+  boolean isKeyed() {
+    return !chains.isEmpty() || !allowUnknownKeys;
+  }
+
+  /**
+   * Returns the validators of the value of a key.
+   *
+   * @param key the key
+   * @return the validators or <code>null</code> if the key is not accepted
+   */
+  IArgumentValidator[] getValidators(final String key) {
+    if (key == null) {
+      return common;
+    }
+    IArgumentValidator[] chain = chains.get(key);
+    if (chain != null) {
+      return chain;
+    }
+    return allowUnknownKeys ? common : null;
+  }
+}
@@ -0,0 +1,497 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package it.jnrpe.yaclp;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Splits a command line contained into a single string (for example
+ * <code>check_disk -w 10% -c "5 %" -p /var</code>) into words, following the POSIX shell quoting
+ * rules:
+ * <ul>
+ * <li>words are separated by unquoted blanks (space, tab and newline);</li>
+ * <li>a backslash outside quotes preserves the following character, a backslash followed by a
+ * newline is removed;</li>
+ * <li>characters between single quotes are preserved as they are;</li>
+ * <li>characters between double quotes are preserved, except a backslash followed by
+ * <code>$</code>, <code>`</code>, <code>"</code>, <code>\</code> or a newline;</li>
+ * <li>an unquoted <code>#</code> at the beginning of a word starts a comment that ends with the
+ * line.</li>
+ * </ul>
+ * No expansion (parameters, commands, globs) is performed and operators (<code>|</code>,
+ * <code>;</code>, redirections) have no special meaning.
+ * <p>
+ * Words are views over the received text: a word is copied only when removing quotes or
+ * backslashes makes it non contiguous (for example <code>a"b c"</code>), and then into a buffer
+ * owned by the tokenizer. A tokenizer can be reused for many command lines, keeping its buffers,
+ * but it is not thread safe.
+ */
+public final class ShellTokenizer {
+
+  /**
+   * The text being tokenized.
+   */
+  private CharSequence source;
+
+  /**
+   * Buffer containing the words that are not contiguous inside the source.
+   */
+  private char[] scratch = new char[0];
+
+  /**
+   * Number of used chars inside {@link #scratch}.
+   */
+  private int scratchSize;
+
+  /**
+   * For each word, offset of the value inside the source or inside the scratch buffer.
+   */
+  private int[] valueOffset = new int[8];
+
+  /**
+   * For each word, length of the value.
+   */
+  private int[] valueLength = new int[8];
+
+  /**
+   * For each word, whether the value is inside the scratch buffer.
+   */
+  private boolean[] copied = new boolean[8];
+
+  /**
+   * For each word, offset of its first character (quotes included) inside the source.
+   */
+  private int[] spanStart = new int[8];
+
+  /**
+   * For each word, offset following its last character (quotes included) inside the source.
+   */
+  private int[] spanEnd = new int[8];
+
+  /**
+   * Number of words.
+   */
+  private int size;
+
+  /**
+   * Start of the value of the current word inside the source, -1 if empty.
+   */
+  private int viewStart;
+
+  /**
+   * End of the value of the current word inside the source.
+   */
+  private int viewEnd;
+
+  /**
+   * Whether the current word is being copied into the scratch buffer.
+   */
+  private boolean copying;
+
+  /**
+   * Start of the current word value inside the scratch buffer.
+   */
+  private int copyStart;
+
+  /**
+   * Splits the given text into words.
+   *
+   * @param text the text to be split
+   * @return this tokenizer
+   * @throws ParsingException if a quote is not terminated
+   */
+  public ShellTokenizer tokenize(final CharSequence text) throws ParsingException {
+    return scan(CharBuffer.wrap(text));
+  }
+
+  /**
+   * Splits a region of the given char array into words. The array is not copied: it must not
+   * be changed while the words are used.
+   *
+   * @param text   the text to be split
+   * @param offset offset of the first char
+   * @param length number of chars
+   * @return this tokenizer
+   * @throws ParsingException if a quote is not terminated
+   */
+  public ShellTokenizer tokenize(final char[] text, final int offset, final int length)
+      throws ParsingException {
+    return scan(CharBuffer.wrap(text, offset, length).slice());
+  }
+
+  /**
+   * Splits the remaining bytes of the buffer into words. The buffer position is not changed.
+   * Single byte charsets (US-ASCII and ISO-8859-1) are read in place; other charsets are decoded
+   * once before being tokenized.
+   *
+   * @param bytes   the text to be split
+   * @param charset the charset of the text
+   * @return this tokenizer
+   * @throws ParsingException if a quote is not terminated
+   */
+  public ShellTokenizer tokenize(final ByteBuffer bytes, final Charset charset)
+      throws ParsingException {
+    if (charset.equals(StandardCharsets.ISO_8859_1) || charset.equals(StandardCharsets.US_ASCII)) {
+      return scan(new ByteSequence(bytes.slice()));
+    }
+    return scan(charset.decode(bytes.duplicate()));
+  }
+
+  /**
+   * Splits the source into words.
+   *
+   * @param text the text to be split
+   * @return this tokenizer
+   * @throws ParsingException if a quote is not terminated
+   */
+  private ShellTokenizer scan(final CharSequence text) throws ParsingException {
+    this.source = text;
+    this.size = 0;
+    this.scratchSize = 0;
+
+    final int length = text.length();
+    if (scratch.length < length) {
+      scratch = new char[length];
+    }
+
+    int pos = 0;
+    while (pos < length) {
+      char c = text.charAt(pos);
+
+      if (isBlank(c)) {
+        pos++;
+        continue;
+      }
+
+      if (c == '#') {
+        while (pos < length && text.charAt(pos) != '\n') {
+          pos++;
+        }
+        continue;
+      }
+
+      pos = scanWord(text, pos);
+    }
+    return this;
+  }
+
+  /**
+   * Scans the word starting at the given position.
+   *
+   * @param text  the text to be split
+   * @param start position of the first char of the word
+   * @return position following the word
+   * @throws ParsingException if a quote is not terminated
+   */
+  private int scanWord(final CharSequence text, final int start) throws ParsingException {
+    final int length = text.length();
+    viewStart = -1;
+    copying = false;
+
+    int pos = start;
+    boolean word = false;
+
+    while (pos < length) {
+      char c = text.charAt(pos);
+
+      if (isBlank(c)) {
+        break;
+      }
+
+      switch (c) {
+        case '\\':
+          if (pos + 1 < length) {
+            if (text.charAt(pos + 1) != '\n') {
+              append(pos + 1);
+              word = true;
+            }
+            pos += 2;
+          } else {
+            append(pos++);
+            word = true;
+          }
+          break;
+        case '\'':
+          int close = pos + 1;
+          while (close < length && text.charAt(close) != '\'') {
+            append(close++);
+          }
+          if (close == length) {
+            throw new ParsingException("Unterminated quote at position %d", pos);
+          }
+          word = true;
+          pos = close + 1;
+          break;
+        case '"':
+          pos = scanDoubleQuoted(text, pos);
+          word = true;
+          break;
+        default:
+          append(pos++);
+          word = true;
+          break;
+      }
+    }
+
+    if (word) {
+      endWord(start, pos);
+    }
+    return pos;
+  }
+
+  /**
+   * Scans a double quoted section.
+   *
+   * @param text  the text to be split
+   * @param quote position of the opening quote
+   * @return position following the closing quote
+   * @throws ParsingException if the quote is not terminated
+   */
+  private int scanDoubleQuoted(final CharSequence text, final int quote) throws ParsingException {
+    final int length = text.length();
+    int pos = quote + 1;
+
+    while (pos < length) {
+      char c = text.charAt(pos);
+      if (c == '"') {
+        return pos + 1;
+      }
+
+      if (c == '\\' && pos + 1 < length && isEscapedInDoubleQuotes(text.charAt(pos + 1))) {
+        if (text.charAt(pos + 1) != '\n') {
+          append(pos + 1);
+        }
+        pos += 2;
+      } else {
+        append(pos++);
+      }
+    }
+
+    throw new ParsingException("Unterminated quote at position %d", quote);
+  }
+
+  /**
+   * Adds the source char at the given position to the current word. As long as the word is
+   * contiguous inside the source, only its bounds are updated.
+   *
+   * @param pos position of the char inside the source
+   */
+  private void append(final int pos) {
+    if (!copying) {
+      if (viewStart == -1) {
+        viewStart = pos;
+        viewEnd = pos + 1;
+        return;
+      }
+      if (pos == viewEnd) {
+        viewEnd++;
+        return;
+      }
+
+      // The word is not contiguous anymore: copy what has been found so far
+      copying = true;
+      copyStart = scratchSize;
+      for (int i = viewStart; i < viewEnd; i++) {
+        scratch[scratchSize++] = source.charAt(i);
+      }
+    }
+    scratch[scratchSize++] = source.charAt(pos);
+  }
+
+  /**
+   * Records the current word.
+   *
+   * @param start offset of the first char of the word inside the source
+   * @param end   offset following the last char of the word inside the source
+   */
+  private void endWord(final int start, final int end) {
+    if (size == valueOffset.length) {
+      int newLength = size * 2;
+      valueOffset = Arrays.copyOf(valueOffset, newLength);
+      valueLength = Arrays.copyOf(valueLength, newLength);
+      copied = Arrays.copyOf(copied, newLength);
+      spanStart = Arrays.copyOf(spanStart, newLength);
+      spanEnd = Arrays.copyOf(spanEnd, newLength);
+    }
+
+    if (copying) {
+      valueOffset[size] = copyStart;
+      valueLength[size] = scratchSize - copyStart;
+    } else {
+      valueOffset[size] = viewStart == -1 ? start : viewStart;
+      valueLength[size] = viewStart == -1 ? 0 : viewEnd - viewStart;
+    }
+    copied[size] = copying;
+    spanStart[size] = start;
+    spanEnd[size] = end;
+    size++;
+  }
+
+  /**
+   * Returns whether the char is a word separator.
+   *
+   * @param c the char
+   * @return true or false
+   */
+  private static boolean isBlank(final char c) {
+    return c == ' ' || c == '\t' || c == '\n';
+  }
+
+  /**
+   * Returns whether a backslash followed by the given char is an escape sequence inside double
+   * quotes.
+   *
+   * @param c the char following the backslash
+   * @return true or false
+   */
+  private static boolean isEscapedInDoubleQuotes(final char c) {
+    return c == '$' || c == '`' || c == '"' || c == '\\' || c == '\n';
+  }
+
+  /**
+   * Returns the number of words.
+   *
+   * @return the number of words
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the offset of the first char of the word (quotes included) inside the tokenized text.
+   *
+   * @param index the word index
+   * @return the offset
+   */
+  public int start(final int index) {
+    return spanStart[index];
+  }
+
+  /**
+   * Returns the offset following the last char of the word (quotes included) inside the
+   * tokenized text.
+   *
+   * @param index the word index
+   * @return the offset
+   */
+  public int end(final int index) {
+    return spanEnd[index];
+  }
+
+  /**
+   * Returns the length of the word value (quotes and escapes removed).
+   *
+   * @param index the word index
+   * @return the length
+   */
+  public int length(final int index) {
+    return valueLength[index];
+  }
+
+  /**
+   * Returns a view over the word value (quotes and escapes removed). No chars are copied: the
+   * view is valid until the tokenizer is reused.
+   *
+   * @param index the word index
+   * @return the word value
+   */
+  public CharSequence get(final int index) {
+    int from = valueOffset[index];
+    int to = from + valueLength[index];
+    if (copied[index]) {
+      return CharBuffer.wrap(scratch, from, to - from).slice();
+    }
+    return source.subSequence(from, to);
+  }
+
+  /**
+   * Returns the value of the word as a string.
+   *
+   * @param index the word index
+   * @return the word value
+   */
+  public String getString(final int index) {
+    if (copied[index]) {
+      return new String(scratch, valueOffset[index], valueLength[index]);
+    }
+    return get(index).toString();
+  }
+
+  /**
+   * Returns all the words as strings, ready to be passed to {@link Parser#parse(String[])}.
+   *
+   * @return the words
+   */
+  public String[] toArray() {
+    String[] res = new String[size];
+    for (int i = 0; i < size; i++) {
+      res[i] = getString(i);
+    }
+    return res;
+  }
+
+  /**
+   * Read only view of a buffer of single byte chars.
+   */
+  private static final class ByteSequence implements CharSequence {
+
+    /**
+     * The bytes. Position is always 0.
+     */
+    private final ByteBuffer bytes;
+
+    /**
+     * Builds the view.
+     *
+     * @param bytes the bytes, starting from position 0
+     */
+    private ByteSequence(final ByteBuffer bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public int length() {
+      return bytes.remaining();
+    }
+
+    @Override
+    public char charAt(final int index) {
+      return (char) (bytes.get(index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+      ByteBuffer view = bytes.duplicate();
+      view.position(start);
+      view.limit(end);
+      return new ByteSequence(view.slice());
+    }
+
+    @Override
+    public String toString() {
+      char[] chars = new char[length()];
+      for (int i = 0; i < chars.length; i++) {
+        chars[i] = charAt(i);
+      }
+      return new String(chars);
+    }
+  }
+}
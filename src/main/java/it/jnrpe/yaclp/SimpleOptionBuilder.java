@@ -154,10 +154,9 @@ public final class SimpleOptionBuilder {
    * @return the newly build option
    */
   public IOption build() {
-    Option option = new Option(shortName, longName);
+    Option option = new Option(shortName, longName, description);
     option.setRepeatable(repeatable);
     option.setMandatory(mandatory);
-    option.setDescription(description);
     option.setArgument((Argument) argument);
 
     requiredOptions.forEach(option::addRequiredOption);
@@ -0,0 +1,344 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package it.jnrpe.yaclp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Array backed list of the normalized command line tokens.
+ * Tokens are never removed: consumed tokens are marked inside a {@link BitSet}.
+ * Each token is a view over one of the received arguments (index of the argument and offset of
+ * the first character), so that splitting attached values (for example -Dkey=value) does not
+ * require copying strings.
+ */
+final class Tokens {
+
+  /**
+   * The command line as received by the parser.
+   */
+  private String[] args;
+
+  /**
+   * Number of meaningful elements of {@link #args}.
+   */
+  private int argCount;
+
+  /**
+   * For each token, the index of the argument it comes from.
+   */
+  private int[] argIndex = new int[0];
+
+  /**
+   * For each token, the offset of its first character inside the argument.
+   */
+  private int[] start = new int[0];
+
+  /**
+   * For each token, the offset following its last character inside the argument.
+   */
+  private int[] end = new int[0];
+
+  /**
+   * Number of tokens.
+   */
+  private int size;
+
+  /**
+   * Consumed tokens.
+   */
+  private final BitSet consumed = new BitSet();
+
+  /**
+   * Normalizes the command line: options and arguments are separated when they are attached (for
+   * example -Dkey=value becomes -D key=value), so that they can be managed as all the other
+   * options.
+   * The buffers of the previous command line are reused, so that once they are large enough no
+   * allocation is needed.
+   *
+   * @param args the command line
+   */
+  void reset(final String[] args) {
+    this.args = args;
+    this.argCount = args.length;
+    this.size = 0;
+    this.consumed.clear();
+
+    ensureCapacity(args.length * 2);
+
+    for (int i = 0; i < args.length; i++) {
+      normalize(i);
+    }
+  }
+
+  /**
+   * Normalizes the words split by a tokenizer. The arguments array is owned by this object: a
+   * new one is built for each command line, since lazy command lines keep a reference to it.
+   *
+   * @param words the words of the command line
+   */
+  void reset(final ShellTokenizer words) {
+    this.args = new String[words.size()];
+    this.argCount = 0;
+    this.size = 0;
+    this.consumed.clear();
+
+    ensureCapacity(args.length * 2);
+
+    while (argCount < args.length) {
+      args[argCount] = words.getString(argCount);
+      normalize(argCount++);
+    }
+  }
+
+  /**
+   * Empties the command line, so that the arguments can then be appended one by one through
+   * {@link #append(String)}.
+   */
+  void reset() {
+    this.args = null;
+    this.argCount = 0;
+    this.size = 0;
+    this.consumed.clear();
+  }
+
+  /**
+   * Appends an argument to the command line and normalizes it. Used by incremental parsers: the
+   * arguments array is owned by this object and grows as needed.
+   *
+   * @param arg the argument
+   */
+  void append(final String arg) {
+    if (args == null || argCount == args.length) {
+      args = Arrays.copyOf(args == null ? new String[0] : args, Math.max(8, argCount * 2));
+    }
+    args[argCount] = arg;
+    ensureCapacity(size + 2);
+    normalize(argCount++);
+  }
+
+  /**
+   * Splits the argument at the given index into tokens.
+   *
+   * @param i the index of the argument
+   */
+  private void normalize(final int i) {
+    String arg = args[i];
+
+    if (arg.length() == 1
+        || arg.startsWith("--")
+        || (arg.startsWith("-") && arg.length() == 2) || !arg.startsWith("-")) {
+      add(i, 0, arg.length());
+      return;
+    }
+
+    add(i, 0, 2);
+    add(i, 2, arg.length());
+  }
+
+  /**
+   * Grows the token buffers so that they can contain the given number of tokens.
+   *
+   * @param capacity the number of tokens
+   */
+  private void ensureCapacity(final int capacity) {
+    if (argIndex.length < capacity) {
+      int newLength = Math.max(capacity, argIndex.length * 2);
+      argIndex = Arrays.copyOf(argIndex, newLength);
+      start = Arrays.copyOf(start, newLength);
+      end = Arrays.copyOf(end, newLength);
+    }
+  }
+
+  /**
+   * Releases the reference to the last parsed command line.
+   */
+  void clear() {
+    this.args = null;
+    this.argCount = 0;
+    this.size = 0;
+  }
+
+  /**
+   * Appends a token.
+   *
+   * @param index the index of the argument
+   * @param from  offset of the first character
+   * @param to    offset following the last character
+   */
+  private void add(final int index, final int from, final int to) {
+    argIndex[size] = index;
+    start[size] = from;
+    end[size] = to;
+    size++;
+  }
+
+  /**
+   * Returns the number of tokens.
+   *
+   * @return the number of tokens
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the token at the given position.
+   *
+   * @param pos the token position
+   * @return the token
+   */
+  String get(final int pos) {
+    String arg = args[argIndex[pos]];
+    if (start[pos] == 0 && end[pos] == arg.length()) {
+      return arg;
+    }
+    return arg.substring(start[pos], end[pos]);
+  }
+
+  /**
+   * Returns the command line the tokens are views of.
+   *
+   * @return the command line
+   */
+  String[] getArgs() {
+    return args;
+  }
+
+  /**
+   * Returns the index of the argument the token at the given position comes from.
+   *
+   * @param pos the token position
+   * @return the index of the argument
+   */
+  int getArgIndex(final int pos) {
+    return argIndex[pos];
+  }
+
+  /**
+   * Returns the offset of the first character of the token inside its argument.
+   *
+   * @param pos the token position
+   * @return the offset
+   */
+  int getStart(final int pos) {
+    return start[pos];
+  }
+
+  /**
+   * Returns the position of the first occurrence of the given string inside the token at the
+   * given position, without building the token.
+   *
+   * @param pos the token position
+   * @param str the string to be searched
+   * @return the offset of the string inside the token or -1 if not found
+   */
+  int indexOf(final int pos, final String str) {
+    int res = args[argIndex[pos]].indexOf(str, start[pos]);
+    if (res == -1 || res + str.length() > end[pos]) {
+      return -1;
+    }
+    return res - start[pos];
+  }
+
+  /**
+   * Returns the length of the token at the given position.
+   *
+   * @param pos the token position
+   * @return the token length
+   */
+  int length(final int pos) {
+    return end[pos] - start[pos];
+  }
+
+  /**
+   * Returns whether the token at the given position is an option-like token (starts with '-').
+   *
+   * @param pos the token position
+   * @return true or false
+   */
+  boolean isOptionLike(final int pos) {
+    return end[pos] > start[pos] && args[argIndex[pos]].charAt(start[pos]) == '-';
+  }
+
+  /**
+   * Returns whether the token at the given position is the short option name part of an argument
+   * that has been split (for example '-D' out of '-Dkey=value').
+   *
+   * @param pos the token position
+   * @return true or false
+   */
+  boolean isSplitOption(final int pos) {
+    return end[pos] - start[pos] == 2 && end[pos] != args[argIndex[pos]].length();
+  }
+
+  /**
+   * Returns the character at the given offset of the token.
+   *
+   * @param pos    the token position
+   * @param offset offset of the character inside the token
+   * @return the character
+   */
+  char charAt(final int pos, final int offset) {
+    return args[argIndex[pos]].charAt(start[pos] + offset);
+  }
+
+  /**
+   * Marks the token at the given position as consumed.
+   *
+   * @param pos the token position
+   */
+  void consume(final int pos) {
+    consumed.set(pos);
+  }
+
+  /**
+   * Returns whether the token at the given position has already been consumed.
+   *
+   * @param pos the token position
+   * @return true or false
+   */
+  boolean isConsumed(final int pos) {
+    return consumed.get(pos);
+  }
+
+  /**
+   * Returns the position of the first non consumed token starting from the given position.
+   *
+   * @param from the position to start from
+   * @return the position or {@link #size()} if all the remaining tokens are consumed
+   */
+  int nextUnconsumed(final int from) {
+    return Math.min(consumed.nextClearBit(from), size);
+  }
+
+  /**
+   * Returns the tokens that have not been consumed, starting from the given position.
+   *
+   * @param from the position to start from
+   * @return the tokens that have not been consumed
+   */
+  List<String> getUnconsumed(final int from) {
+    List<String> res = new ArrayList<>();
+    for (int i = nextUnconsumed(from); i < size; i = nextUnconsumed(i + 1)) {
+      res.add(get(i));
+    }
+    return res;
+  }
+}
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package it.jnrpe.yaclp.validators;
+
+import it.jnrpe.yaclp.IArgument;
+import it.jnrpe.yaclp.IOption;
+
+/**
+ * Validator for decimal arguments (for example <code>-1.5</code> or <code>2.5e-3</code>).
+ * Only finite values in decimal notation are accepted.
+ * It can validate:
+ * <ul>
+ * <li>Minimum value</li>
+ * <li>Maximum value</li>
+ * </ul>
+ */
+public class DoubleValidator implements IArgumentValidator {
+
+  /**
+   * Minimum value ({@link Double#NEGATIVE_INFINITY} if not set).
+   */
+  private final double min;
+
+  /**
+   * Maximum value ({@link Double#POSITIVE_INFINITY} if not set).
+   */
+  private final double max;
+
+  /**
+   * Constructor.
+   *
+   * @param min minimum value
+   * @param max maximum value
+   */
+  private DoubleValidator(final double min, final double max) {
+    this.min = min;
+    this.max = max;
+  }
+
+  @Override
+  public void validate(final IOption option, final IArgument argument, final String value) throws
+      ValidationException {
+    final double val = NumberScanner.scanDouble(value);
+    if (Double.isNaN(val)) {
+      throw new ValidationException("Value [%s] is not a correct decimal number", value);
+    }
+
+    if (val < min) {
+      throw new ValidationException(
+          "Value must be greater than %s (current value: %s)", min, value);
+    }
+
+    if (val > max) {
+      throw new ValidationException(
+          "Value must be smaller than %s (current value: %s)", max, value);
+    }
+  }
+
+  /**
+   * Builder for {@link DoubleValidator} objects.
+   */
+  public static class Builder {
+
+    /**
+     * Minimum value. Default: {@link Double#NEGATIVE_INFINITY}.
+     */
+    private double min = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Maximum value. Default: {@link Double#POSITIVE_INFINITY}.
+     */
+    private double max = Double.POSITIVE_INFINITY;
+
+    /**
+     * Constructor.
+     */
+    Builder() {
+    }
+
+    /**
+     * Sets the minimum value (inclusive).
+     *
+     * @param min minimum value
+     * @return this builder
+     */
+    public Builder min(final double min) {
+      this.min = min;
+      return this;
+    }
+
+    /**
+     * Sets the maximum value (inclusive).
+     *
+     * @param max maximum value
+     * @return this builder
+     */
+    public Builder max(final double max) {
+      this.max = max;
+      return this;
+    }
+
+    /**
+     * Builds the {@link DoubleValidator} object.
+     *
+     * @return a {@link DoubleValidator} instance configured with the given parameters.
+     */
+    public DoubleValidator build() {
+      return new DoubleValidator(min, max);
+    }
+  }
+}
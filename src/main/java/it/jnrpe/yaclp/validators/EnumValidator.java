@@ -21,22 +21,35 @@ import it.jnrpe.yaclp.IOption;
 
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 /**
  * This class validates that the argument value falls inside a specified list of values.
+ * Values are looked up into a perfect hash table built once, when the validator is built.
+ * Case insensitive checks fold the case one character at a time, without depending on the
+ * default locale.
  */
 public class EnumValidator implements IArgumentValidator {
 
   /**
-   * Collection of accepted values.
+   * Lookup tables of the Java enums, built the first time each enum is bound.
    */
-  private final Collection<String> acceptedValues;
+  private static final ClassValue<EnumTable> ENUM_TABLES = new ClassValue<EnumTable>() {
+    @Override
+    protected EnumTable computeValue(final Class<?> type) {
+      return new EnumTable((Enum<?>[]) type.getEnumConstants());
+    }
+  };
 
   /**
-   * Whether to perform a case sensitive or insensitive check.
+   * Lookup table of the accepted values.
    */
-  private final boolean caseSensitive;
+  private final PerfectHash acceptedValues;
+
+  /**
+   * Comma separated list of the accepted values, used by the error message.
+   */
+  private final String acceptedValuesList;
 
   /**
    * Constructor.
@@ -45,15 +58,9 @@ public class EnumValidator implements IArgumentValidator {
    * @param caseSensitive  Whether to perform a case sensitive or insensitive check
    */
   private EnumValidator(final Collection<String> acceptedValues, final boolean caseSensitive) {
-    this.caseSensitive = caseSensitive;
-
-    if (caseSensitive) {
-      this.acceptedValues = acceptedValues;
-    } else {
-      this.acceptedValues = new HashSet<>();
-
-      acceptedValues.forEach(value -> this.acceptedValues.add(value.toLowerCase()));
-    }
+    this.acceptedValues =
+        PerfectHash.build(acceptedValues.toArray(new String[acceptedValues.size()]), caseSensitive);
+    this.acceptedValuesList = String.join(",", acceptedValues);
   }
 
   @Override
@@ -61,24 +68,70 @@ public class EnumValidator implements IArgumentValidator {
       final IOption option,
       final IArgument argument,
       final String value) throws ValidationException {
-    if (!acceptedValues.contains(caseSensitive ? value : value.toLowerCase())) {
+    if (acceptedValues.indexOf(value) < 0) {
       throw new ValidationException(
           "Value for argument <%s> of option <%s> must be one of [%s]",
           argument.getName(),
           option.getLongName(),
-          String.join(",", acceptedValues));
+          acceptedValuesList);
     }
   }
 
   /**
-   * Bulder for {@link EnumValidator} objects.
+   * Returns the constant of a Java enum whose name is equal, ignoring the case, to the given
+   * value. The lookup table of each enum is built only once.
+   * If more constants have the same name ignoring the case, the first one is returned.
+   *
+   * @param type  the enum type
+   * @param value the name of the constant
+   * @param <E>   the enum type
+   * @return the constant or <code>null</code> if no constant matches the value
    */
-  static final class Builder {
+  public static <E extends Enum<E>> E toEnum(final Class<E> type, final String value) {
+    EnumTable table = ENUM_TABLES.get(type);
+    int ordinal = table.names.indexOf(value);
+    return ordinal < 0 ? null : type.cast(table.constants[ordinal]);
+  }
+
+  /**
+   * Lookup table of a Java enum.
+   */
+  private static final class EnumTable {
+
+    /**
+     * Lookup table of the names of the constants. Indexes are the ordinals.
+     */
+    private final PerfectHash names;
+
+    /**
+     * The constants, by ordinal.
+     */
+    private final Enum<?>[] constants;
+
+    /**
+     * Constructor.
+     *
+     * @param constants the constants, by ordinal
+     */
+    private EnumTable(final Enum<?>[] constants) {
+      String[] constantNames = new String[constants.length];
+      for (int i = 0; i < constants.length; i++) {
+        constantNames[i] = constants[i].name();
+      }
+      this.names = PerfectHash.build(constantNames, false);
+      this.constants = constants;
+    }
+  }
+
+  /**
+   * Builder for {@link EnumValidator} objects.
+   */
+  public static final class Builder {
 
     /**
      * List of accepted values.
      */
-    private Collection<String> acceptedValues = new HashSet<>();
+    private Collection<String> acceptedValues = new LinkedHashSet<>();
 
     /**
      * Whether to perform case sensitive or insensitive checks.
@@ -103,6 +156,19 @@ public class EnumValidator implements IArgumentValidator {
       return this;
     }
 
+    /**
+     * Adds the names of the constants of a Java enum to the collection of accepted values.
+     *
+     * @param type the enum type
+     * @return this builder
+     */
+    public Builder withValues(final Class<? extends Enum<?>> type) {
+      for (Enum<?> constant : type.getEnumConstants()) {
+        acceptedValues.add(constant.name());
+      }
+      return this;
+    }
+
     /**
      * Configure the validator to be built as case sensitive or insensitive.
      *
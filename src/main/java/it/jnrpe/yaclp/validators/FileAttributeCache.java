@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package it.jnrpe.yaclp.validators;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of the path attributes checked by {@link FileValidator}s, keyed by path.
+ * Attributes are kept for a fixed time (TTL) after they have been read: during that time,
+ * validating the same path does not access the file system. When the cache is full, the entries
+ * loaded first are dropped: since the TTL is fixed, they are also the first ones to expire.
+ * <p>
+ * A cache is thread safe and can be shared by many validators (see
+ * {@link FileValidator.Builder#withCache(FileAttributeCache)}). Hit and miss counters can be
+ * used to tune the TTL and the size.
+ */
+public final class FileAttributeCache {
+
+  /**
+   * The cached attributes.
+   */
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * The cached entries, in load order. Entries that have been replaced or dropped are removed
+   * from the queue when they reach its head.
+   */
+  private final Queue<Entry> loadOrder = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Number of entries inside {@link #loadOrder}.
+   */
+  private final AtomicInteger queued = new AtomicInteger();
+
+  /**
+   * How long the attributes are valid, in nanoseconds.
+   */
+  private final long ttlNanos;
+
+  /**
+   * Maximum number of cached paths.
+   */
+  private final int maxEntries;
+
+  /**
+   * Number of lookups answered by the cache.
+   */
+  private final LongAdder hits = new LongAdder();
+
+  /**
+   * Number of lookups that required reading the file system.
+   */
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Builds a new cache.
+   *
+   * @param ttl        how long the attributes of a path are valid
+   * @param unit       the unit of the TTL
+   * @param maxEntries maximum number of cached paths
+   */
+  public FileAttributeCache(final long ttl, final TimeUnit unit, final int maxEntries) {
+    if (ttl <= 0 || maxEntries <= 0) {
+      throw new IllegalArgumentException("TTL and maximum number of entries must be positive");
+    }
+    this.ttlNanos = unit.toNanos(ttl);
+    this.maxEntries = maxEntries;
+  }
+
+  /**
+   * Returns the attributes of the given path, reading them if they are not cached or expired.
+   *
+   * @param path        the path
+   * @param followLinks whether symbolic links must be followed
+   * @return the attributes of the path
+   */
+  FileAttributes get(final String path, final boolean followLinks) {
+    final long now = System.nanoTime();
+
+    Entry entry = entries.get(path);
+    if (entry == null || entry.isExpired(now, ttlNanos)) {
+      // concurrent misses on the same path install a single entry
+      entry = entries.compute(path, (key, current) -> {
+        if (current != null && !current.isExpired(now, ttlNanos)) {
+          return current;
+        }
+        final Entry created = new Entry(key, now);
+        loadOrder.add(created);
+        queued.incrementAndGet();
+        return created;
+      });
+      if (queued.get() > maxEntries) {
+        evict();
+      }
+    }
+
+    FileAttributes attributes = entry.get(followLinks);
+    if (attributes == null) {
+      // concurrent lookups of the same entry read the file system only once
+      synchronized (entry) {
+        attributes = entry.get(followLinks);
+        if (attributes == null) {
+          misses.increment();
+          attributes = FileAttributes.read(path, followLinks);
+          entry.set(followLinks, attributes);
+          return attributes;
+        }
+      }
+    }
+
+    hits.increment();
+    return attributes;
+  }
+
+  /**
+   * Drops the entries loaded first until the queue fits the maximum size. Entries that have
+   * already been replaced are just discarded.
+   */
+  private void evict() {
+    while (queued.get() > maxEntries) {
+      final Entry oldest = loadOrder.poll();
+      if (oldest == null) {
+        return;
+      }
+      queued.decrementAndGet();
+      entries.remove(oldest.path, oldest);
+    }
+  }
+
+  /**
+   * Returns the number of lookups answered without accessing the file system.
+   *
+   * @return the number of cache hits
+   */
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * Returns the number of lookups that required reading the file system.
+   *
+   * @return the number of cache misses
+   */
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /**
+   * Returns the number of cached paths.
+   *
+   * @return the number of cached paths
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Drops all the cached attributes. Counters are not reset.
+   */
+  public void clear() {
+    while (loadOrder.poll() != null) {
+      queued.decrementAndGet();
+    }
+    entries.clear();
+  }
+
+  /**
+   * Cached attributes of a path. Attributes read following symbolic links and not following them
+   * are kept separately.
+   */
+  private static final class Entry {
+
+    /**
+     * The attributes read following symbolic links.
+     */
+    private volatile FileAttributes followed;
+
+    /**
+     * The attributes read without following symbolic links.
+     */
+    private volatile FileAttributes notFollowed;
+
+    /**
+     * The cached path.
+     */
+    private final String path;
+
+    /**
+     * When the entry has been created, in nanoseconds.
+     */
+    private final long loadTime;
+
+    /**
+     * Constructor.
+     *
+     * @param path     the cached path
+     * @param loadTime when the entry has been created, in nanoseconds
+     */
+    private Entry(final String path, final long loadTime) {
+      this.path = path;
+      this.loadTime = loadTime;
+    }
+
+    /**
+     * Returns the cached attributes.
+     *
+     * @param followLinks whether symbolic links have been followed
+     * @return the attributes or <code>null</code> if not read yet
+     */
+    private FileAttributes get(final boolean followLinks) {
+      return followLinks ? followed : notFollowed;
+    }
+
+    /**
+     * Stores the attributes.
+     *
+     * @param followLinks whether symbolic links have been followed
+     * @param attributes  the attributes
+     */
+    private void set(final boolean followLinks, final FileAttributes attributes) {
+      if (followLinks) {
+        followed = attributes;
+      } else {
+        notFollowed = attributes;
+      }
+    }
+
+    /**
+     * Returns whether the attributes are expired.
+     *
+     * @param now      current time, in nanoseconds
+     * @param ttlNanos time to live, in nanoseconds
+     * @return true or false
+     */
+    private boolean isExpired(final long now, final long ttlNanos) {
+      return now - loadTime >= ttlNanos;
+    }
+  }
+}
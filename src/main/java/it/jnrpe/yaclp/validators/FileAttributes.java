@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package it.jnrpe.yaclp.validators;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Snapshot of the attributes of a path checked by {@link FileValidator}.
+ * Type and existence are read with a single {@link Files#readAttributes} call (one stat). Access
+ * rights depend on the user, groups and ACLs of the process, so they are checked by the
+ * operating system (one access call each) only when first requested, and then remembered.
+ */
+final class FileAttributes {
+
+  /**
+   * Access right not checked yet.
+   */
+  private static final int UNKNOWN = 0;
+
+  /**
+   * Access right granted.
+   */
+  private static final int GRANTED = 1;
+
+  /**
+   * Access right denied.
+   */
+  private static final int DENIED = 2;
+
+  /**
+   * Options used to follow symbolic links.
+   */
+  private static final LinkOption[] FOLLOW_LINKS = new LinkOption[0];
+
+  /**
+   * Options used to not follow symbolic links.
+   */
+  private static final LinkOption[] NOFOLLOW_LINKS = {LinkOption.NOFOLLOW_LINKS};
+
+  /**
+   * Attributes of a path that does not exist.
+   */
+  private static final FileAttributes MISSING = new FileAttributes(null, false, false);
+
+  /**
+   * The path, <code>null</code> if it does not exist.
+   */
+  private final Path path;
+
+  /**
+   * Whether the path is a regular file.
+   */
+  private final boolean file;
+
+  /**
+   * Whether the path is a directory.
+   */
+  private final boolean directory;
+
+  /**
+   * Whether the path can be read: {@link #UNKNOWN}, {@link #GRANTED} or {@link #DENIED}.
+   */
+  private volatile int readable = UNKNOWN;
+
+  /**
+   * Whether the path can be written: {@link #UNKNOWN}, {@link #GRANTED} or {@link #DENIED}.
+   */
+  private volatile int writable = UNKNOWN;
+
+  /**
+   * Constructor.
+   *
+   * @param path      the path or <code>null</code> if it does not exist
+   * @param file      whether the path is a regular file
+   * @param directory whether the path is a directory
+   */
+  private FileAttributes(final Path path, final boolean file, final boolean directory) {
+    this.path = path;
+    this.file = file;
+    this.directory = directory;
+  }
+
+  /**
+   * Reads the attributes of the path.
+   *
+   * @param value       the path
+   * @param followLinks whether symbolic links must be followed. If not, a symbolic link exists
+   *                    but is neither a file nor a directory
+   * @return the attributes of the path
+   */
+  static FileAttributes read(final String value, final boolean followLinks) {
+    if (value.isEmpty()) {
+      return MISSING;
+    }
+
+    try {
+      Path path = Paths.get(value);
+      BasicFileAttributes attributes = Files.readAttributes(
+          path, BasicFileAttributes.class, followLinks ? FOLLOW_LINKS : NOFOLLOW_LINKS);
+      return new FileAttributes(path, attributes.isRegularFile(), attributes.isDirectory());
+    } catch (InvalidPathException | IOException e) {
+      // As for java.io.File, paths whose attributes can't be read don't exist
+      return MISSING;
+    }
+  }
+
+  /**
+   * Returns whether the path exists.
+   *
+   * @return true or false
+   */
+  boolean exists() {
+    return path != null;
+  }
+
+  /**
+   * Returns whether the path is a regular file.
+   *
+   * @return true or false
+   */
+  boolean isFile() {
+    return file;
+  }
+
+  /**
+   * Returns whether the path is a directory.
+   *
+   * @return true or false
+   */
+  boolean isDirectory() {
+    return directory;
+  }
+
+  /**
+   * Returns whether the path can be read. Symbolic links are always followed.
+   *
+   * @return true or false
+   */
+  boolean canRead() {
+    if (path == null) {
+      return false;
+    }
+    int state = readable;
+    if (state == UNKNOWN) {
+      state = Files.isReadable(path) ? GRANTED : DENIED;
+      readable = state;
+    }
+    return state == GRANTED;
+  }
+
+  /**
+   * Returns whether the path can be written. Symbolic links are always followed.
+   *
+   * @return true or false
+   */
+  boolean canWrite() {
+    if (path == null) {
+      return false;
+    }
+    int state = writable;
+    if (state == UNKNOWN) {
+      state = Files.isWritable(path) ? GRANTED : DENIED;
+      writable = state;
+    }
+    return state == GRANTED;
+  }
+}
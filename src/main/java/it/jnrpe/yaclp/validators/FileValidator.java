@@ -19,8 +19,6 @@ package it.jnrpe.yaclp.validators;
 import it.jnrpe.yaclp.IArgument;
 import it.jnrpe.yaclp.IOption;
 
-import java.io.File;
-
 /**
  * Validator for file arguments.
  * Can check:
@@ -32,8 +30,10 @@ import java.io.File;
  * <li>that passed path is a file</li>
  * <li>that passed path is a directorye</li>
  * </ul>
+ * Since all the checks access the file system, when parsing asynchronously they are executed
+ * outside of the parsing thread.
  */
-public class FileValidator implements IArgumentValidator {
+public class FileValidator implements IAsyncArgumentValidator {
 
   /**
    * Flag to enable the 'must exists' check.
@@ -70,13 +70,29 @@ public class FileValidator implements IArgumentValidator {
    */
   private final int enabledChecks;
 
+  /**
+   * Cache of the path attributes, <code>null</code> if attributes must always be read.
+   */
+  private final FileAttributeCache cache;
+
+  /**
+   * Whether symbolic links must be followed.
+   */
+  private final boolean followLinks;
+
   /**
    * Constructor.
    *
-   * @param checks enabled checks flags.
+   * @param checks      enabled checks flags.
+   * @param cache       cache of the path attributes (can be null)
+   * @param followLinks whether symbolic links must be followed
    */
-  private FileValidator(final int checks) {
+  private FileValidator(final int checks,
+                        final FileAttributeCache cache,
+                        final boolean followLinks) {
     this.enabledChecks = checks;
+    this.cache = cache;
+    this.followLinks = followLinks;
   }
 
   /**
@@ -92,7 +108,10 @@ public class FileValidator implements IArgumentValidator {
   @Override
   public void validate(final IOption option, final IArgument argument, final String value)
       throws ValidationException {
-    File pathToCheck = new File(value);
+    // All the enabled checks are evaluated against a single read of the path attributes
+    FileAttributes pathToCheck = cache == null
+        ? FileAttributes.read(value, followLinks)
+        : cache.get(value, followLinks);
     if (mustCheck(MUST_BE_FILE) && !pathToCheck.isFile()) {
       throw new ValidationException("Specified path (<%s>) is not a file", value);
     }
@@ -128,6 +147,16 @@ public class FileValidator implements IArgumentValidator {
      */
     private int enabledChecks = 0;
 
+    /**
+     * Cache of the path attributes.
+     */
+    private FileAttributeCache cache;
+
+    /**
+     * Whether symbolic links must be followed.
+     */
+    private boolean followLinks = true;
+
     /**
      * Constructor.
      */
@@ -198,13 +227,36 @@ public class FileValidator implements IArgumentValidator {
       return this;
     }
 
+    /**
+     * Symbolic links are not followed: a link to a file is neither a file nor a directory, and a
+     * dangling link exists. Access rights are always checked on the link target.
+     *
+     * @return this builder
+     */
+    public Builder noFollowLinks() {
+      followLinks = false;
+      return this;
+    }
+
+    /**
+     * Caches the attributes of the validated paths. By default, the file system is accessed at
+     * each validation.
+     *
+     * @param cache the cache to be used. It can be shared among many validators.
+     * @return this builder
+     */
+    public Builder withCache(final FileAttributeCache cache) {
+      this.cache = cache;
+      return this;
+    }
+
     /**
      * Builds the validator.
      *
      * @return a {@link FileValidator} instance
      */
     public FileValidator build() {
-      return new FileValidator(enabledChecks);
+      return new FileValidator(enabledChecks, cache, followLinks);
     }
   }
 }
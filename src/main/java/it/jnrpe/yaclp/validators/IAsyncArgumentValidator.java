@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package it.jnrpe.yaclp.validators;
+
+import it.jnrpe.yaclp.IArgument;
+import it.jnrpe.yaclp.IOption;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Interface for validators performing slow (typically I/O bound) checks.
+ * When the command line is parsed with {@link it.jnrpe.yaclp.Parser#parseAsync(String[])} these
+ * validators are not executed on the parsing thread: all of them are started after the command
+ * line has been parsed, so that the checks of different values run concurrently. Synchronous
+ * parse methods keep calling {@link #validate(IOption, IArgument, String)}.
+ */
+public interface IAsyncArgumentValidator extends IArgumentValidator {
+
+  /**
+   * Starts the validation of the argument value. The default implementation runs
+   * {@link #validate(IOption, IArgument, String)} on the given executor.
+   *
+   * @param option   the option owning the argument
+   * @param argument the argument
+   * @param value    the argument value
+   * @param executor the executor to be used for blocking operations
+   * @return a future completed when the validation ends. On failure, it must be completed
+   *     exceptionally with a {@link ValidationException} (optionally wrapped into a
+   *     {@link CompletionException}).
+   */
+  default CompletableFuture<Void> validateAsync(final IOption option,
+                                                final IArgument argument,
+                                                final String value,
+                                                final Executor executor) {
+    return CompletableFuture.runAsync(() -> {
+      try {
+        validate(option, argument, value);
+      } catch (ValidationException e) {
+        throw new CompletionException(e);
+      }
+    }, executor);
+  }
+}
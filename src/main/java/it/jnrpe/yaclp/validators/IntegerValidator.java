@@ -30,14 +30,14 @@ import it.jnrpe.yaclp.IOption;
 public class IntegerValidator implements IArgumentValidator {
 
   /**
-   * Minimum value or null.
+   * Minimum value ({@link Integer#MIN_VALUE} if not set).
    */
-  private final Integer min;
+  private final int min;
 
   /**
-   * Maximum value or null.
+   * Maximum value ({@link Integer#MAX_VALUE} if not set).
    */
-  private final Integer max;
+  private final int max;
 
   /**
    * Radix to be used to interpret the number string.
@@ -52,30 +52,31 @@ public class IntegerValidator implements IArgumentValidator {
    * @param radix radix used to parse the number string
    */
   private IntegerValidator(final Integer min, final Integer max, final int radix) {
-    this.min = min;
-    this.max = max;
+    this.min = min == null ? Integer.MIN_VALUE : min;
+    this.max = max == null ? Integer.MAX_VALUE : max;
     this.radix = radix;
   }
 
   @Override
   public void validate(final IOption option, final IArgument argument, final String value) throws
       ValidationException {
-    try {
-      Integer val = Integer.parseInt(value, radix);
-
-      if (min != null && val < min) {
-        throw new ValidationException(
-            "Value must be greater than %d (current value: %s)", min, value);
-      }
-
-      if (max != null && val > max) {
-        throw new ValidationException(
-            "Value must be smaller than %d (current value: %s)", max, value);
-      }
-    } catch (NumberFormatException nfe) {
+    final long parsed = NumberScanner.isLong(value, radix)
+        ? NumberScanner.scanLong(value, radix) : Long.MIN_VALUE;
+    if (parsed < Integer.MIN_VALUE || parsed > Integer.MAX_VALUE) {
       throw new ValidationException(
           "Value [%s] is not a correct number with radix [%d]", value, radix);
     }
+
+    final int val = (int) parsed;
+    if (val < min) {
+      throw new ValidationException(
+          "Value must be greater than %d (current value: %s)", min, value);
+    }
+
+    if (val > max) {
+      throw new ValidationException(
+          "Value must be smaller than %d (current value: %s)", max, value);
+    }
   }
 
   /**
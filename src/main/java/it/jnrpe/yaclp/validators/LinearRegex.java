@@ -0,0 +1,1306 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package it.jnrpe.yaclp.validators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Regular expression engine whose matching time is linear in the length of the value, whatever
+ * the pattern: the pattern is compiled to a non deterministic automaton whose states are all
+ * followed at the same time (Thompson construction), so there is never any backtracking.
+ * <p>
+ * The supported syntax is a subset of {@link java.util.regex.Pattern}, with the same meaning:
+ * <ul>
+ * <li>literals, <code>.</code>, <code>\t \n \r \f \a \e</code>, <code>\xhh</code>,
+ * <code>&#92;uhhhh</code>, <code>\Q...\E</code> and escaped metacharacters;</li>
+ * <li>character classes (<code>[a-z_]</code>, <code>[^0-9]</code>), <code>\d \D \w \W \s
+ * \S</code>;</li>
+ * <li>groups (<code>(...)</code> and <code>(?:...)</code>) and alternations;</li>
+ * <li>greedy and reluctant quantifiers: <code>* + ? {n} {n,} {n,m}</code>;</li>
+ * <li><code>^</code> and <code>$</code>.</li>
+ * </ul>
+ * Back references, look arounds, possessive quantifiers, flags, Unicode properties and boundary
+ * matchers are not supported. Patterns consisting of a literal, a literal followed or preceded by
+ * a repeated class, or a single repeated class are matched without running the automaton.
+ * Only whole values are matched, as {@link java.util.regex.Matcher#matches()} does.
+ */
+final class LinearRegex {
+
+  /**
+   * Consumes a code point belonging to the class args1[pc].
+   */
+  private static final int OP_CLASS = 0;
+
+  /**
+   * Continues both from args1[pc] and from args2[pc].
+   */
+  private static final int OP_SPLIT = 1;
+
+  /**
+   * Continues from args1[pc].
+   */
+  private static final int OP_JUMP = 2;
+
+  /**
+   * Continues only at the beginning of the value.
+   */
+  private static final int OP_BEGIN = 3;
+
+  /**
+   * Continues only at the end of the value, or before a final line terminator.
+   */
+  private static final int OP_END = 4;
+
+  /**
+   * The value matches.
+   */
+  private static final int OP_MATCH = 5;
+
+  /**
+   * Maximum number of instructions of a compiled pattern.
+   */
+  private static final int MAX_INSTRUCTIONS = 10000;
+
+  /**
+   * The pattern must be matched by the automaton.
+   */
+  private static final int FAST_NONE = 0;
+
+  /**
+   * The pattern is a literal.
+   */
+  private static final int FAST_LITERAL = 1;
+
+  /**
+   * The pattern is a literal followed by any number of code points of a class.
+   */
+  private static final int FAST_PREFIX = 2;
+
+  /**
+   * The pattern is any number of code points of a class followed by a literal.
+   */
+  private static final int FAST_SUFFIX = 3;
+
+  /**
+   * The pattern is a class, repeated between a minimum and a maximum number of times.
+   */
+  private static final int FAST_CLASS = 4;
+
+  /**
+   * Code points not matched by <code>.</code>.
+   */
+  private static final int[] LINE_TERMINATORS =
+      ranges('\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028, 0x2029);
+
+  /**
+   * <code>\d</code>.
+   */
+  private static final int[] DIGITS = ranges('0', '9');
+
+  /**
+   * <code>\w</code>.
+   */
+  private static final int[] WORD = ranges('0', '9', 'A', 'Z', '_', '_', 'a', 'z');
+
+  /**
+   * <code>\s</code>.
+   */
+  private static final int[] SPACES = ranges('\t', '\r', ' ', ' ');
+
+  /**
+   * Instructions.
+   */
+  private final int[] ops;
+
+  /**
+   * First argument of each instruction.
+   */
+  private final int[] args1;
+
+  /**
+   * Second argument of each instruction.
+   */
+  private final int[] args2;
+
+  /**
+   * Character classes, as sorted and disjoint inclusive code point ranges.
+   */
+  private final int[][] classes;
+
+  /**
+   * One of the FAST_* constants.
+   */
+  private final int fastPath;
+
+  /**
+   * The literal of the fast paths.
+   */
+  private final String literal;
+
+  /**
+   * The class of the fast paths.
+   */
+  private final int[] fastClass;
+
+  /**
+   * Minimum number of code points of {@link #fastClass}.
+   */
+  private final int fastMin;
+
+  /**
+   * Maximum number of code points of {@link #fastClass}, -1 if unbounded.
+   */
+  private final int fastMax;
+
+  /**
+   * Per thread buffers used to run the automaton.
+   */
+  private final ThreadLocal<Threads> threads;
+
+  /**
+   * Constructor.
+   *
+   * @param program the compiled program
+   * @param node    the parsed pattern
+   */
+  private LinearRegex(final Program program, final Node node) {
+    this.ops = Arrays.copyOf(program.ops, program.size);
+    this.args1 = Arrays.copyOf(program.args1, program.size);
+    this.args2 = Arrays.copyOf(program.args2, program.size);
+    this.classes = program.classes.toArray(new int[program.classes.size()][]);
+    this.threads = ThreadLocal.withInitial(() -> new Threads(ops.length));
+
+    // leading ^ and trailing $ don't change the result when the whole value must match
+    List<Node> items = new ArrayList<>();
+    flatten(node, items);
+    if (!items.isEmpty() && items.get(0).type == Node.BEGIN) {
+      items.remove(0);
+    }
+    if (!items.isEmpty() && items.get(items.size() - 1).type == Node.END) {
+      items.remove(items.size() - 1);
+    }
+
+    int fast = FAST_NONE;
+    int literalStart = 0;
+    int literalEnd = items.size();
+    Node repeated = null;
+    if (items.size() == 1 && items.get(0).isRepeatedClass() && !items.get(0).isLiteral()) {
+      fast = FAST_CLASS;
+      repeated = items.get(0);
+      literalEnd = 0;
+    } else if (items.size() > 1 && items.get(items.size() - 1).isStar()) {
+      fast = FAST_PREFIX;
+      repeated = items.get(items.size() - 1);
+      literalEnd--;
+    } else if (items.size() > 1 && items.get(0).isStar()) {
+      fast = FAST_SUFFIX;
+      repeated = items.get(0);
+      literalStart++;
+    } else if (!items.isEmpty()) {
+      fast = FAST_LITERAL;
+    }
+
+    StringBuilder sb = new StringBuilder();
+    for (int i = literalStart; i < literalEnd && fast != FAST_NONE; i++) {
+      if (items.get(i).isLiteral()) {
+        sb.appendCodePoint(items.get(i).ranges[0]);
+      } else {
+        fast = FAST_NONE;
+      }
+    }
+
+    this.fastPath = fast;
+    this.literal = sb.toString();
+    if (repeated != null && fast != FAST_NONE) {
+      Node cls = repeated.type == Node.REPEAT ? repeated.children.get(0) : repeated;
+      this.fastClass = cls.ranges;
+      this.fastMin = repeated.type == Node.REPEAT ? repeated.min : 1;
+      this.fastMax = repeated.type == Node.REPEAT ? repeated.max : 1;
+    } else {
+      this.fastClass = null;
+      this.fastMin = 0;
+      this.fastMax = 0;
+    }
+  }
+
+  /**
+   * Compiles a pattern.
+   *
+   * @param regexp the pattern
+   * @return the compiled pattern
+   * @throws IllegalArgumentException if the pattern uses unsupported constructs or is too big
+   */
+  static LinearRegex compile(final String regexp) {
+    Node node = new RegexParser(regexp).parse();
+    Program program = new Program();
+    program.emit(node);
+    program.add(OP_MATCH, 0, 0);
+    return new LinearRegex(program, node);
+  }
+
+  /**
+   * Checks if the whole value matches the pattern.
+   *
+   * @param value the value
+   * @return <code>true</code> if the value matches
+   */
+  boolean matches(final CharSequence value) {
+    switch (fastPath) {
+      case FAST_LITERAL:
+        return literal.contentEquals(value);
+      case FAST_PREFIX:
+        return startsWith(value, literal)
+            && countIn(value, literal.length(), value.length(), fastClass, -1) >= 0;
+      case FAST_SUFFIX:
+        return endsWith(value, literal)
+            && countIn(value, 0, value.length() - literal.length(), fastClass, -1) >= 0;
+      case FAST_CLASS:
+        int count = countIn(value, 0, value.length(), fastClass, fastMax);
+        return count >= fastMin;
+      default:
+        return run(value);
+    }
+  }
+
+  /**
+   * Runs the automaton: all the threads advance one code point at a time.
+   *
+   * @param value the value
+   * @return <code>true</code> if the value matches
+   */
+  private boolean run(final CharSequence value) {
+    final Threads buffers = threads.get();
+    StateSet current = buffers.current;
+    StateSet next = buffers.next;
+    final int len = value.length();
+
+    current.clear();
+    follow(current, 0, value, 0, buffers.stack);
+    int pos = 0;
+    while (true) {
+      if (pos == len) {
+        for (int i = 0; i < current.size; i++) {
+          if (ops[current.dense[i]] == OP_MATCH) {
+            return true;
+          }
+        }
+        return false;
+      }
+      if (current.size == 0) {
+        return false;
+      }
+
+      final int codePoint = Character.codePointAt(value, pos);
+      final int nextPos = pos + Character.charCount(codePoint);
+      next.clear();
+      for (int i = 0; i < current.size; i++) {
+        final int pc = current.dense[i];
+        if (ops[pc] == OP_CLASS && contains(classes[args1[pc]], codePoint)) {
+          follow(next, pc + 1, value, nextPos, buffers.stack);
+        }
+      }
+
+      StateSet tmp = current;
+      current = next;
+      next = tmp;
+      pos = nextPos;
+    }
+  }
+
+  /**
+   * Adds a state and all the states reachable from it without consuming code points.
+   *
+   * @param set   the set receiving the states
+   * @param start the state
+   * @param value the value
+   * @param pos   current position inside the value
+   * @param stack buffer used for the visit
+   */
+  private void follow(final StateSet set, final int start, final CharSequence value,
+                      final int pos, final int[] stack) {
+    int top = 0;
+    stack[top++] = start;
+    while (top > 0) {
+      final int pc = stack[--top];
+      if (!set.add(pc)) {
+        continue;
+      }
+      switch (ops[pc]) {
+        case OP_SPLIT:
+          stack[top++] = args2[pc];
+          stack[top++] = args1[pc];
+          break;
+        case OP_JUMP:
+          stack[top++] = args1[pc];
+          break;
+        case OP_BEGIN:
+          if (pos == 0) {
+            stack[top++] = pc + 1;
+          }
+          break;
+        case OP_END:
+          if (isEnd(value, pos)) {
+            stack[top++] = pc + 1;
+          }
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  /**
+   * Checks if <code>$</code> matches at the given position: at the end of the value or before a
+   * final line terminator.
+   *
+   * @param value the value
+   * @param pos   the position
+   * @return <code>true</code> if <code>$</code> matches
+   */
+  private static boolean isEnd(final CharSequence value, final int pos) {
+    final int len = value.length();
+    if (pos == len) {
+      return true;
+    }
+    if (pos == len - 2) {
+      return value.charAt(pos) == '\r' && value.charAt(pos + 1) == '\n';
+    }
+    if (pos == len - 1) {
+      final char c = value.charAt(pos);
+      if (c == '\n') {
+        return pos == 0 || value.charAt(pos - 1) != '\r';
+      }
+      return contains(LINE_TERMINATORS, c);
+    }
+    return false;
+  }
+
+  /**
+   * Checks if the value starts with the given prefix.
+   *
+   * @param value  the value
+   * @param prefix the prefix
+   * @return <code>true</code> if the value starts with the prefix
+   */
+  private static boolean startsWith(final CharSequence value, final String prefix) {
+    if (value.length() < prefix.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (value.charAt(i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks if the value ends with the given suffix.
+   *
+   * @param value  the value
+   * @param suffix the suffix
+   * @return <code>true</code> if the value ends with the suffix
+   */
+  private static boolean endsWith(final CharSequence value, final String suffix) {
+    final int offset = value.length() - suffix.length();
+    if (offset < 0) {
+      return false;
+    }
+    for (int i = 0; i < suffix.length(); i++) {
+      if (value.charAt(offset + i) != suffix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Counts the code points of a part of the value, checking they all belong to a class.
+   *
+   * @param value  the value
+   * @param from   start of the part
+   * @param to     end (exclusive) of the part
+   * @param ranges the class
+   * @param max    maximum number of code points, -1 if unbounded
+   * @return the number of code points or -1 if a code point does not belong to the class or
+   *     there are more than max code points
+   */
+  private static int countIn(final CharSequence value, final int from, final int to,
+                             final int[] ranges, final int max) {
+    int count = 0;
+    int pos = from;
+    while (pos < to) {
+      final int codePoint = Character.codePointAt(value, pos);
+      if (!contains(ranges, codePoint) || count == max) {
+        return -1;
+      }
+      count++;
+      pos += Character.charCount(codePoint);
+    }
+    return count;
+  }
+
+  /**
+   * Checks if a code point belongs to a class.
+   *
+   * @param ranges the class
+   * @param codePoint the code point
+   * @return <code>true</code> if the code point belongs to the class
+   */
+  private static boolean contains(final int[] ranges, final int codePoint) {
+    // binary search of the last range starting before the code point
+    int low = 0;
+    int high = ranges.length / 2 - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      if (ranges[mid * 2] > codePoint) {
+        high = mid - 1;
+      } else if (ranges[mid * 2 + 1] < codePoint) {
+        low = mid + 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Builds a class from pairs of inclusive bounds.
+   *
+   * @param bounds the bounds
+   * @return the normalized class
+   */
+  private static int[] ranges(final int... bounds) {
+    return normalize(bounds, bounds.length);
+  }
+
+  /**
+   * Sorts and merges ranges.
+   *
+   * @param bounds pairs of inclusive bounds
+   * @param len    number of used elements of bounds
+   * @return sorted and disjoint ranges
+   */
+  private static int[] normalize(final int[] bounds, final int len) {
+    final long[] sorted = new long[len / 2];
+    for (int i = 0; i < sorted.length; i++) {
+      sorted[i] = ((long) bounds[i * 2] << 32) | bounds[i * 2 + 1];
+    }
+    Arrays.sort(sorted);
+
+    final int[] res = new int[len];
+    int size = 0;
+    for (long range : sorted) {
+      final int low = (int) (range >>> 32);
+      final int high = (int) range;
+      if (size > 0 && low <= res[size - 1] + 1) {
+        res[size - 1] = Math.max(res[size - 1], high);
+      } else {
+        res[size++] = low;
+        res[size++] = high;
+      }
+    }
+    return Arrays.copyOf(res, size);
+  }
+
+  /**
+   * Returns the code points not belonging to a class.
+   *
+   * @param ranges the class
+   * @return the complement of the class
+   */
+  private static int[] complement(final int[] ranges) {
+    final int[] res = new int[ranges.length + 2];
+    int size = 0;
+    int next = 0;
+    for (int i = 0; i < ranges.length; i += 2) {
+      if (ranges[i] > next) {
+        res[size++] = next;
+        res[size++] = ranges[i] - 1;
+      }
+      next = ranges[i + 1] + 1;
+    }
+    if (next <= Character.MAX_CODE_POINT) {
+      res[size++] = next;
+      res[size++] = Character.MAX_CODE_POINT;
+    }
+    return Arrays.copyOf(res, size);
+  }
+
+  /**
+   * Flattens nested concatenations.
+   *
+   * @param node  the node
+   * @param items receives the concatenated nodes
+   */
+  private static void flatten(final Node node, final List<Node> items) {
+    if (node.type == Node.CONCAT) {
+      for (Node child : node.children) {
+        flatten(child, items);
+      }
+    } else {
+      items.add(node);
+    }
+  }
+
+  /**
+   * Parsed pattern.
+   */
+  private static final class Node {
+
+    /**
+     * Matches a code point of a class.
+     */
+    private static final int CLASS = 0;
+
+    /**
+     * Matches all the children, one after the other.
+     */
+    private static final int CONCAT = 1;
+
+    /**
+     * Matches any of the children.
+     */
+    private static final int ALTERNATION = 2;
+
+    /**
+     * Matches the child between min and max times.
+     */
+    private static final int REPEAT = 3;
+
+    /**
+     * <code>^</code>.
+     */
+    private static final int BEGIN = 4;
+
+    /**
+     * <code>$</code>.
+     */
+    private static final int END = 5;
+
+    /**
+     * Node type.
+     */
+    private final int type;
+
+    /**
+     * The class of CLASS nodes.
+     */
+    private final int[] ranges;
+
+    /**
+     * The children.
+     */
+    private final List<Node> children;
+
+    /**
+     * Minimum number of repetitions.
+     */
+    private final int min;
+
+    /**
+     * Maximum number of repetitions, -1 if unbounded.
+     */
+    private final int max;
+
+    /**
+     * Constructor.
+     *
+     * @param type     node type
+     * @param ranges   the class of CLASS nodes
+     * @param children the children
+     * @param min      minimum number of repetitions
+     * @param max      maximum number of repetitions
+     */
+    private Node(final int type, final int[] ranges, final List<Node> children,
+                 final int min, final int max) {
+      this.type = type;
+      this.ranges = ranges;
+      this.children = children;
+      this.min = min;
+      this.max = max;
+    }
+
+    /**
+     * Builds a CLASS node.
+     *
+     * @param ranges the class
+     * @return the node
+     */
+    private static Node ofClass(final int[] ranges) {
+      return new Node(CLASS, ranges, null, 1, 1);
+    }
+
+    /**
+     * Builds a node with children.
+     *
+     * @param type     node type
+     * @param children the children
+     * @return the node
+     */
+    private static Node of(final int type, final List<Node> children) {
+      return new Node(type, null, children, 1, 1);
+    }
+
+    /**
+     * Builds a REPEAT node.
+     *
+     * @param child the repeated node
+     * @param min   minimum number of repetitions
+     * @param max   maximum number of repetitions, -1 if unbounded
+     * @return the node
+     */
+    private static Node repeat(final Node child, final int min, final int max) {
+      List<Node> children = new ArrayList<>(1);
+      children.add(child);
+      return new Node(REPEAT, null, children, min, max);
+    }
+
+    /**
+     * Checks if the node matches a single code point.
+     *
+     * @return <code>true</code> for literals
+     */
+    private boolean isLiteral() {
+      return type == CLASS && ranges.length == 2 && ranges[0] == ranges[1];
+    }
+
+    /**
+     * Checks if the node is a class, or a repeated class.
+     *
+     * @return <code>true</code> for classes and repeated classes
+     */
+    private boolean isRepeatedClass() {
+      return type == CLASS || type == REPEAT && children.get(0).type == CLASS;
+    }
+
+    /**
+     * Checks if the node is a class repeated any number of times.
+     *
+     * @return <code>true</code> for <code>[...]*</code>
+     */
+    private boolean isStar() {
+      return type == REPEAT && children.get(0).type == CLASS && min == 0 && max == -1;
+    }
+  }
+
+  /**
+   * Parses a pattern.
+   */
+  private static final class RegexParser {
+
+    /**
+     * The pattern.
+     */
+    private final String regexp;
+
+    /**
+     * Current position inside the pattern.
+     */
+    private int pos;
+
+    /**
+     * Constructor.
+     *
+     * @param regexp the pattern
+     */
+    private RegexParser(final String regexp) {
+      this.regexp = removeQuotes(regexp);
+    }
+
+    /**
+     * Replaces each <code>\Q...\E</code> quotation with the escaped quoted characters, as done
+     * by {@link java.util.regex.Pattern}: a quantifier following the quotation applies to its
+     * last character only.
+     *
+     * @param regexp the pattern
+     * @return the pattern without quotations
+     */
+    private static String removeQuotes(final String regexp) {
+      if (regexp.indexOf("\\Q") < 0) {
+        return regexp;
+      }
+
+      StringBuilder res = new StringBuilder(regexp.length() * 2);
+      int i = 0;
+      while (i < regexp.length()) {
+        char c = regexp.charAt(i++);
+        if (c != '\\' || i == regexp.length()) {
+          res.append(c);
+          continue;
+        }
+        char escaped = regexp.charAt(i++);
+        if (escaped != 'Q') {
+          res.append(c).append(escaped);
+          continue;
+        }
+
+        int end = regexp.indexOf("\\E", i);
+        if (end < 0) {
+          end = regexp.length();
+        }
+        for (; i < end; i++) {
+          char quoted = regexp.charAt(i);
+          // letters and digits would become escape sequences, non ASCII characters are literals
+          if (quoted < 0x80 && !Character.isLetterOrDigit(quoted)) {
+            res.append('\\');
+          }
+          res.append(quoted);
+        }
+        i = Math.min(end + 2, regexp.length());
+      }
+      return res.toString();
+    }
+
+    /**
+     * Parses the whole pattern.
+     *
+     * @return the parsed pattern
+     */
+    private Node parse() {
+      Node res = parseAlternation();
+      if (pos < regexp.length()) {
+        throw error("Unmatched ')'");
+      }
+      return res;
+    }
+
+    /**
+     * Builds the exception for a pattern that can't be compiled.
+     *
+     * @param message the error message
+     * @return the exception
+     */
+    private IllegalArgumentException error(final String message) {
+      return new IllegalArgumentException(
+          String.format("%s at index %d of pattern '%s'", message, pos, regexp));
+    }
+
+    /**
+     * Checks the next character, without consuming it.
+     *
+     * @param c the character
+     * @return <code>true</code> if the next character is c
+     */
+    private boolean peek(final char c) {
+      return pos < regexp.length() && regexp.charAt(pos) == c;
+    }
+
+    /**
+     * Consumes the next code point.
+     *
+     * @return the code point
+     */
+    private int next() {
+      if (pos >= regexp.length()) {
+        throw error("Unexpected end of pattern");
+      }
+      int codePoint = regexp.codePointAt(pos);
+      pos += Character.charCount(codePoint);
+      return codePoint;
+    }
+
+    /**
+     * Parses alternatives.
+     *
+     * @return the parsed node
+     */
+    private Node parseAlternation() {
+      List<Node> branches = new ArrayList<>();
+      branches.add(parseConcatenation());
+      while (peek('|')) {
+        pos++;
+        branches.add(parseConcatenation());
+      }
+      return branches.size() == 1 ? branches.get(0) : Node.of(Node.ALTERNATION, branches);
+    }
+
+    /**
+     * Parses a sequence of (optionally repeated) atoms.
+     *
+     * @return the parsed node
+     */
+    private Node parseConcatenation() {
+      List<Node> items = new ArrayList<>();
+      while (pos < regexp.length() && !peek('|') && !peek(')')) {
+        items.add(parseRepetition());
+      }
+      return items.size() == 1 ? items.get(0) : Node.of(Node.CONCAT, items);
+    }
+
+    /**
+     * Parses an atom and its quantifiers.
+     *
+     * @return the parsed node
+     */
+    private Node parseRepetition() {
+      Node res = parseAtom();
+      while (pos < regexp.length()) {
+        int min;
+        int max;
+        char c = regexp.charAt(pos);
+        if (c == '*') {
+          min = 0;
+          max = -1;
+        } else if (c == '+') {
+          min = 1;
+          max = -1;
+        } else if (c == '?') {
+          min = 0;
+          max = 1;
+        } else if (c == '{') {
+          pos++;
+          min = parseNumber();
+          max = min;
+          if (peek(',')) {
+            pos++;
+            max = peek('}') ? -1 : parseNumber();
+          }
+          if (!peek('}') || max != -1 && max < min) {
+            throw error("Invalid repetition");
+          }
+        } else {
+          return res;
+        }
+        pos++;
+
+        // reluctant quantifiers match the same values
+        if (peek('?')) {
+          pos++;
+        } else if (peek('+')) {
+          throw error("Possessive quantifiers are not supported");
+        }
+        res = Node.repeat(res, min, max);
+      }
+      return res;
+    }
+
+    /**
+     * Parses a decimal number.
+     *
+     * @return the number
+     */
+    private int parseNumber() {
+      int start = pos;
+      long res = 0;
+      while (pos < regexp.length() && regexp.charAt(pos) >= '0' && regexp.charAt(pos) <= '9') {
+        res = Math.min(res * 10 + regexp.charAt(pos++) - '0', Integer.MAX_VALUE);
+      }
+      if (pos == start) {
+        throw error("Invalid repetition");
+      }
+      return (int) res;
+    }
+
+    /**
+     * Parses an atom.
+     *
+     * @return the parsed node
+     */
+    private Node parseAtom() {
+      int c = next();
+      switch (c) {
+        case '(':
+          if (peek('?')) {
+            if (!regexp.startsWith("?:", pos)) {
+              throw error("Only capturing and non capturing groups are supported");
+            }
+            pos += 2;
+          }
+          Node group = parseAlternation();
+          if (!peek(')')) {
+            throw error("Unclosed group");
+          }
+          pos++;
+          return group;
+        case '[':
+          return Node.ofClass(parseClass());
+        case '.':
+          return Node.ofClass(complement(LINE_TERMINATORS));
+        case '^':
+          return Node.of(Node.BEGIN, null);
+        case '$':
+          return Node.of(Node.END, null);
+        case '\\':
+          return Node.ofClass(parseEscape());
+        case '*':
+        case '+':
+        case '?':
+        case '{':
+          throw error("Dangling meta character '" + (char) c + "'");
+        default:
+          return Node.ofClass(ranges(c, c));
+      }
+    }
+
+    /**
+     * Parses an escape sequence (the <code>\</code> has already been consumed).
+     *
+     * @return the class matched by the escape sequence
+     */
+    private int[] parseEscape() {
+      int c = next();
+      switch (c) {
+        case 'd':
+          return DIGITS;
+        case 'D':
+          return complement(DIGITS);
+        case 'w':
+          return WORD;
+        case 'W':
+          return complement(WORD);
+        case 's':
+          return SPACES;
+        case 'S':
+          return complement(SPACES);
+        case 't':
+          return ranges('\t', '\t');
+        case 'n':
+          return ranges('\n', '\n');
+        case 'r':
+          return ranges('\r', '\r');
+        case 'f':
+          return ranges('\f', '\f');
+        case 'a':
+          return ranges('\u0007', '\u0007');
+        case 'e':
+          return ranges('\u001B', '\u001B');
+        case 'x':
+          return single(parseHex(2));
+        case 'u':
+          return single(parseHex(4));
+        default:
+          if (Character.isLetterOrDigit(c)) {
+            throw error("Unsupported escape sequence '\\" + new String(Character.toChars(c)) + "'");
+          }
+          return ranges(c, c);
+      }
+    }
+
+    /**
+     * Builds a class matching a single code point.
+     *
+     * @param codePoint the code point
+     * @return the class
+     */
+    private static int[] single(final int codePoint) {
+      return ranges(codePoint, codePoint);
+    }
+
+    /**
+     * Parses an hexadecimal number with the given number of digits.
+     *
+     * @param digits number of digits
+     * @return the number
+     */
+    private int parseHex(final int digits) {
+      int res = 0;
+      for (int i = 0; i < digits; i++) {
+        int digit = pos < regexp.length() ? Character.digit(regexp.charAt(pos), 16) : -1;
+        if (digit < 0) {
+          throw error("Invalid hexadecimal escape sequence");
+        }
+        res = res * 16 + digit;
+        pos++;
+      }
+      return res;
+    }
+
+    /**
+     * Parses a character class (the <code>[</code> has already been consumed).
+     *
+     * @return the class
+     */
+    private int[] parseClass() {
+      boolean negated = false;
+      if (peek('^')) {
+        negated = true;
+        pos++;
+      }
+
+      int[] bounds = new int[16];
+      int size = 0;
+      boolean first = true;
+      while (true) {
+        if (pos >= regexp.length()) {
+          throw error("Unclosed character class");
+        }
+        if (peek(']') && !first) {
+          pos++;
+          break;
+        }
+        if (peek('[') || regexp.startsWith("&&", pos)) {
+          throw error("Nested classes and intersections are not supported");
+        }
+        first = false;
+
+        int[] item = parseClassItem();
+        if (item.length == 2 && item[0] == item[1] && peek('-')
+            && pos + 1 < regexp.length() && regexp.charAt(pos + 1) != ']') {
+          pos++;
+          int[] upper = parseClassItem();
+          if (upper.length != 2 || upper[0] != upper[1] || upper[0] < item[0]) {
+            throw error("Illegal character range");
+          }
+          item = new int[] {item[0], upper[0]};
+        }
+
+        if (size + item.length > bounds.length) {
+          bounds = Arrays.copyOf(bounds, Math.max(bounds.length * 2, size + item.length));
+        }
+        System.arraycopy(item, 0, bounds, size, item.length);
+        size += item.length;
+      }
+
+      int[] res = normalize(bounds, size);
+      return negated ? complement(res) : res;
+    }
+
+    /**
+     * Parses a code point or an escape sequence inside a character class.
+     *
+     * @return the class matched by the item
+     */
+    private int[] parseClassItem() {
+      int c = next();
+      if (c == '\\') {
+        return parseEscape();
+      }
+      return ranges(c, c);
+    }
+  }
+
+  /**
+   * Compiled program.
+   */
+  private static final class Program {
+
+    /**
+     * Instructions.
+     */
+    private int[] ops = new int[16];
+
+    /**
+     * First argument of each instruction.
+     */
+    private int[] args1 = new int[16];
+
+    /**
+     * Second argument of each instruction.
+     */
+    private int[] args2 = new int[16];
+
+    /**
+     * Number of instructions.
+     */
+    private int size;
+
+    /**
+     * Character classes.
+     */
+    private final List<int[]> classes = new ArrayList<>();
+
+    /**
+     * Adds an instruction.
+     *
+     * @param op   the instruction
+     * @param arg1 the first argument
+     * @param arg2 the second argument
+     * @return the position of the instruction
+     */
+    private int add(final int op, final int arg1, final int arg2) {
+      if (size == MAX_INSTRUCTIONS) {
+        throw new IllegalArgumentException("Pattern is too big for the linear regex engine");
+      }
+      if (size == ops.length) {
+        ops = Arrays.copyOf(ops, size * 2);
+        args1 = Arrays.copyOf(args1, size * 2);
+        args2 = Arrays.copyOf(args2, size * 2);
+      }
+      ops[size] = op;
+      args1[size] = arg1;
+      args2[size] = arg2;
+      return size++;
+    }
+
+    /**
+     * Compiles a node.
+     *
+     * @param node the node
+     */
+    private void emit(final Node node) {
+      switch (node.type) {
+        case Node.CLASS:
+          classes.add(node.ranges);
+          add(OP_CLASS, classes.size() - 1, 0);
+          break;
+        case Node.CONCAT:
+          for (Node child : node.children) {
+            emit(child);
+          }
+          break;
+        case Node.ALTERNATION:
+          emitAlternation(node.children);
+          break;
+        case Node.REPEAT:
+          emitRepetition(node.children.get(0), node.min, node.max);
+          break;
+        case Node.BEGIN:
+          add(OP_BEGIN, 0, 0);
+          break;
+        default:
+          add(OP_END, 0, 0);
+          break;
+      }
+    }
+
+    /**
+     * Compiles an alternation.
+     *
+     * @param branches the alternatives
+     */
+    private void emitAlternation(final List<Node> branches) {
+      int[] jumps = new int[branches.size() - 1];
+      for (int i = 0; i < jumps.length; i++) {
+        int split = add(OP_SPLIT, size + 1, 0);
+        emit(branches.get(i));
+        jumps[i] = add(OP_JUMP, 0, 0);
+        args2[split] = size;
+      }
+      emit(branches.get(jumps.length));
+      for (int jump : jumps) {
+        args1[jump] = size;
+      }
+    }
+
+    /**
+     * Compiles a repetition.
+     *
+     * @param child the repeated node
+     * @param min   minimum number of repetitions
+     * @param max   maximum number of repetitions, -1 if unbounded
+     */
+    private void emitRepetition(final Node child, final int min, final int max) {
+      for (int i = 0; i < min; i++) {
+        emit(child);
+      }
+      if (max == -1) {
+        int split = add(OP_SPLIT, size + 1, 0);
+        emit(child);
+        add(OP_JUMP, split, 0);
+        args2[split] = size;
+        return;
+      }
+      int[] splits = new int[max - min];
+      for (int i = 0; i < splits.length; i++) {
+        splits[i] = add(OP_SPLIT, size + 1, 0);
+        emit(child);
+      }
+      for (int split : splits) {
+        args2[split] = size;
+      }
+    }
+  }
+
+  /**
+   * Set of states, with constant time insertion and clearing.
+   */
+  private static final class StateSet {
+
+    /**
+     * The states, in insertion order.
+     */
+    private final int[] dense;
+
+    /**
+     * Position of each state inside {@link #dense}.
+     */
+    private final int[] sparse;
+
+    /**
+     * Number of states.
+     */
+    private int size;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity number of states of the program
+     */
+    private StateSet(final int capacity) {
+      this.dense = new int[capacity];
+      this.sparse = new int[capacity];
+    }
+
+    /**
+     * Adds a state.
+     *
+     * @param state the state
+     * @return <code>false</code> if the state was already present
+     */
+    private boolean add(final int state) {
+      final int index = sparse[state];
+      if (index < size && dense[index] == state) {
+        return false;
+      }
+      sparse[state] = size;
+      dense[size++] = state;
+      return true;
+    }
+
+    /**
+     * Removes all the states.
+     */
+    private void clear() {
+      size = 0;
+    }
+  }
+
+  /**
+   * Buffers used to run the automaton.
+   */
+  private static final class Threads {
+
+    /**
+     * States reached at the current position.
+     */
+    private final StateSet current;
+
+    /**
+     * States reached at the next position.
+     */
+    private final StateSet next;
+
+    /**
+     * Stack used to follow the states not consuming code points.
+     */
+    private final int[] stack;
+
+    /**
+     * Constructor.
+     *
+     * @param states number of states of the program
+     */
+    private Threads(final int states) {
+      this.current = new StateSet(states);
+      this.next = new StateSet(states);
+      this.stack = new int[states * 2 + 2];
+    }
+  }
+}
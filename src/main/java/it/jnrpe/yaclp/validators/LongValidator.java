@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package it.jnrpe.yaclp.validators;
+
+import it.jnrpe.yaclp.IArgument;
+import it.jnrpe.yaclp.IOption;
+
+/**
+ * Validator for long arguments.
+ * It can validate:
+ * <ul>
+ * <li>Minimum value</li>
+ * <li>Maximum value</li>
+ * </ul>
+ */
+public class LongValidator implements IArgumentValidator {
+
+  /**
+   * Minimum value ({@link Long#MIN_VALUE} if not set).
+   */
+  private final long min;
+
+  /**
+   * Maximum value ({@link Long#MAX_VALUE} if not set).
+   */
+  private final long max;
+
+  /**
+   * Radix to be used to interpret the number string.
+   */
+  private final int radix;
+
+  /**
+   * Constructor.
+   *
+   * @param min   minimum value
+   * @param max   maximum value
+   * @param radix radix used to parse the number string
+   */
+  private LongValidator(final long min, final long max, final int radix) {
+    this.min = min;
+    this.max = max;
+    this.radix = radix;
+  }
+
+  @Override
+  public void validate(final IOption option, final IArgument argument, final String value) throws
+      ValidationException {
+    if (!NumberScanner.isLong(value, radix)) {
+      throw new ValidationException(
+          "Value [%s] is not a correct number with radix [%d]", value, radix);
+    }
+
+    final long val = NumberScanner.scanLong(value, radix);
+    if (val < min) {
+      throw new ValidationException(
+          "Value must be greater than %d (current value: %s)", min, value);
+    }
+
+    if (val > max) {
+      throw new ValidationException(
+          "Value must be smaller than %d (current value: %s)", max, value);
+    }
+  }
+
+  /**
+   * Builder for {@link LongValidator} objects.
+   */
+  public static class Builder {
+
+    /**
+     * Minimum value. Default: {@link Long#MIN_VALUE}.
+     */
+    private long min = Long.MIN_VALUE;
+
+    /**
+     * Maximum value. Default: {@link Long#MAX_VALUE}.
+     */
+    private long max = Long.MAX_VALUE;
+
+    /**
+     * Radix. Default: 10.
+     */
+    private int radix = 10;
+
+    /**
+     * Constructor.
+     */
+    Builder() {
+    }
+
+    /**
+     * Sets the minimum value (inclusive).
+     *
+     * @param min minimum value
+     * @return this builder
+     */
+    public Builder min(final long min) {
+      this.min = min;
+      return this;
+    }
+
+    /**
+     * Sets the maximum value (inclusive).
+     *
+     * @param max maximum value
+     * @return this builder
+     */
+    public Builder max(final long max) {
+      this.max = max;
+      return this;
+    }
+
+    /**
+     * Sets the radix used to parse the number string.
+     *
+     * @param radix the radix
+     * @return this builder
+     */
+    public Builder radix(final int radix) {
+      this.radix = radix;
+      return this;
+    }
+
+    /**
+     * Builds the {@link LongValidator} object.
+     *
+     * @return a {@link LongValidator} instance configured with the given parameters.
+     */
+    public LongValidator build() {
+      return new LongValidator(min, max, radix);
+    }
+  }
+}
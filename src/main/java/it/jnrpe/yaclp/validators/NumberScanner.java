@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package it.jnrpe.yaclp.validators;
+
+/**
+ * Parses numbers from a {@link CharSequence} without boxing and without throwing exceptions on
+ * invalid input. Results are returned as primitives: invalid longs are detected with
+ * {@link #isLong(CharSequence, int)}, invalid doubles are returned as {@link Double#NaN}.
+ */
+final class NumberScanner {
+
+  /**
+   * Maximum number of significant decimal digits accumulated into the significand.
+   */
+  private static final int MAX_DIGITS = 18;
+
+  /**
+   * Maximum significand that can be exactly represented by a double.
+   */
+  private static final long MAX_EXACT_SIGNIFICAND = 1L << 53;
+
+  /**
+   * Powers of 10 that can be exactly represented by a double.
+   */
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  /**
+   * Exponents beyond this value are clamped: the result is 0 or infinite anyway.
+   */
+  private static final int MAX_EXPONENT = 100000;
+
+  /**
+   * Value returned by {@link #accumulate(CharSequence, int)} when the value is not a valid long.
+   * The accumulated value is never positive.
+   */
+  private static final long INVALID = 1;
+
+  /**
+   * Constructor.
+   */
+  private NumberScanner() {
+  }
+
+  /**
+   * Checks if the value is a valid long with the same rules as
+   * {@link Long#parseLong(String, int)}.
+   *
+   * @param value the value to be checked
+   * @param radix the radix
+   * @return <code>true</code> if the value is a valid long
+   */
+  static boolean isLong(final CharSequence value, final int radix) {
+    return accumulate(value, radix) != INVALID;
+  }
+
+  /**
+   * Parses a long with the same rules as {@link Long#parseLong(String, int)}.
+   * The value must have been checked with {@link #isLong(CharSequence, int)}.
+   *
+   * @param value the value to be parsed
+   * @param radix the radix
+   * @return the parsed long
+   */
+  static long scanLong(final CharSequence value, final int radix) {
+    final long res = accumulate(value, radix);
+    if (res == INVALID) {
+      throw new NumberFormatException("Invalid long: " + value);
+    }
+    return value.charAt(0) == '-' ? res : -res;
+  }
+
+  /**
+   * Accumulates the digits of a long negatively, as {@link Long#parseLong(String, int)} does, to
+   * handle {@link Long#MIN_VALUE}.
+   *
+   * @param value the value to be parsed
+   * @param radix the radix
+   * @return the opposite of the absolute value, {@link #INVALID} if the value is not a valid long
+   */
+  private static long accumulate(final CharSequence value, final int radix) {
+    final int len = value.length();
+    if (len == 0 || radix < Character.MIN_RADIX || radix > Character.MAX_RADIX) {
+      return INVALID;
+    }
+
+    int pos = 0;
+    long limit = -Long.MAX_VALUE;
+    final char first = value.charAt(0);
+    if (first == '-') {
+      limit = Long.MIN_VALUE;
+      pos++;
+    } else if (first == '+') {
+      pos++;
+    }
+    if (pos == len) {
+      return INVALID;
+    }
+
+    final long multiplyLimit = limit / radix;
+    long res = 0;
+    for (; pos < len; pos++) {
+      final int digit = Character.digit(value.charAt(pos), radix);
+      if (digit < 0 || res < multiplyLimit) {
+        return INVALID;
+      }
+      res *= radix;
+      if (res < limit + digit) {
+        return INVALID;
+      }
+      res -= digit;
+    }
+    return res;
+  }
+
+  /**
+   * Parses a finite double in decimal notation: an optional sign, digits with an optional
+   * decimal point and an optional exponent (for example <code>-1.5e3</code>).
+   * Values that can't be converted exactly with a double multiplication or division are
+   * converted by {@link Double#parseDouble(String)}.
+   *
+   * @param value the value to be parsed
+   * @return the parsed double, {@link Double#NaN} if the value is not a valid finite double
+   */
+  static double scanDouble(final CharSequence value) {
+    final int len = value.length();
+    int pos = 0;
+    boolean negative = false;
+    if (len != 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+      negative = value.charAt(0) == '-';
+      pos++;
+    }
+
+    long significand = 0;
+    int digits = 0;
+    int exponent = 0;
+    boolean anyDigit = false;
+    boolean exact = true;
+    boolean point = false;
+    for (; pos < len; pos++) {
+      final char c = value.charAt(pos);
+      if (c == '.' && !point) {
+        point = true;
+        continue;
+      }
+      if (c < '0' || c > '9') {
+        break;
+      }
+      anyDigit = true;
+      if (significand == 0 && c == '0') {
+        // leading zeros are not significant
+        if (point) {
+          exponent--;
+        }
+        continue;
+      }
+      if (digits < MAX_DIGITS) {
+        significand = significand * 10 + (c - '0');
+        digits++;
+        if (point) {
+          exponent--;
+        }
+      } else {
+        exact &= c == '0';
+        if (!point) {
+          exponent++;
+        }
+      }
+    }
+    if (!anyDigit) {
+      return Double.NaN;
+    }
+
+    if (pos < len && (value.charAt(pos) == 'e' || value.charAt(pos) == 'E')) {
+      pos++;
+      boolean negativeExponent = false;
+      if (pos < len && (value.charAt(pos) == '-' || value.charAt(pos) == '+')) {
+        negativeExponent = value.charAt(pos) == '-';
+        pos++;
+      }
+      if (pos == len) {
+        return Double.NaN;
+      }
+      int exp = 0;
+      for (; pos < len; pos++) {
+        final char c = value.charAt(pos);
+        if (c < '0' || c > '9') {
+          return Double.NaN;
+        }
+        exp = Math.min(exp * 10 + (c - '0'), MAX_EXPONENT);
+      }
+      exponent += negativeExponent ? -exp : exp;
+    }
+    if (pos != len) {
+      return Double.NaN;
+    }
+
+    double res;
+    if (significand == 0) {
+      res = 0;
+    } else if (exact && significand <= MAX_EXACT_SIGNIFICAND
+        && exponent >= -22 && exponent <= 22) {
+      // both operands are exact: the result is correctly rounded
+      res = exponent >= 0
+          ? significand * POWERS_OF_TEN[exponent]
+          : significand / POWERS_OF_TEN[-exponent];
+    } else {
+      // the syntax has already been checked: this never throws
+      res = Math.abs(Double.parseDouble(value.toString()));
+    }
+    if (Double.isInfinite(res)) {
+      return Double.NaN;
+    }
+    return negative ? -res : res;
+  }
+}
@@ -0,0 +1,290 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package it.jnrpe.yaclp.validators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable perfect hash table over a set of strings (hash and displace): each key is found with
+ * a single probe and a single comparison. Case insensitive tables fold the case one character at
+ * a time, with the same rules as {@link String#regionMatches(boolean, int, String, int, int)}:
+ * no lower case copy is allocated and the default locale is never used.
+ */
+final class PerfectHash {
+
+  /**
+   * Multiplier used to derive the slot seeds.
+   */
+  private static final int GOLDEN = 0x9E3779B9;
+
+  /**
+   * Maximum number of seeds tried for a bucket before growing the table.
+   */
+  private static final int MAX_SEEDS = 1 << 16;
+
+  /**
+   * Average number of keys for each bucket.
+   */
+  private static final int KEYS_PER_BUCKET = 4;
+
+  /**
+   * Keys, by slot. Empty slots are <code>null</code>.
+   */
+  private final String[] keys;
+
+  /**
+   * Index of the key inside the array the table has been built from, by slot.
+   */
+  private final int[] indexes;
+
+  /**
+   * Seed used to place the keys of each bucket.
+   */
+  private final int[] seeds;
+
+  /**
+   * Whether the keys are compared case sensitively.
+   */
+  private final boolean caseSensitive;
+
+  /**
+   * Constructor.
+   *
+   * @param keys          keys, by slot
+   * @param indexes       index of the keys, by slot
+   * @param seeds         seed of each bucket
+   * @param caseSensitive whether the keys are compared case sensitively
+   */
+  private PerfectHash(final String[] keys, final int[] indexes, final int[] seeds,
+                      final boolean caseSensitive) {
+    this.keys = keys;
+    this.indexes = indexes;
+    this.seeds = seeds;
+    this.caseSensitive = caseSensitive;
+  }
+
+  /**
+   * Builds the table. When more keys are equal, only the first one is found.
+   *
+   * @param values        the keys
+   * @param caseSensitive whether the keys are compared case sensitively
+   * @return the table
+   */
+  static PerfectHash build(final String[] values, final boolean caseSensitive) {
+    final int[] hashes = new int[values.length];
+    for (int i = 0; i < values.length; i++) {
+      hashes[i] = hash(values[i], caseSensitive);
+    }
+
+    int slots = Integer.highestOneBit(Math.max(1, values.length * 2 - 1)) << 1;
+    final int buckets = Integer.highestOneBit(Math.max(1, values.length / KEYS_PER_BUCKET));
+    while (true) {
+      PerfectHash res = place(values, hashes, slots, buckets, caseSensitive);
+      if (res != null) {
+        return res;
+      }
+      slots <<= 1;
+    }
+  }
+
+  /**
+   * Tries to place the keys into a table with the given number of slots.
+   *
+   * @param values        the keys
+   * @param hashes        hash of the keys
+   * @param slots         number of slots (power of 2)
+   * @param buckets       number of buckets (power of 2)
+   * @param caseSensitive whether the keys are compared case sensitively
+   * @return the table or <code>null</code> if no seed has been found for a bucket
+   */
+  private static PerfectHash place(final String[] values, final int[] hashes, final int slots,
+                                   final int buckets, final boolean caseSensitive) {
+    final List<List<Integer>> byBucket = new ArrayList<>(buckets);
+    for (int i = 0; i < buckets; i++) {
+      byBucket.add(new ArrayList<>());
+    }
+    for (int i = 0; i < values.length; i++) {
+      List<Integer> bucket = byBucket.get(hashes[i] & (buckets - 1));
+      if (!containsKey(bucket, values, i, caseSensitive)) {
+        bucket.add(i);
+      }
+    }
+
+    // the biggest buckets are placed first, while the table is still empty
+    final Integer[] order = new Integer[buckets];
+    for (int i = 0; i < buckets; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> byBucket.get(b).size() - byBucket.get(a).size());
+
+    final String[] keys = new String[slots];
+    final int[] indexes = new int[slots];
+    final int[] seeds = new int[buckets];
+    final int[] candidates = new int[values.length];
+    for (int bucket : order) {
+      final List<Integer> members = byBucket.get(bucket);
+      if (members.isEmpty()) {
+        break;
+      }
+      int seed = 0;
+      while (!fits(members, hashes, seed, keys, candidates)) {
+        if (++seed == MAX_SEEDS) {
+          return null;
+        }
+      }
+      seeds[bucket] = seed;
+      for (int i = 0; i < members.size(); i++) {
+        keys[candidates[i]] = values[members.get(i)];
+        indexes[candidates[i]] = members.get(i);
+      }
+    }
+    return new PerfectHash(keys, indexes, seeds, caseSensitive);
+  }
+
+  /**
+   * Checks if the keys of a bucket can be placed with the given seed.
+   *
+   * @param members    indexes of the keys of the bucket
+   * @param hashes     hash of the keys
+   * @param seed       the seed
+   * @param keys       keys placed so far, by slot
+   * @param candidates receives the slot of each key of the bucket
+   * @return <code>true</code> if all the keys fall in distinct empty slots
+   */
+  private static boolean fits(final List<Integer> members, final int[] hashes, final int seed,
+                              final String[] keys, final int[] candidates) {
+    for (int i = 0; i < members.size(); i++) {
+      final int slot = slot(hashes[members.get(i)], seed, keys.length);
+      if (keys[slot] != null) {
+        return false;
+      }
+      for (int j = 0; j < i; j++) {
+        if (candidates[j] == slot) {
+          return false;
+        }
+      }
+      candidates[i] = slot;
+    }
+    return true;
+  }
+
+  /**
+   * Checks if a bucket already contains a key equal to the given one.
+   *
+   * @param bucket        indexes of the keys of the bucket
+   * @param values        the keys
+   * @param index         index of the key to be checked
+   * @param caseSensitive whether the keys are compared case sensitively
+   * @return <code>true</code> if the key is a duplicate
+   */
+  private static boolean containsKey(final List<Integer> bucket, final String[] values,
+                                     final int index, final boolean caseSensitive) {
+    for (int other : bucket) {
+      if (equal(values[other], values[index], caseSensitive)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Looks up a value.
+   *
+   * @param value the value
+   * @return the index of the matching key inside the array the table has been built from, or -1
+   */
+  int indexOf(final String value) {
+    final int hash = hash(value, caseSensitive);
+    final int slot = slot(hash, seeds[hash & (seeds.length - 1)], keys.length);
+    final String key = keys[slot];
+    return key != null && equal(key, value, caseSensitive) ? indexes[slot] : -1;
+  }
+
+  /**
+   * Compares two keys.
+   *
+   * @param key           the first key
+   * @param value         the second key
+   * @param caseSensitive whether the keys are compared case sensitively
+   * @return <code>true</code> if the keys are equal
+   */
+  private static boolean equal(final String key, final String value, final boolean caseSensitive) {
+    return key.length() == value.length()
+        && (caseSensitive ? key.equals(value) : key.regionMatches(true, 0, value, 0, key.length()));
+  }
+
+  /**
+   * Computes the slot of a key.
+   *
+   * @param hash  hash of the key
+   * @param seed  seed of the bucket of the key
+   * @param slots number of slots (power of 2)
+   * @return the slot
+   */
+  private static int slot(final int hash, final int seed, final int slots) {
+    return mix(hash ^ seed * GOLDEN) & (slots - 1);
+  }
+
+  /**
+   * Computes the hash of a key, folding the case if needed.
+   *
+   * @param value         the key
+   * @param caseSensitive whether the keys are compared case sensitively
+   * @return the hash
+   */
+  private static int hash(final String value, final boolean caseSensitive) {
+    int hash = 0;
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      hash = 31 * hash + (caseSensitive ? c : fold(c));
+    }
+    return mix(hash);
+  }
+
+  /**
+   * Folds the case of a character. Two characters are equal ignoring the case, as defined by
+   * {@link String#regionMatches(boolean, int, String, int, int)}, only if their folded values
+   * are equal.
+   *
+   * @param c the character
+   * @return the folded character
+   */
+  private static int fold(final char c) {
+    if (c < 128) {
+      return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+    return Character.toLowerCase(Character.toUpperCase(c));
+  }
+
+  /**
+   * Mixes the bits of a hash (murmur3 finalizer).
+   *
+   * @param hash the hash
+   * @return the mixed hash
+   */
+  private static int mix(final int hash) {
+    int res = hash;
+    res ^= res >>> 16;
+    res *= 0x85ebca6b;
+    res ^= res >>> 13;
+    res *= 0xc2b2ae35;
+    res ^= res >>> 16;
+    return res;
+  }
+}
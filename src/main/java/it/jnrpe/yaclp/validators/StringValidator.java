@@ -27,6 +27,25 @@ import java.util.regex.Pattern;
  */
 public class StringValidator implements IArgumentValidator {
 
+  /**
+   * Engines that can be used to match the regexp.
+   */
+  public enum Engine {
+    /**
+     * {@link Pattern} engine: supports the whole regexp syntax, but some patterns (for example
+     * nested quantifiers) can take an exponential time on some values.
+     */
+    JDK,
+
+    /**
+     * Engine whose matching time is always linear in the length of the value. It supports a
+     * subset of the {@link Pattern} syntax: literals, character classes, groups, alternations,
+     * greedy and reluctant quantifiers, <code>^</code> and <code>$</code>. Building a validator
+     * with an unsupported pattern throws an {@link IllegalArgumentException}.
+     */
+    LINEAR
+  }
+
   /**
    * Minimum length of the string (null if no min must be checked).
    */
@@ -38,9 +57,15 @@ public class StringValidator implements IArgumentValidator {
   private final Integer maxLen;
 
   /**
-   * Regexp to be used to validate the argument value or null.
+   * Per thread matchers of the regexp used to validate the argument value, when the JDK engine
+   * is used, or null.
+   */
+  private final ThreadLocal<Matcher> matchers;
+
+  /**
+   * Regexp used to validate the argument value when the linear engine is used, or null.
    */
-  private final Pattern regexp;
+  private final LinearRegex linearRegexp;
 
   /**
    * Constructor.
@@ -48,15 +73,26 @@ public class StringValidator implements IArgumentValidator {
    * @param minLen minimum string length or null.
    * @param maxLen maximum string length or null.
    * @param regexp regexp to be used to validate the argument or null.
+   * @param engine engine to be used to match the regexp
    */
-  private StringValidator(final Integer minLen, final Integer maxLen, final String regexp) {
+  private StringValidator(final Integer minLen, final Integer maxLen, final String regexp,
+                          final Engine engine) {
     this.minLen = minLen;
     this.maxLen = maxLen;
 
-    if (regexp != null) {
-      this.regexp = Pattern.compile(regexp);
+    if (regexp == null) {
+      this.matchers = null;
+      this.linearRegexp = null;
     } else {
-      this.regexp = null;
+      // syntax errors are always reported as by the JDK
+      final Pattern pattern = Pattern.compile(regexp);
+      if (engine == Engine.LINEAR) {
+        this.matchers = null;
+        this.linearRegexp = LinearRegex.compile(regexp);
+      } else {
+        this.matchers = ThreadLocal.withInitial(() -> pattern.matcher(""));
+        this.linearRegexp = null;
+      }
     }
   }
 
@@ -75,14 +111,20 @@ public class StringValidator implements IArgumentValidator {
     }
 
     if (maxLen != null && value.length() > maxLen) {
-      throw new ValidationException("Value is too long (maximum length: %d)", minLen);
+      throw new ValidationException("Value is too long (maximum length: %d)", maxLen);
     }
 
-    if (regexp != null) {
-      Matcher matcher = regexp.matcher(value);
-      if (!matcher.matches()) {
-        throw new ValidationException("Value is not valid according to specified rules");
-      }
+    boolean valid = true;
+    if (linearRegexp != null) {
+      valid = linearRegexp.matches(value);
+    } else if (matchers != null) {
+      final Matcher matcher = matchers.get();
+      valid = matcher.reset(value).matches();
+      // the matcher lives as long as the thread: it must not keep the value reachable
+      matcher.reset("");
+    }
+    if (!valid) {
+      throw new ValidationException("Value is not valid according to specified rules");
     }
   }
 
@@ -107,6 +149,11 @@ public class StringValidator implements IArgumentValidator {
      */
     private String regexp = null;
 
+    /**
+     * Engine used to match the regexp. Defaults to {@link Engine#JDK}.
+     */
+    private Engine engine = Engine.JDK;
+
     /**
      * Constructor.
      */
@@ -146,8 +193,19 @@ public class StringValidator implements IArgumentValidator {
       return this;
     }
 
+    /**
+     * Sets the engine used to match the regexp.
+     *
+     * @param engine the engine
+     * @return this builder.
+     */
+    public Builder engine(final Engine engine) {
+      this.engine = engine;
+      return this;
+    }
+
     public StringValidator build() {
-      return new StringValidator(minLen, maxLen, regexp);
+      return new StringValidator(minLen, maxLen, regexp, engine);
     }
   }
 }
@@ -19,53 +19,64 @@ package it.jnrpe.yaclp.validators;
 import it.jnrpe.yaclp.IArgument;
 import it.jnrpe.yaclp.IOption;
 
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
 import java.util.Set;
 
 /**
- * Checks that the argument value is a valid URL.
+ * Checks that the argument value is a valid URL, that is an absolute URI as defined by RFC 3986.
  * If a list of accepted protocols is provided, checks if the URL matches any of the given
- * protocols.
+ * protocols (case insensitive).
  */
 public class URLValidator implements IArgumentValidator {
 
   /**
-   * List of protocols to be verified.
+   * The accepted protocols, lower case. Empty if any protocol is accepted.
    */
-  private Set<String> requestedProtocols = new HashSet<>();
+  private final String[] requestedProtocols;
 
   /**
    * Constructor.
+   *
+   * @param requestedProtocols list of protocols to be verified
    */
-  private URLValidator() {
-
+  private URLValidator(final Set<String> requestedProtocols) {
+    Set<String> protocols = new LinkedHashSet<>();
+    for (String protocol : requestedProtocols) {
+      protocols.add(protocol.toLowerCase(Locale.ROOT));
+    }
+    this.requestedProtocols = protocols.toArray(new String[protocols.size()]);
   }
 
   @Override
   public void validate(final IOption option, final IArgument argument, final String value) throws
       ValidationException {
-    try {
-      URL url = new URL(value);
-      if (!requestedProtocols.isEmpty()
-          && requestedProtocols.contains(url.getProtocol().toLowerCase())) {
-        throw new ValidationException(
-            "Protocol cam be only one of [%s]. Received : '%s'",
-            String.join(",", requestedProtocols), url.getProtocol());
-      }
-    } catch (MalformedURLException e) {
+    final int schemeEnd = UriScanner.scan(value);
+    if (schemeEnd < 0) {
       throw new ValidationException("Value '%s' is not a valid URL", value);
     }
+    if (requestedProtocols.length != 0 && !isRequested(value, schemeEnd)) {
+      throw new ValidationException(
+          "Protocol can be only one of [%s]. Received : '%s'",
+          String.join(",", requestedProtocols), value.substring(0, schemeEnd));
+    }
   }
 
   /**
-   * Adds a protocol to the list of required protocols.
-   * @param requestedProtocol the new protocol to be added
+   * Checks if the scheme of the value is one of the accepted protocols.
+   *
+   * @param value     the value
+   * @param schemeEnd end of the scheme inside the value
+   * @return <code>true</code> if the protocol is accepted
    */
-  private void addRequestedProtocol(final String requestedProtocol) {
-    this.requestedProtocols.add(requestedProtocol);
+  private boolean isRequested(final String value, final int schemeEnd) {
+    for (String protocol : requestedProtocols) {
+      if (protocol.length() == schemeEnd && value.regionMatches(true, 0, protocol, 0, schemeEnd)) {
+        return true;
+      }
+    }
+    return false;
   }
 
   /**
@@ -76,7 +87,7 @@ public class URLValidator implements IArgumentValidator {
     /**
      * List of accepted protocols.
      */
-    private Set<String> requestedProtocols = new HashSet<>();
+    private Set<String> requestedProtocols = new LinkedHashSet<>();
 
     /**
      * Constructor.
@@ -99,10 +110,7 @@ public class URLValidator implements IArgumentValidator {
      * @return a new instance of {@link URLValidator}
      */
     public URLValidator build() {
-      URLValidator validator = new URLValidator();
-      requestedProtocols.forEach(validator::addRequestedProtocol);
-
-      return validator;
+      return new URLValidator(requestedProtocols);
     }
   }
 }
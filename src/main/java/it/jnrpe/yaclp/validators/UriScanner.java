@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+
+package it.jnrpe.yaclp.validators;
+
+/**
+ * Checks the syntax of an absolute URI as defined by RFC 3986, without allocating. The end of
+ * the scheme is returned, so that the protocol can be checked without extracting it.
+ * IP literals are checked only for the allowed characters.
+ */
+final class UriScanner {
+
+  /**
+   * The character can be the first one of a scheme.
+   */
+  private static final int ALPHA = 1;
+
+  /**
+   * The character can be part of a scheme.
+   */
+  private static final int SCHEME = 1 << 1;
+
+  /**
+   * The character is unreserved or a sub delimiter, or introduces a percent encoded octet.
+   */
+  private static final int REG_NAME = 1 << 2;
+
+  /**
+   * The character can be part of the user info.
+   */
+  private static final int USER_INFO = 1 << 3;
+
+  /**
+   * The character can be part of a path segment.
+   */
+  private static final int PCHAR = 1 << 4;
+
+  /**
+   * The character can be part of a query or of a fragment.
+   */
+  private static final int QUERY = 1 << 5;
+
+  /**
+   * The character can be part of an IP literal.
+   */
+  private static final int IP_LITERAL = 1 << 6;
+
+  /**
+   * The character is an hexadecimal digit.
+   */
+  private static final int HEX = 1 << 7;
+
+  /**
+   * Maximum accepted port number.
+   */
+  private static final int MAX_PORT = 65535;
+
+  /**
+   * Classes of the US-ASCII characters. Other characters are never allowed.
+   */
+  private static final int[] CLASSES = new int[128];
+
+  static {
+    final String alpha = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    final String digit = "0123456789";
+    final String unreserved = alpha + digit + "-._~";
+    final String subDelims = "!$&'()*+,;=";
+
+    mark(alpha, ALPHA);
+    mark(alpha + digit + "+-.", SCHEME);
+    mark(unreserved + subDelims + "%", REG_NAME);
+    mark(unreserved + subDelims + "%:", USER_INFO);
+    mark(unreserved + subDelims + "%:@", PCHAR);
+    mark(unreserved + subDelims + "%:@/?", QUERY);
+    mark(unreserved + subDelims + ":", IP_LITERAL);
+    mark(digit + "abcdefABCDEF", HEX);
+  }
+
+  /**
+   * Constructor.
+   */
+  private UriScanner() {
+  }
+
+  /**
+   * Adds a class to the given characters.
+   *
+   * @param chars the characters
+   * @param mask  the class
+   */
+  private static void mark(final String chars, final int mask) {
+    for (int i = 0; i < chars.length(); i++) {
+      CLASSES[chars.charAt(i)] |= mask;
+    }
+  }
+
+  /**
+   * Checks the class of a character.
+   *
+   * @param c    the character
+   * @param mask the class
+   * @return <code>true</code> if the character belongs to the class
+   */
+  private static boolean is(final char c, final int mask) {
+    return c < 128 && (CLASSES[c] & mask) != 0;
+  }
+
+  /**
+   * Scans a value.
+   *
+   * @param value the value to be scanned
+   * @return the end (exclusive) of the scheme, -1 if the value is not a valid absolute URI
+   */
+  static int scan(final CharSequence value) {
+    final int len = value.length();
+
+    // scheme = ALPHA *( ALPHA / DIGIT / "+" / "-" / "." )
+    if (len == 0 || !is(value.charAt(0), ALPHA)) {
+      return -1;
+    }
+    int pos = 1;
+    while (pos < len && is(value.charAt(pos), SCHEME)) {
+      pos++;
+    }
+    if (pos == len || value.charAt(pos) != ':') {
+      return -1;
+    }
+    final int schemeEnd = pos++;
+
+    if (pos + 1 < len && value.charAt(pos) == '/' && value.charAt(pos + 1) == '/') {
+      pos = scanAuthority(value, pos + 2, len);
+      if (pos < 0) {
+        return -1;
+      }
+    }
+
+    // path: segments separated by '/'
+    while (pos < len && value.charAt(pos) != '?' && value.charAt(pos) != '#') {
+      final char c = value.charAt(pos);
+      if (c != '/' && !isEncoded(value, pos, len, c, PCHAR)) {
+        return -1;
+      }
+      pos += c == '%' ? 3 : 1;
+    }
+
+    // query and fragment: only one '#' is allowed
+    boolean fragment = false;
+    while (pos < len) {
+      final char c = value.charAt(pos);
+      if (c == '#' && !fragment) {
+        fragment = true;
+        pos++;
+        continue;
+      }
+      if (!isEncoded(value, pos, len, c, QUERY)) {
+        return -1;
+      }
+      pos += c == '%' ? 3 : 1;
+    }
+    return schemeEnd;
+  }
+
+  /**
+   * Scans the authority.
+   *
+   * @param value the value to be scanned
+   * @param start start of the authority
+   * @param len   length of the value
+   * @return the end of the authority, -1 if it is not valid
+   */
+  private static int scanAuthority(final CharSequence value, final int start, final int len) {
+    int end = start;
+    int at = -1;
+    while (end < len) {
+      final char c = value.charAt(end);
+      if (c == '/' || c == '?' || c == '#') {
+        break;
+      }
+      if (c == '@') {
+        at = end;
+      }
+      end++;
+    }
+
+    // userinfo
+    int pos = start;
+    if (at >= 0) {
+      while (pos < at) {
+        final char c = value.charAt(pos);
+        if (!isEncoded(value, pos, at, c, USER_INFO)) {
+          return -1;
+        }
+        pos += c == '%' ? 3 : 1;
+      }
+      pos = at + 1;
+    }
+
+    // host
+    final int hostStart = pos;
+    if (pos < end && value.charAt(pos) == '[') {
+      pos++;
+      while (pos < end && value.charAt(pos) != ']') {
+        if (!is(value.charAt(pos), IP_LITERAL)) {
+          return -1;
+        }
+        pos++;
+      }
+      if (pos == end || pos == hostStart + 1) {
+        return -1;
+      }
+      pos++;
+    } else {
+      while (pos < end && value.charAt(pos) != ':') {
+        final char c = value.charAt(pos);
+        if (!isEncoded(value, pos, end, c, REG_NAME)) {
+          return -1;
+        }
+        pos += c == '%' ? 3 : 1;
+      }
+    }
+
+    // port
+    if (pos < end) {
+      if (value.charAt(pos) != ':') {
+        return -1;
+      }
+      pos++;
+      int port = 0;
+      while (pos < end) {
+        final char c = value.charAt(pos++);
+        if (c < '0' || c > '9') {
+          return -1;
+        }
+        port = port * 10 + (c - '0');
+        if (port > MAX_PORT) {
+          return -1;
+        }
+      }
+    }
+    return end;
+  }
+
+  /**
+   * Checks a character, validating the percent encoded octets.
+   *
+   * @param value the value being scanned
+   * @param pos   position of the character
+   * @param end   end of the current component
+   * @param c     the character
+   * @param mask  the class of the allowed characters
+   * @return <code>true</code> if the character is allowed
+   */
+  private static boolean isEncoded(final CharSequence value, final int pos, final int end,
+                                   final char c, final int mask) {
+    if (c == '%') {
+      return pos + 2 < end
+          && is(value.charAt(pos + 1), HEX)
+          && is(value.charAt(pos + 2), HEX);
+    }
+    return is(c, mask);
+  }
+}
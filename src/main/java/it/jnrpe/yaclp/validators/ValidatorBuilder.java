@@ -36,6 +36,24 @@ public class ValidatorBuilder {
     return new IntegerValidator.Builder();
   }
 
+  /**
+   * Returns a builder for {@link LongValidator}s objects.
+   *
+   * @return a builder for {@link LongValidator}s objects.
+   */
+  public static LongValidator.Builder forLong() {
+    return new LongValidator.Builder();
+  }
+
+  /**
+   * Returns a builder for {@link DoubleValidator}s objects.
+   *
+   * @return a builder for {@link DoubleValidator}s objects.
+   */
+  public static DoubleValidator.Builder forDouble() {
+    return new DoubleValidator.Builder();
+  }
+
   /**
    * Returns a builder for {@link StringValidator}s objects.
    *
@@ -71,4 +89,16 @@ public class ValidatorBuilder {
   public static EnumValidator.Builder forEnums() {
     return new EnumValidator.Builder();
   }
+
+  /**
+   * Returns a builder for {@link EnumValidator} objects accepting the names of the constants of
+   * a Java enum. Use {@link EnumValidator#toEnum(Class, String)} to get the constant.
+   *
+   * @param type the enum type
+   * @param <E>  the enum type
+   * @return a builder for {@link EnumValidator} objects
+   */
+  public static <E extends Enum<E>> EnumValidator.Builder forEnum(final Class<E> type) {
+    return new EnumValidator.Builder().withValues(type);
+  }
 }
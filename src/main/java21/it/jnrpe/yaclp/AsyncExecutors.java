@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Massimiliano Ziccardi
+ * <P/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <P/>
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * <P/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package it.jnrpe.yaclp;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Provides the executor used by default to run asynchronous validations.
+ * This is the Java 21 version of the class, packaged into the multi release jar: each blocking
+ * validation runs on its own virtual thread.
+ */
+final class AsyncExecutors {
+
+  /**
+   * Constructor.
+   */
+  private AsyncExecutors() {
+  }
+
+  /**
+   * Returns the default executor for asynchronous validations.
+   *
+   * @return the default executor
+   */
+  static Executor defaultExecutor() {
+    return Holder.EXECUTOR;
+  }
+
+  /**
+   * Lazily builds the executor, the first time it is needed.
+   */
+  private static final class Holder {
+
+    /**
+     * The default executor.
+     */
+    private static final Executor EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+  }
+}
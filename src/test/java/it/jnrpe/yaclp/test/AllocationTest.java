@@ -0,0 +1,81 @@
+package it.jnrpe.yaclp.test;
+
+import it.jnrpe.yaclp.*;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+public class AllocationTest {
+
+    private static final int WARMUP = 200000;
+    private static final int ITERATIONS = 100000;
+
+    private Parser buildParser() {
+        IOption verbose = OptionBuilder.forOption("-v", "--verbose").build();
+        return ParserBuilder.forOptionsBasedCli()
+            .withOption(
+                OptionBuilder.forOption("-H", "--host")
+                    .mandatory(true)
+                    .argument(ArgumentBuilder.forArgument("hostname").build())
+                    .build(),
+                OptionBuilder.forOption("-p", "--port")
+                    .argument(ArgumentBuilder.forArgument("port").build())
+                    .build(),
+                OptionBuilder.forOption("-f", "--file")
+                    .argument(ArgumentBuilder.forArgument("path")
+                        .withMaxRepetitions(Integer.MAX_VALUE)
+                        .build())
+                    .build(),
+                verbose,
+                OptionBuilder.forOption("-q", "--quiet").incompatibleWith(verbose).build()
+            ).build();
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Test
+    public void testSteadyStateParsingDoesNotAllocate() throws Exception {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+
+        Parser parser = buildParser();
+        CommandLine cl = new CommandLine();
+        String[] args = {"-H", "localhost", "--port", "5666", "--verbose", "-f", "/var", "/tmp", "/etc"};
+
+        for (int i = 0; i < WARMUP; i++) {
+            parser.parse(args, cl);
+        }
+
+        long before = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            parser.parse(args, cl);
+        }
+        long perParse = (allocatedBytes() - before) / ITERATIONS;
+
+        Assert.assertTrue("Allocated bytes per parse: " + perParse, perParse < 16);
+
+        Assert.assertEquals("localhost", cl.getValue("--host"));
+        Assert.assertEquals("5666", cl.getValue("-p"));
+        Assert.assertTrue(cl.hasOption("-v"));
+        Assert.assertArrayEquals(new String[] {"/var", "/tmp", "/etc"}, cl.getValues("--file"));
+    }
+
+    @Test
+    public void testReusedCommandLineIsReset() throws Exception {
+        Parser parser = buildParser();
+        CommandLine cl = new CommandLine();
+
+        parser.parse(new String[] {"-H", "first", "-v", "-f", "a", "b"}, cl);
+        parser.parse(new String[] {"-H", "second", "-q"}, cl);
+
+        Assert.assertEquals("second", cl.getValue("-H"));
+        Assert.assertTrue(cl.hasOption("--quiet"));
+        Assert.assertFalse(cl.hasOption("--verbose"));
+        Assert.assertFalse(cl.hasOption("-f"));
+        Assert.assertNull(cl.getValues("-f"));
+    }
+}
@@ -0,0 +1,59 @@
+package it.jnrpe.yaclp.test;
+
+import it.jnrpe.yaclp.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Timing checks on the argument parsing. Run with <code>mvn test -Pbenchmarks</code>.
+ */
+public class ArgumentBenchmarkTest {
+
+  @Test
+  public void testParseTimeGrowsLinearly() throws Exception {
+    Parser parser = ParserBuilder.forOptionsBasedCli()
+        .withOption(
+            OptionBuilder.forOption("-f", "--file")
+                .argument(ArgumentBuilder.forArgument("path")
+                    .withMaxRepetitions(Integer.MAX_VALUE)
+                    .build())
+                .build()
+        ).build();
+
+    String[] small = buildArgs("-f", 20000);
+    String[] large = buildArgs("-f", 200000);
+
+    // warm up
+    for (int i = 0; i < 5; i++) {
+      parser.parse(small);
+    }
+
+    long smallTime = bestParseTime(parser, small);
+    long largeTime = bestParseTime(parser, large);
+
+    Assert.assertEquals(200000, parser.parse(large).getValues("--file").length);
+    // 10 times the tokens: a quadratic implementation would take ~100 times longer
+    Assert.assertTrue(
+        String.format("small: %dns, large: %dns", smallTime, largeTime),
+        largeTime < smallTime * 40);
+  }
+
+  private static String[] buildArgs(final String option, final int values) {
+    String[] args = new String[values + 1];
+    args[0] = option;
+    for (int i = 1; i < args.length; i++) {
+      args[i] = "/var/tmp/file" + i;
+    }
+    return args;
+  }
+
+  private static long bestParseTime(final Parser parser, final String[] args) throws Exception {
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < 3; i++) {
+      long start = System.nanoTime();
+      parser.parse(args);
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    return best;
+  }
+}
@@ -0,0 +1,120 @@
+package it.jnrpe.yaclp.test;
+
+import it.jnrpe.yaclp.*;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Expands multi megabyte argument files.
+ * Argument files are tokenized straight from a memory mapped buffer: the parse time grows
+ * linearly with the size of the file and the file content is never copied into the heap.
+ */
+public class ArgumentFileBenchmarkTest {
+
+    private static final int ROUNDS = 3;
+
+    private static final int MEGABYTE = 1024 * 1024;
+
+    private final Parser parser = ParserBuilder.forOptionsBasedCli()
+        .withArgumentFiles(true)
+        .withOption(
+            OptionBuilder.forOption("-H", "--host")
+                .argument(ArgumentBuilder.forArgument("hostname").build())
+                .build(),
+            OptionBuilder.forOption("-v", "--value")
+                .argument(ArgumentBuilder.forArgument("value").withMaxRepetitions(Integer.MAX_VALUE).build())
+                .build()
+        ).build();
+
+    /**
+     * Writes an argument file with the given number of values, one per line.
+     */
+    private static File createValuesFile(final int values) throws Exception {
+        File file = File.createTempFile("yaclp", ".args");
+        file.deleteOnExit();
+        try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            out.write("-H localhost\n-v");
+            for (int i = 0; i < values; i++) {
+                out.write(i % 16 == 0 ? "\n'quoted value " : "\nvalue-");
+                out.write(Integer.toString(i));
+                if (i % 16 == 0) {
+                    out.write('\'');
+                }
+            }
+        }
+        return file;
+    }
+
+    private long bestTime(final File file, final int values) throws Exception {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            CommandLine cl = parser.parse(new String[] {"@" + file.getAbsolutePath()});
+            best = Math.min(best, System.nanoTime() - start);
+            Assert.assertEquals(values, cl.getValues("-v").length);
+        }
+        return best;
+    }
+
+    @Test
+    public void testParseTimeIsLinear() throws Exception {
+        final int smallValues = 100000;
+        final int largeValues = smallValues * 8;
+        File small = createValuesFile(smallValues);
+        File large = createValuesFile(largeValues);
+        Assert.assertTrue("File size: " + large.length(), large.length() > 8 * MEGABYTE);
+
+        // warm up
+        bestTime(small, smallValues);
+
+        long smallTime = bestTime(small, smallValues);
+        long largeTime = bestTime(large, largeValues);
+
+        Assert.assertTrue("small: " + smallTime + "ns, large: " + largeTime + "ns",
+            largeTime < smallTime * 8 * 3);
+    }
+
+    @Test
+    public void testMemoryIsBounded() throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        Assume.assumeTrue(allocations.isThreadAllocatedMemorySupported()
+            && allocations.isThreadAllocatedMemoryEnabled());
+
+        // 16MB of comments and long lines around a handful of arguments
+        File file = File.createTempFile("yaclp", ".args");
+        file.deleteOnExit();
+        char[] filler = new char[1000];
+        java.util.Arrays.fill(filler, 'x');
+        try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            out.write("-H localhost\n");
+            for (int i = 0; i < 16 * 1024; i++) {
+                out.write("# ");
+                out.write(filler);
+                out.write('\n');
+            }
+            out.write("-v last\n");
+        }
+        String[] args = {"@" + file.getAbsolutePath()};
+        parser.parse(args);
+
+        long threadId = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        CommandLine cl = parser.parse(args);
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        Assert.assertEquals("localhost", cl.getValue("-H"));
+        Assert.assertEquals("last", cl.getValue("-v"));
+        Assert.assertTrue("Allocated " + allocated + " bytes for a " + file.length() + " bytes file",
+            allocated < MEGABYTE);
+    }
+}
@@ -0,0 +1,101 @@
+package it.jnrpe.yaclp.test;
+
+import it.jnrpe.yaclp.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class ArgumentFileTest {
+
+    private Parser buildParser(final boolean argumentFiles) {
+        return ParserBuilder.forOptionsBasedCli()
+            .withArgumentFiles(argumentFiles)
+            .withOption(
+                OptionBuilder.forOption("-H", "--host")
+                    .argument(ArgumentBuilder.forArgument("hostname").build())
+                    .build(),
+                OptionBuilder.forOption("-m", "--message")
+                    .argument(ArgumentBuilder.forArgument("message").build())
+                    .build(),
+                OptionBuilder.forOption("-p", "--path")
+                    .argument(ArgumentBuilder.forArgument("path").withMaxRepetitions(Integer.MAX_VALUE).build())
+                    .build()
+            ).build();
+    }
+
+    private static String createFile(final String content) throws Exception {
+        File file = File.createTempFile("yaclp", ".args");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file.getAbsolutePath();
+    }
+
+    @Test
+    public void testJavacConventions() throws Exception {
+        String path = createFile(
+            "\uFEFF# the host to be checked\n"
+                + "-H \"my host\"   # trailing comment\r\n"
+                + "--message 'tab\\there, \"quoted\" and \\\n"
+                + "      continued'\n"
+                + "\t-p C:\\temp\\dir a#b \"\" 'unterminated\n"
+                + "");
+        CommandLine cl = buildParser(true).parse(new String[] {"@" + path});
+
+        Assert.assertEquals("my host", cl.getValue("-H"));
+        Assert.assertEquals("tab\there, \"quoted\" and continued", cl.getValue("--message"));
+        Assert.assertArrayEquals(new String[] {"C:\\temp\\dir", "a#b", "", "unterminated"}, cl.getValues("-p"));
+    }
+
+    @Test
+    public void testArgumentsKeepTheirOrder() throws Exception {
+        String first = createFile("-p one two");
+        String second = createFile("three @" + first);
+        CommandLine cl = buildParser(true).parse(new String[] {"-H", "host", "@" + first, "@" + second, "four"});
+
+        // argument files are not expanded recursively
+        Assert.assertArrayEquals(new String[] {"one", "two", "three", "@" + first, "four"}, cl.getValues("-p"));
+        Assert.assertEquals("host", cl.getValue("-H"));
+    }
+
+    @Test
+    public void testEscapedArguments() throws Exception {
+        CommandLine cl = buildParser(true).parse(new String[] {"-H", "@@host", "-m", "@"});
+
+        Assert.assertEquals("@host", cl.getValue("-H"));
+        Assert.assertEquals("@", cl.getValue("-m"));
+    }
+
+    @Test
+    public void testSingleStringCommandLine() throws Exception {
+        String path = createFile("-H localhost\n-m 'hello world'\n");
+        CommandLine cl = buildParser(true).parse("-p /var '@" + path + "'");
+
+        Assert.assertEquals("localhost", cl.getValue("-H"));
+        Assert.assertEquals("hello world", cl.getValue("-m"));
+        Assert.assertEquals("/var", cl.getValue("-p"));
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        String path = createFile("-H localhost");
+        CommandLine cl = buildParser(false).parse(new String[] {"-H", "@" + path});
+
+        Assert.assertEquals("@" + path, cl.getValue("-H"));
+    }
+
+    @Test
+    public void testMissingFile() throws Exception {
+        File file = File.createTempFile("yaclp", ".args");
+        Assert.assertTrue(file.delete());
+        try {
+            buildParser(true).parse(new String[] {"-H", "localhost", "@" + file.getAbsolutePath()});
+            Assert.fail("Missing argument file must be reported");
+        } catch (ParsingException e) {
+            Assert.assertTrue(e.getMessage(),
+                e.getMessage().startsWith("Unable to read argument file <" + file.getAbsolutePath() + ">"));
+        }
+    }
+}
@@ -80,4 +80,20 @@ public class ArgumentTest {
 
     CommandLine cl = parser.parse(new String[]{"-o", "value1", "value2", "value3"});
   }
+
+  @Test
+  public void testEmptyValue() throws Exception {
+    Parser parser = ParserBuilder.forOptionsBasedCli()
+        .withOption(
+            OptionBuilder.forOption("-o", "--optional")
+                .argument(ArgumentBuilder.forArgument("myarg")
+                    .withMaxRepetitions(Integer.MAX_VALUE)
+                    .build())
+                .build()
+        ).build();
+
+    Assert.assertEquals("", parser.parse(new String[]{"-o", ""}).getValue("-o"));
+    Assert.assertArrayEquals(new String[]{"value1", "", "value3"},
+        parser.parse(new String[]{"-o", "value1", "", "value3"}).getValues("-o"));
+  }
 }
@@ -0,0 +1,141 @@
+package it.jnrpe.yaclp.test;
+
+import it.jnrpe.yaclp.*;
+import it.jnrpe.yaclp.validators.IAsyncArgumentValidator;
+import it.jnrpe.yaclp.validators.ValidationException;
+import it.jnrpe.yaclp.validators.ValidatorBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncParseTest {
+
+    /**
+     * Validator that completes only when all the validators sharing the latch have been started.
+     */
+    private static class RendezvousValidator implements IAsyncArgumentValidator {
+        private final CountDownLatch started;
+
+        private RendezvousValidator(final CountDownLatch started) {
+            this.started = started;
+        }
+
+        @Override
+        public void validate(final IOption option, final IArgument argument, final String value)
+            throws ValidationException {
+            started.countDown();
+            try {
+                if (!started.await(10, TimeUnit.SECONDS)) {
+                    throw new ValidationException("Validations are not running concurrently");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (value.startsWith("bad")) {
+                throw new ValidationException("Invalid value <%s>", value);
+            }
+        }
+    }
+
+    private Parser buildParser(final IAsyncArgumentValidator validator) {
+        return ParserBuilder.forOptionsBasedCli()
+            .withOption(
+                OptionBuilder.forOption("-a", "--alpha")
+                    .argument(ArgumentBuilder.forArgument("value").withValidator(validator).build())
+                    .build(),
+                OptionBuilder.forOption("-b", "--beta")
+                    .argument(ArgumentBuilder.forArgument("value").withValidator(validator).build())
+                    .build(),
+                OptionBuilder.forOption("-c", "--gamma")
+                    .mandatory(true)
+                    .argument(ArgumentBuilder.forArgument("value").withValidator(validator).build())
+                    .build()
+            ).build();
+    }
+
+    @Test
+    public void testValidationsRunConcurrently() throws Exception {
+        Parser parser = buildParser(new RendezvousValidator(new CountDownLatch(3)));
+
+        CommandLine cl = parser.parseAsync(new String[] {"-a", "1", "-b", "2", "-c", "3"}).get(20, TimeUnit.SECONDS);
+
+        Assert.assertEquals("1", cl.getValue("-a"));
+        Assert.assertEquals("2", cl.getValue("--beta"));
+        Assert.assertEquals("3", cl.getValue("-c"));
+    }
+
+    @Test
+    public void testFirstErrorInCommandLineOrderIsReported() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Parser parser = buildParser(new RendezvousValidator(new CountDownLatch(3)));
+            CompletableFuture<CommandLine> future =
+                parser.parseAsync(new String[] {"-c", "3", "-b", "bad-b", "-a", "bad-a"}, executor);
+            try {
+                future.get(20, TimeUnit.SECONDS);
+                Assert.fail("Validation must fail");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof ValidationException);
+                Assert.assertEquals("Invalid value <bad-b>", e.getCause().getMessage());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testParsingErrorsAreReportedBeforeValidation() throws Exception {
+        Parser parser = buildParser(new RendezvousValidator(new CountDownLatch(1)));
+
+        CompletableFuture<CommandLine> future = parser.parseAsync(new String[] {"-a", "1"});
+        Assert.assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get();
+            Assert.fail("Missing mandatory option must be reported");
+        } catch (ExecutionException e) {
+            Assert.assertEquals("Mandatory option [--gamma] is missing", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testAsyncFileValidation() throws Exception {
+        File existing = File.createTempFile("yaclp", ".tmp");
+        existing.deleteOnExit();
+
+        Parser parser = ParserBuilder.forOptionsBasedCli()
+            .withOption(
+                OptionBuilder.forOption("-f", "--file")
+                    .argument(ArgumentBuilder.forArgument("path")
+                        .withMaxRepetitions(Integer.MAX_VALUE)
+                        .withValidator(ValidatorBuilder.forFile().exists().isFile().build())
+                        .build())
+                    .build()
+            ).build();
+
+        String path = existing.getAbsolutePath();
+        CommandLine cl = parser.parseAsync(new String[] {"-f", path, path}).get(20, TimeUnit.SECONDS);
+        Assert.assertArrayEquals(new String[] {path, path}, cl.getValues("-f"));
+
+        try {
+            parser.parseAsync(new String[] {"-f", path, path + ".missing"}).get(20, TimeUnit.SECONDS);
+            Assert.fail("Missing file must be reported");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof ValidationException);
+        }
+
+        // synchronous parsing still validates on the calling thread
+        try {
+            parser.parse(new String[] {"-f", path + ".missing"});
+            Assert.fail("Missing file must be reported");
+        } catch (ValidationException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package it.jnrpe.yaclp.test;
+
+import it.jnrpe.yaclp.*;
+import it.jnrpe.yaclp.validators.ValidatorBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class BatchParseTest {
+
+    private static final int COMMAND_LINES = 20000;
+
+    private Parser buildParser() {
+        return ParserBuilder.forOptionsBasedCli()
+            .withOption(
+                OptionBuilder.forOption("-H", "--host")
+                    .mandatory(true)
+                    .argument(ArgumentBuilder.forArgument("hostname").build())
+                    .build(),
+                OptionBuilder.forOption("-p", "--port")
+                    .argument(ArgumentBuilder.forArgument("port")
+                        .withValidator(ValidatorBuilder.forInteger().min(1).max(65535).build())
+                        .build())
+                    .build()
+            ).build();
+    }
+
+    private static List<String[]> buildCommandLines() {
+        List<String[]> res = new ArrayList<>(COMMAND_LINES);
+        for (int i = 0; i < COMMAND_LINES; i++) {
+            if (i % 10 == 3) {
+                // invalid: missing host
+                res.add(new String[] {"-p", Integer.toString(i)});
+            } else {
+                res.add(new String[] {"-H", "host-" + i, "-p", Integer.toString(1 + i % 65535)});
+            }
+        }
+        return res;
+    }
+
+    private static void check(final List<ParseResult> results) {
+        Assert.assertEquals(COMMAND_LINES, results.size());
+        for (int i = 0; i < COMMAND_LINES; i++) {
+            ParseResult result = results.get(i);
+            if (i % 10 == 3) {
+                Assert.assertFalse(result.isSuccess());
+                Assert.assertNull(result.getCommandLine());
+                Assert.assertEquals("Mandatory option [--host] is missing", result.getError().getMessage());
+            } else {
+                Assert.assertTrue(result.isSuccess());
+                Assert.assertEquals("host-" + i, result.getCommandLine().getValue("-H"));
+                Assert.assertEquals(Integer.toString(1 + i % 65535), result.getCommandLine().getValue("--port"));
+            }
+        }
+    }
+
+    @Test
+    public void testResultsAreInInputOrder() {
+        Parser parser = buildParser();
+        List<String[]> commandLines = buildCommandLines();
+
+        check(parser.parseAll(commandLines, 1));
+        check(parser.parseAll(commandLines, 4));
+        check(parser.parseAll(commandLines.stream(), Runtime.getRuntime().availableProcessors()));
+    }
+
+    @Test
+    public void testCallerOwnedPool() {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            check(buildParser().parseAll(buildCommandLines(), pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testEmptyBatch() {
+        Assert.assertTrue(buildParser().parseAll(new ArrayList<String[]>(), 2).isEmpty());
+    }
+
+    @Test
+    public void testRuntimeExceptionsAreReportedPerCommandLine() {
+        Parser parser = ParserBuilder.forOptionsBasedCli()
+            .withOption(
+                OptionBuilder.forOption("-H", "--host")
+                    .argument(ArgumentBuilder.forArgument("hostname")
+                        .withValidator((option, argument, value) -> {
+                            if (value.equals("crash")) {
+                                throw new IllegalStateException("validator failure");
+                            }
+                        })
+                        .build())
+                    .build()
+            ).build();
+
+        List<String[]> commandLines = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            commandLines.add(new String[] {"-H", i == 42 ? "crash" : "host-" + i});
+        }
+
+        List<ParseResult> results = parser.parseAll(commandLines, 4);
+        for (int i = 0; i < results.size(); i++) {
+            Assert.assertEquals(i != 42, results.get(i).isSuccess());
+        }
+        ParsingException error = results.get(42).getError();
+        Assert.assertEquals("Unexpected error parsing the command line: "
+            + "java.lang.IllegalStateException: validator failure", error.getMessage());
+        Assert.assertTrue(error.getCause() instanceof IllegalStateException);
+    }
+}
@@ -1,6 +1,7 @@
 package it.jnrpe.yaclp.test;
 
 import it.jnrpe.yaclp.*;
+import org.junit.Assert;
 import org.junit.Test;
 
 public class CommandTest {
@@ -45,4 +46,40 @@ public class CommandTest {
         buildParser().parse(new String[]{"checkout", "clone"});
     }
 
+    @Test
+    public void commandOptionValuesTest() throws ParsingException {
+        CommandLine cl = buildParser().parse(new String[]{"co", "-bmybranch"});
+
+        Assert.assertTrue(cl.hasCommand("co"));
+        Assert.assertEquals("mybranch", cl.getValue("-b"));
+    }
+
+    @Test
+    public void manyCommandsTest() throws ParsingException {
+        Command[] commands = new Command[200];
+        for (int i = 0; i < commands.length; i++) {
+            commands[i] = CommandBuilder.forNewCommand("c" + i, "command" + i)
+                .withOption(OptionBuilder.forOption("-v", "--verbose").build())
+                .build();
+        }
+
+        Parser parser = ParserBuilder.forCommandsBasedCli().withCommands(commands).build();
+
+        CommandLine cl = parser.parse(new String[]{"command150", "--verbose"});
+        Assert.assertTrue(cl.hasCommand("command150"));
+        Assert.assertTrue(cl.hasOption("-v"));
+
+        cl = parser.parse(new String[]{"c7"});
+        Assert.assertTrue(cl.hasCommand("c7"));
+        Assert.assertFalse(cl.hasOption("-v"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicatedCommandTest() {
+        ParserBuilder.forCommandsBasedCli()
+            .withCommands(
+                CommandBuilder.forNewCommand("co", "checkout").build(),
+                CommandBuilder.forNewCommand("co", "commit").build()
+            ).build();
+    }
 }
@@ -0,0 +1,119 @@
+package it.jnrpe.yaclp.test;
+
+import it.jnrpe.yaclp.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class CompactCommandLineTest {
+
+    /**
+     * Number of values of the footprint test: with 16 chars values, the arena is completely full.
+     */
+    private static final int VALUES = 1 << 17;
+
+    private Parser buildParser() {
+        return ParserBuilder.forOptionsBasedCli()
+            .withOption(
+                OptionBuilder.forOption("-H", "--host")
+                    .argument(ArgumentBuilder.forArgument("hostname").build())
+                    .build(),
+                OptionBuilder.forOption("-q", "--quiet").build(),
+                OptionBuilder.forOption("-p", "--path")
+                    .argument(ArgumentBuilder.forArgument("path").withMaxRepetitions(Integer.MAX_VALUE).build())
+                    .build(),
+                OptionBuilder.forPropertyOption("-D").build()
+            ).build();
+    }
+
+    @Test
+    public void testSameValuesAsEager() throws Exception {
+        Parser parser = buildParser();
+        String[] args = {"-Hlocalhost", "-q", "--path", "/var", "", "/caf\u00e9", "/\u20ac", "/var", "-Dkey=value"};
+
+        CommandLine eager = parser.parse(args);
+        CommandLine compact = parser.parse(args, new CommandLine(CommandLine.Storage.COMPACT));
+
+        Assert.assertEquals(eager.getValue("-H"), compact.getValue("--host"));
+        Assert.assertArrayEquals(eager.getValues("-p"), compact.getValues("--path"));
+        Assert.assertArrayEquals(new String[0], compact.getValues("-q"));
+        Assert.assertTrue(compact.hasOption("--quiet"));
+        Assert.assertFalse(compact.hasOption("-x"));
+        Assert.assertNull(compact.getValues("-x"));
+        Assert.assertEquals("value", compact.getProperties("-D").getProperty("key"));
+        Assert.assertEquals(eager.getCharSequences("-p"), compact.getCharSequences("-p").stream()
+            .map(CharSequence::toString).collect(java.util.stream.Collectors.toList()));
+    }
+
+    @Test
+    public void testCharSequences() throws Exception {
+        CommandLine cl = new CommandLine(CommandLine.Storage.COMPACT);
+        buildParser().parse(new String[] {"-p", "/var/log", "/tmp"}, cl);
+
+        List<CharSequence> values = cl.getCharSequences("-p");
+        Assert.assertEquals(2, values.size());
+        Assert.assertEquals(8, values.get(0).length());
+        Assert.assertEquals('l', values.get(0).charAt(5));
+        Assert.assertEquals("log", values.get(0).subSequence(5, 8).toString());
+        Assert.assertEquals("/tmp", values.get(1).toString());
+        Assert.assertNull(cl.getCharSequences("-H"));
+
+        try {
+            values.get(1).charAt(4);
+            Assert.fail("Views must be bounded");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        try {
+            values.add("/usr");
+            Assert.fail("Values must not be modifiable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        // buffers are reused
+        buildParser().parse(new String[] {"-p", "/usr", "-H", "host"}, cl);
+        Assert.assertArrayEquals(new String[] {"/usr"}, cl.getValues("-p"));
+        Assert.assertEquals("host", cl.getValue("-H"));
+    }
+
+    @Test
+    public void testFootprint() throws Exception {
+        Parser parser = buildParser();
+        // warm up the parser buffers
+        parser.parse(buildArgs());
+
+        long eager = retainedBytes(parser, CommandLine.Storage.EAGER);
+        long compact = retainedBytes(parser, CommandLine.Storage.COMPACT);
+
+        Assert.assertTrue("Eager: " + eager + " bytes, compact: " + compact + " bytes", compact * 2 < eager);
+    }
+
+    private static long retainedBytes(final Parser parser, final CommandLine.Storage storage) throws Exception {
+        long before = usedMemory();
+        // arguments are not referenced after parsing: only the values stored into the command line are retained
+        CommandLine cl = parser.parse(buildArgs(), new CommandLine(storage));
+        long retained = usedMemory() - before;
+
+        Assert.assertEquals(String.format("/spool/%09d", VALUES - 1), cl.getValues("-p")[VALUES - 1]);
+        return retained;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static String[] buildArgs() {
+        String[] args = new String[VALUES + 1];
+        args[0] = "-p";
+        for (int i = 0; i < VALUES; i++) {
+            args[i + 1] = String.format("/spool/%09d", i);
+        }
+        return args;
+    }
+}
@@ -0,0 +1,108 @@
+package it.jnrpe.yaclp.test;
+
+import it.jnrpe.yaclp.*;
+import it.jnrpe.yaclp.validators.ValidatorBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ConcurrentParsingTest {
+
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 20000;
+
+    private Parser buildParser() {
+        IOption verbose = OptionBuilder.forOption("-v", "--verbose").build();
+        return ParserBuilder.forOptionsBasedCli()
+            .withOption(
+                OptionBuilder.forOption("-H", "--host")
+                    .mandatory(true)
+                    .repeatable(true)
+                    .argument(ArgumentBuilder.forArgument("hostname").build())
+                    .build(),
+                OptionBuilder.forOption("-p", "--port")
+                    .argument(ArgumentBuilder.forArgument("port")
+                        .withValidator(ValidatorBuilder.forInteger().min(1).max(65535).build())
+                        .build())
+                    .build(),
+                verbose,
+                OptionBuilder.forOption("-q", "--quiet").incompatibleWith(verbose).build(),
+                OptionBuilder.forPropertyOption("-D").build()
+            ).build();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBuiltOptionsAreFrozen() {
+        IOption a = OptionBuilder.forOption("-a").build();
+        IOption b = OptionBuilder.forOption("-b").build();
+        ParserBuilder.forOptionsBasedCli().withOption(a, b).build();
+
+        a.addRequiredOption(b);
+    }
+
+    @Test
+    public void testConcurrentParsing() throws Exception {
+        final Parser parser = buildParser();
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int threadId = t;
+                futures.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        // warm up before measuring
+                        parseAndCheck(parser, threadId, 0);
+                        barrier.await();
+
+                        long blockedBefore = threadMXBean.getThreadInfo(Thread.currentThread().getId()).getBlockedCount();
+                        for (int i = 0; i < ITERATIONS; i++) {
+                            parseAndCheck(parser, threadId, i);
+                        }
+                        return threadMXBean.getThreadInfo(Thread.currentThread().getId()).getBlockedCount() - blockedBefore;
+                    }
+                }));
+            }
+
+            for (Future<Long> future : futures) {
+                Assert.assertEquals("Parsing threads must never block", Long.valueOf(0), future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void parseAndCheck(final Parser parser, final int threadId, final int iteration) throws Exception {
+        String host = "host-" + threadId + "-" + iteration;
+        String port = Integer.toString(1 + (iteration % 65535));
+
+        String[] args = iteration % 2 == 0
+            ? new String[] {"-H", host, "--port", port, "-Dthread=" + threadId, "-v"}
+            : new String[] {"--quiet", "-H", host, "-H", "other", "-p", port};
+
+        CommandLine cl = parser.parse(args);
+
+        Assert.assertEquals(host, cl.getValue("--host"));
+        Assert.assertEquals(port, cl.getValue("-p"));
+        if (iteration % 2 == 0) {
+            Assert.assertTrue(cl.hasOption("--verbose"));
+            Assert.assertFalse(cl.hasOption("-q"));
+            Assert.assertEquals(Integer.toString(threadId), cl.getProperties("-D").getProperty("thread"));
+        } else {
+            Assert.assertTrue(cl.hasOption("-q"));
+            Assert.assertArrayEquals(new String[] {host, "other"}, cl.getValues("-H"));
+        }
+    }
+}
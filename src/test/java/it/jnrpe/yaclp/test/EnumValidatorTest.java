@@ -0,0 +1,111 @@
+package it.jnrpe.yaclp.test;
+
+import it.jnrpe.yaclp.*;
+import it.jnrpe.yaclp.validators.EnumValidator;
+import it.jnrpe.yaclp.validators.IArgumentValidator;
+import it.jnrpe.yaclp.validators.ValidationException;
+import it.jnrpe.yaclp.validators.ValidatorBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Locale;
+
+public class EnumValidatorTest {
+
+    private enum Level {
+        OK, WARNING, CRITICAL, UNKNOWN
+    }
+
+    private static Parser buildParser(final IArgumentValidator validator) {
+        return ParserBuilder.forOptionsBasedCli()
+            .withOption(
+                OptionBuilder.forOption("-l", "--level")
+                    .argument(ArgumentBuilder.forArgument("level").withValidator(validator).build())
+                    .build()
+            ).build();
+    }
+
+    @Test
+    public void testCaseInsensitive() throws Exception {
+        Parser parser = buildParser(ValidatorBuilder.forEnums().withValues("Ok", "warning", "CRITICAL").build());
+        parser.parse(new String[] {"-l", "ok"});
+        parser.parse(new String[] {"-l", "WARNING"});
+        parser.parse(new String[] {"-l", "critical"});
+
+        try {
+            parser.parse(new String[] {"-l", "unknown"});
+            Assert.fail("Value is not accepted");
+        } catch (ValidationException e) {
+            Assert.assertEquals("Value for argument <level> of option <--level> must be one of [Ok,warning,CRITICAL]",
+                e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCaseSensitive() throws Exception {
+        Parser parser = buildParser(ValidatorBuilder.forEnums().withValues("ok", "OK").caseSensitive(true).build());
+        parser.parse(new String[] {"-l", "ok"});
+        parser.parse(new String[] {"-l", "OK"});
+        try {
+            parser.parse(new String[] {"-l", "Ok"});
+            Assert.fail("Value is not accepted");
+        } catch (ValidationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testFoldingDoesNotDependOnLocale() throws Exception {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            // with the Turkish locale, "INFO".toLowerCase() starts with a dotless i
+            Parser parser = buildParser(ValidatorBuilder.forEnums().withValues("info", "debug").build());
+            parser.parse(new String[] {"-l", "INFO"});
+            parser.parse(new String[] {"-l", "Debug"});
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void testManyValues() throws Exception {
+        String[] values = new String[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = "value-" + i;
+        }
+        IArgumentValidator validator = ValidatorBuilder.forEnums().withValues(values).build();
+        Parser parser = buildParser(validator);
+        for (int i = 0; i < values.length; i++) {
+            parser.parse(new String[] {"-l", "VALUE-" + i});
+        }
+        for (int i = values.length; i < values.length * 2; i++) {
+            try {
+                parser.parse(new String[] {"-l", "value-" + i});
+                Assert.fail("Value is not accepted");
+            } catch (ValidationException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testEnumBinding() throws Exception {
+        Parser parser = buildParser(ValidatorBuilder.forEnum(Level.class).build());
+
+        CommandLine cl = parser.parse(new String[] {"-l", "Critical"});
+        Assert.assertEquals(Level.CRITICAL, cl.getParsedValue("-l").asEnum(Level.class));
+        Assert.assertEquals(Level.UNKNOWN, new CommandLine().getParsedValue("-l").asEnum(Level.class, Level.UNKNOWN));
+
+        Assert.assertEquals(Level.OK, EnumValidator.toEnum(Level.class, "ok"));
+        Assert.assertNull(EnumValidator.toEnum(Level.class, "okay"));
+
+        try {
+            parser.parse(new String[] {"-l", "fatal"});
+            Assert.fail("Value is not accepted");
+        } catch (ValidationException e) {
+            Assert.assertEquals("Value for argument <level> of option <--level> must be one of [OK,WARNING,CRITICAL,UNKNOWN]",
+                e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package it.jnrpe.yaclp.test;
+
+import it.jnrpe.yaclp.*;
+import it.jnrpe.yaclp.validators.FileAttributeCache;
+import it.jnrpe.yaclp.validators.IArgumentValidator;
+import it.jnrpe.yaclp.validators.ValidationException;
+import it.jnrpe.yaclp.validators.ValidatorBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class FileValidatorCacheTest {
+
+    private Parser buildParser(final FileAttributeCache cache) {
+        return ParserBuilder.forOptionsBasedCli()
+            .withOption(
+                OptionBuilder.forOption("-f", "--file")
+                    .argument(ArgumentBuilder.forArgument("path")
+                        .withValidator(ValidatorBuilder.forFile().exists().isReadable().withCache(cache).build())
+                        .build())
+                    .build()
+            ).build();
+    }
+
+    @Test
+    public void testHitsAndMisses() throws Exception {
+        File file = File.createTempFile("yaclp", ".tmp");
+        file.deleteOnExit();
+
+        FileAttributeCache cache = new FileAttributeCache(1, TimeUnit.HOURS, 16);
+        Parser parser = buildParser(cache);
+
+        for (int i = 0; i < 100; i++) {
+            parser.parse(new String[] {"-f", file.getAbsolutePath()});
+        }
+
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(99, cache.getHitCount());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testEntriesExpire() throws Exception {
+        File file = File.createTempFile("yaclp", ".tmp");
+        Assert.assertTrue(file.delete());
+        file.deleteOnExit();
+
+        FileAttributeCache cache = new FileAttributeCache(200, TimeUnit.MILLISECONDS, 16);
+        Parser parser = buildParser(cache);
+        String[] args = {"-f", file.getAbsolutePath()};
+
+        try {
+            parser.parse(args);
+            Assert.fail("Missing file must be reported");
+        } catch (ValidationException e) {
+            // expected
+        }
+
+        Assert.assertTrue(file.createNewFile());
+        try {
+            parser.parse(args);
+            Assert.fail("Cached attributes must be used until they expire");
+        } catch (ValidationException e) {
+            // expected
+        }
+
+        Thread.sleep(300);
+        parser.parse(args);
+        Assert.assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testSizeIsBounded() throws Exception {
+        FileAttributeCache cache = new FileAttributeCache(1, TimeUnit.HOURS, 8);
+        Parser parser = ParserBuilder.forOptionsBasedCli()
+            .withOption(
+                OptionBuilder.forOption("-f", "--file")
+                    .argument(ArgumentBuilder.forArgument("path")
+                        .withValidator(ValidatorBuilder.forFile().notExists().withCache(cache).build())
+                        .build())
+                    .build()
+            ).build();
+
+        for (int i = 0; i < 100; i++) {
+            parser.parse(new String[] {"-f", "/non/existent/path/" + i});
+        }
+
+        Assert.assertEquals(100, cache.getMissCount());
+        Assert.assertTrue("Cache size: " + cache.size(), cache.size() <= 8);
+
+        // most recent paths are still cached
+        parser.parse(new String[] {"-f", "/non/existent/path/99"});
+        Assert.assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testConcurrentMissesReadOnce() throws Exception {
+        File file = File.createTempFile("yaclp", ".tmp");
+        file.deleteOnExit();
+        final String path = file.getAbsolutePath();
+        final int threads = 8;
+
+        FileAttributeCache cache = new FileAttributeCache(1, TimeUnit.HOURS, 16);
+        final IArgumentValidator validator = ValidatorBuilder.forFile().exists().isReadable().withCache(cache).build();
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 50; round++) {
+                cache.clear();
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < threads; i++) {
+                    futures.add(executor.submit(() -> {
+                        barrier.await(10, TimeUnit.SECONDS);
+                        validator.validate(null, null, path);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get(20, TimeUnit.SECONDS);
+                }
+                Assert.assertEquals(round + 1, cache.getMissCount());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assert.assertEquals(50 * (threads - 1), cache.getHitCount());
+        Assert.assertEquals(1, cache.size());
+    }
+}
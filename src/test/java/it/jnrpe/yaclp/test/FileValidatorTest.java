@@ -0,0 +1,69 @@
+package it.jnrpe.yaclp.test;
+
+import it.jnrpe.yaclp.validators.FileAttributeCache;
+import it.jnrpe.yaclp.validators.IArgumentValidator;
+import it.jnrpe.yaclp.validators.ValidationException;
+import it.jnrpe.yaclp.validators.ValidatorBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+public class FileValidatorTest {
+
+    @Test
+    public void testSingleAttributesReadPerValidation() throws Exception {
+        File file = File.createTempFile("yaclp", ".tmp");
+        file.deleteOnExit();
+        String path = file.getAbsolutePath();
+
+        // each lookup in an empty cache is a read of the path attributes
+        FileAttributeCache cache = new FileAttributeCache(1, TimeUnit.HOURS, 16);
+        IArgumentValidator validator = ValidatorBuilder.forFile().exists().isFile().isReadable().isWritable()
+            .withCache(cache).build();
+
+        for (int i = 0; i < 10; i++) {
+            cache.clear();
+            validator.validate(null, null, path);
+        }
+
+        Assert.assertEquals(10, cache.getMissCount());
+        Assert.assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void testSymbolicLinks() throws Exception {
+        File file = File.createTempFile("yaclp", ".tmp");
+        file.deleteOnExit();
+        Path link = file.toPath().resolveSibling(file.getName() + ".link");
+        try {
+            Files.createSymbolicLink(link, file.toPath());
+        } catch (UnsupportedOperationException | java.io.IOException e) {
+            return;
+        }
+
+        try {
+            ValidatorBuilder.forFile().isFile().build().validate(null, null, link.toString());
+            try {
+                ValidatorBuilder.forFile().isFile().noFollowLinks().build().validate(null, null, link.toString());
+                Assert.fail("A symbolic link is not a file when links are not followed");
+            } catch (ValidationException e) {
+                // expected
+            }
+
+            Assert.assertTrue(file.delete());
+            ValidatorBuilder.forFile().exists().noFollowLinks().build().validate(null, null, link.toString());
+            try {
+                ValidatorBuilder.forFile().exists().build().validate(null, null, link.toString());
+                Assert.fail("A dangling link does not exist when links are followed");
+            } catch (ValidationException e) {
+                // expected
+            }
+        } finally {
+            Files.deleteIfExists(link);
+        }
+    }
+}
@@ -91,4 +91,42 @@ public class IncompatibleOptionTest {
         p.parse(new String[]{"-c", "--ca", "--cb", "-b", "--ba", "--bb"});
     }
 
+    private Parser buildDenseParser(final int size) {
+        IOption[] options = new IOption[size];
+        for (int i = 0; i < size; i++) {
+            options[i] = OptionBuilder.forOption("--opt" + i).build();
+        }
+        // every option is incompatible with all the others and requires --base
+        IOption base = OptionBuilder.forOption("--base").build();
+        for (int i = 0; i < size; i++) {
+            options[i].addRequiredOption(base);
+            for (int j = i + 1; j < size; j++) {
+                options[i].addIncompatibleOption(options[j]);
+            }
+        }
+
+        return ParserBuilder
+            .forOptionsBasedCli()
+            .withOption(base)
+            .withOption(options).build();
+    }
+
+    @Test
+    public void test_dense_graph_happy() throws Exception {
+        Parser p = buildDenseParser(300);
+        p.parse(new String[]{"--base", "--opt150"});
+    }
+
+    @Test(expected = ParsingException.class)
+    public void test_dense_graph_incompatible() throws Exception {
+        Parser p = buildDenseParser(300);
+        p.parse(new String[]{"--base", "--opt10", "--opt299"});
+    }
+
+    @Test(expected = ParsingException.class)
+    public void test_dense_graph_required() throws Exception {
+        Parser p = buildDenseParser(300);
+        p.parse(new String[]{"--opt70"});
+    }
+
 }
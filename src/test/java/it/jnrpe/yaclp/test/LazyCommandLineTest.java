@@ -0,0 +1,159 @@
+package it.jnrpe.yaclp.test;
+
+import it.jnrpe.yaclp.*;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LazyCommandLineTest {
+
+    private static final int WIDE_OPTIONS = 30;
+    private static final int WARMUP = 50000;
+    private static final int ITERATIONS = 50000;
+
+    private Parser buildParser() {
+        return ParserBuilder.forOptionsBasedCli()
+            .withOption(
+                OptionBuilder.forOption("-H", "--host")
+                    .argument(ArgumentBuilder.forArgument("hostname").build())
+                    .build(),
+                OptionBuilder.forOption("-f", "--file")
+                    .argument(ArgumentBuilder.forArgument("path")
+                        .withMaxRepetitions(Integer.MAX_VALUE)
+                        .build())
+                    .build(),
+                OptionBuilder.forOption("-v", "--verbose").build(),
+                OptionBuilder.forOption("-q", "--quiet").build(),
+                OptionBuilder.forPropertyOption("-D").build()
+            ).build();
+    }
+
+    private Parser buildWideParser() {
+        List<IOption> options = new ArrayList<>();
+        for (int i = 0; i < WIDE_OPTIONS; i++) {
+            options.add(OptionBuilder.forOption("-o" + i, "--option-" + i)
+                .argument(ArgumentBuilder.forArgument("value").build())
+                .build());
+        }
+        return ParserBuilder.forOptionsBasedCli()
+            .withOption(options.toArray(new IOption[options.size()]))
+            .build();
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Test
+    public void testLazyValuesMatchEagerValues() throws Exception {
+        Parser parser = buildParser();
+        String[] args = {"-Hlocalhost", "-v", "-f", "/var", "/tmp", "-Dkey=value", "-D", "other=x=y"};
+
+        CommandLine eager = parser.parse(args);
+        CommandLine lazy = parser.parse(args, new CommandLine(CommandLine.Storage.LAZY));
+
+        for (String name : new String[] {"-H", "--host", "-f", "--file", "-v", "--verbose", "-q", "--quiet", "-D"}) {
+            Assert.assertEquals(name, eager.hasOption(name), lazy.hasOption(name));
+            Assert.assertEquals(name, eager.getValue(name, "default"), lazy.getValue(name, "default"));
+            Assert.assertArrayEquals(name, eager.getValues(name), lazy.getValues(name));
+            Assert.assertEquals(name, eager.getProperties(name), lazy.getProperties(name));
+        }
+
+        Assert.assertEquals("localhost", lazy.getValue("-H"));
+        Assert.assertArrayEquals(new String[] {"/var", "/tmp"}, lazy.getValues("--file"));
+        Assert.assertEquals("value", lazy.getProperties("-D").getProperty("key"));
+        Assert.assertEquals("x=y", lazy.getProperties("-D").getProperty("other"));
+    }
+
+    @Test
+    public void testLazyCommandValues() throws Exception {
+        Parser parser = ParserBuilder.forCommandsBasedCli()
+            .withCommands(CommandBuilder.forNewCommand("start")
+                .withOption(OptionBuilder.forOption("-H", "--host")
+                    .argument(ArgumentBuilder.forArgument("hostname").build())
+                    .build())
+                .build())
+            .build();
+
+        CommandLine cl = parser.parse(new String[] {"start", "--host", "localhost"},
+            new CommandLine(CommandLine.Storage.LAZY));
+
+        Assert.assertTrue(cl.hasCommand("start"));
+        Assert.assertTrue(cl.hasOption("-H"));
+        Assert.assertEquals("localhost", cl.getValue("-H"));
+    }
+
+    @Test
+    public void testReusedLazyCommandLineIsReset() throws Exception {
+        Parser parser = buildParser();
+        CommandLine cl = new CommandLine(CommandLine.Storage.LAZY);
+
+        parser.parse(new String[] {"-H", "first", "-v", "-f", "a", "b"}, cl);
+        Assert.assertEquals("first", cl.getValue("-H"));
+
+        parser.parse(new String[] {"-H", "second", "-q"}, cl);
+        Assert.assertEquals("second", cl.getValue("-H"));
+        Assert.assertTrue(cl.hasOption("--quiet"));
+        Assert.assertFalse(cl.hasOption("--verbose"));
+        Assert.assertFalse(cl.hasOption("-f"));
+        Assert.assertNull(cl.getValues("-f"));
+    }
+
+    @Test
+    public void testLazyParsingAllocatesLess() throws Exception {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+
+        Parser parser = buildWideParser();
+        String[] args = new String[WIDE_OPTIONS * 2];
+        for (int i = 0; i < WIDE_OPTIONS; i++) {
+            args[i * 2] = "--option-" + i;
+            args[i * 2 + 1] = "value-" + i;
+        }
+
+        long eager = measure(parser, args, CommandLine.Storage.EAGER);
+        long lazy = measure(parser, args, CommandLine.Storage.LAZY);
+
+        Assert.assertTrue("Eager: " + eager + " bytes, lazy: " + lazy + " bytes", lazy * 2 < eager);
+    }
+
+    @Test
+    public void testReusedLazyCommandLineDoesNotAllocate() throws Exception {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+
+        Parser parser = buildParser();
+        CommandLine cl = new CommandLine(CommandLine.Storage.LAZY);
+        String[] args = {"-H", "localhost", "--verbose", "-f", "/var", "/tmp", "/etc"};
+
+        for (int i = 0; i < WARMUP; i++) {
+            parser.parse(args, cl);
+        }
+
+        long before = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            parser.parse(args, cl);
+        }
+        long perParse = (allocatedBytes() - before) / ITERATIONS;
+
+        Assert.assertTrue("Allocated bytes per parse: " + perParse, perParse < 16);
+        Assert.assertArrayEquals(new String[] {"/var", "/tmp", "/etc"}, cl.getValues("--file"));
+    }
+
+    private static long measure(final Parser parser, final String[] args, final CommandLine.Storage storage)
+        throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            Assert.assertEquals("value-7", parser.parse(args, new CommandLine(storage)).getValue("-o7"));
+        }
+
+        long before = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            // only one of the parsed options is read
+            Assert.assertEquals("value-7", parser.parse(args, new CommandLine(storage)).getValue("-o7"));
+        }
+        return (allocatedBytes() - before) / ITERATIONS;
+    }
+}
@@ -1,6 +1,7 @@
 package it.jnrpe.yaclp.test;
 
 import it.jnrpe.yaclp.*;
+import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.Arrays;
@@ -20,6 +21,12 @@ public class MutuallyExlcusiveOptionTest {
                     .description("Check that a file contains a label")
                     .argument(ArgumentBuilder.forArgument("label").build())
                     .build())
+            .withOptions(
+                OptionBuilder.forOption("-H", "--host")
+                    .description("Host where the file is")
+                    .repeatable(true)
+                    .argument(ArgumentBuilder.forArgument("hostname").build())
+                    .build())
             .build()
         ).build();
     }
@@ -38,4 +45,58 @@ public class MutuallyExlcusiveOptionTest {
 
         p.parse(new String[]{"--exists", "--contains", "label"});
     }
+
+    @Test
+    public void testIncompatibleMessage() throws Exception {
+        Parser p = buildMutuallyExclusiveOption();
+
+        try {
+            p.parse(new String[]{"--exists", "--contains", "label"});
+            Assert.fail("Incompatible options must be reported");
+        } catch (ParsingException e) {
+            Assert.assertEquals(
+                "Incompatible options present: only one of [--exists,--contains,--host] must be specified",
+                e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRepeatedMember() throws Exception {
+        Parser p = buildMutuallyExclusiveOption();
+
+        try {
+            p.parse(new String[]{"-e", "-e"});
+            Assert.fail("Repeated option must be reported");
+        } catch (ParsingException e) {
+            Assert.assertEquals("Option [--exists] can be specified only one time", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRepeatableMember() throws Exception {
+        CommandLine cl = buildMutuallyExclusiveOption().parse(new String[]{"-H", "a", "-H", "b"});
+
+        Assert.assertArrayEquals(new String[]{"a", "b"}, cl.getValues("--host"));
+    }
+
+    @Test
+    public void testIncrementalParsing() throws Exception {
+        ParserSession session = buildMutuallyExclusiveOption().newSession();
+        session.feed("-H");
+        session.feed("a");
+        session.feed("-H");
+        session.feed("b");
+        Assert.assertArrayEquals(new String[]{"a", "b"}, session.finish().getValues("-H"));
+
+        session = buildMutuallyExclusiveOption().newSession();
+        session.feed("-e");
+        try {
+            session.feed("-c");
+            Assert.fail("Incompatible options must be reported");
+        } catch (ParsingException e) {
+            Assert.assertEquals(
+                "Incompatible options present: only one of [--exists,--contains,--host] must be specified",
+                e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,128 @@
+package it.jnrpe.yaclp.test;
+
+import it.jnrpe.yaclp.validators.IArgumentValidator;
+import it.jnrpe.yaclp.validators.ValidationException;
+import it.jnrpe.yaclp.validators.ValidatorBuilder;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+public class NumericValidatorTest {
+
+    private static boolean isValid(final IArgumentValidator validator, final String value) {
+        try {
+            validator.validate(null, null, value);
+            return true;
+        } catch (ValidationException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void testIntegerBounds() {
+        IArgumentValidator validator = ValidatorBuilder.forInteger().build();
+        Assert.assertTrue(isValid(validator, "2147483647"));
+        Assert.assertTrue(isValid(validator, "-2147483648"));
+        Assert.assertTrue(isValid(validator, "+12"));
+        Assert.assertFalse(isValid(validator, "2147483648"));
+        Assert.assertFalse(isValid(validator, "-2147483649"));
+        Assert.assertFalse(isValid(validator, "-"));
+        Assert.assertFalse(isValid(validator, ""));
+        Assert.assertFalse(isValid(validator, "12a"));
+
+        Assert.assertTrue(isValid(ValidatorBuilder.forInteger().radix(16).max(255).build(), "ff"));
+        Assert.assertFalse(isValid(ValidatorBuilder.forInteger().radix(16).max(255).build(), "100"));
+    }
+
+    @Test
+    public void testLong() {
+        IArgumentValidator validator = ValidatorBuilder.forLong().build();
+        Assert.assertTrue(isValid(validator, "9223372036854775807"));
+        Assert.assertTrue(isValid(validator, "-9223372036854775808"));
+        Assert.assertFalse(isValid(validator, "9223372036854775808"));
+        Assert.assertFalse(isValid(validator, "-9223372036854775809"));
+        Assert.assertFalse(isValid(validator, "1.5"));
+
+        IArgumentValidator range = ValidatorBuilder.forLong().min(-5000000000L).max(5000000000L).build();
+        Assert.assertTrue(isValid(range, "4999999999"));
+        Assert.assertTrue(isValid(range, "-5000000000"));
+        Assert.assertFalse(isValid(range, "5000000001"));
+
+        try {
+            range.validate(null, null, "-5000000001");
+            Assert.fail("Value is out of range");
+        } catch (ValidationException e) {
+            Assert.assertEquals("Value must be greater than -5000000000 (current value: -5000000001)", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDoubleSyntax() {
+        IArgumentValidator validator = ValidatorBuilder.forDouble().build();
+        String[] valid = {"0", "-0", "1", "+1.5", "-1.5", ".5", "5.", "1e10", "1E-10", "2.5e+3", "0.000001",
+            "123456789012345678901234567890", "1e308", "4.9e-324"};
+        for (String value : valid) {
+            Assert.assertTrue(value, isValid(validator, value));
+        }
+
+        String[] invalid = {"", "-", ".", "e5", "1e", "1e+", "1.2.3", "1,5", " 1", "1 ", "NaN", "Infinity",
+            "0x1p3", "1d", "1e400", "-1e400"};
+        for (String value : invalid) {
+            Assert.assertFalse(value, isValid(validator, value));
+        }
+    }
+
+    @Test
+    public void testDoubleRange() {
+        String[] values = {"0.1", "0.3", "1.0000000000000002", "3.141592653589793", "2.2250738585072014E-308",
+            "9007199254740993", "123456.789e-2", "0.1e1", "99.99999999999999999999", "1.7976931348623157e308"};
+        for (String value : values) {
+            double parsed = Double.parseDouble(value);
+            // the bounds are the exact value: if it is parsed differently, one of the checks fails
+            IArgumentValidator validator = ValidatorBuilder.forDouble().min(parsed).max(parsed).build();
+            Assert.assertTrue(value, isValid(validator, value));
+            Assert.assertFalse(value, isValid(
+                ValidatorBuilder.forDouble().min(Math.nextUp(parsed)).build(), value));
+            Assert.assertFalse(value, isValid(
+                ValidatorBuilder.forDouble().max(Math.nextDown(parsed)).build(), value));
+        }
+
+        IArgumentValidator threshold = ValidatorBuilder.forDouble().min(0).max(100).build();
+        Assert.assertTrue(isValid(threshold, "99.5"));
+        Assert.assertFalse(isValid(threshold, "100.5"));
+        Assert.assertFalse(isValid(threshold, "-0.5"));
+    }
+
+    @Test
+    public void testValidationDoesNotAllocate() throws Exception {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+
+        IArgumentValidator integer = ValidatorBuilder.forInteger().min(1).max(65535).build();
+        IArgumentValidator longs = ValidatorBuilder.forLong().min(-5000000000L).build();
+        IArgumentValidator doubles = ValidatorBuilder.forDouble().min(0).max(100).build();
+        final int iterations = 100000;
+
+        for (int i = 0; i < 2 * iterations; i++) {
+            integer.validate(null, null, "5666");
+            longs.validate(null, null, "-4999999999");
+            doubles.validate(null, null, "99.5");
+        }
+
+        long before = allocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            integer.validate(null, null, "5666");
+            longs.validate(null, null, "-4999999999");
+            doubles.validate(null, null, "99.5");
+        }
+        long perValidation = (allocatedBytes() - before) / iterations;
+
+        Assert.assertEquals("Allocated bytes per validation", 0, perValidation);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -164,4 +164,42 @@ public class OptionTest {
       Assert.assertEquals(Integer.valueOf(30), cl.getParsedValue("--option3").asInteger());
 
     }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicatedOptionName() throws Exception {
+      ParserBuilder.forOptionsBasedCli()
+          .withOption(
+              OptionBuilder.forOption("-o", "--option1").build(),
+              OptionBuilder.forOption("-o", "--option2").build()
+          )
+          .build();
+    }
+
+    @Test(timeout = 10000)
+    public void testManyRepetitions() throws Exception {
+      IOption verbose = OptionBuilder.forOption("-v", "--verbose").build();
+      Parser parser = ParserBuilder.forOptionsBasedCli()
+          .withOption(
+              OptionBuilder.forOption("-H", "--host")
+                  .repeatable(true)
+                  .requires(verbose)
+                  .argument(ArgumentBuilder.forArgument("hostname").build())
+                  .build(),
+              verbose
+          )
+          .build();
+
+      final int repetitions = 200000;
+      String[] args = new String[repetitions * 2 + 1];
+      args[0] = "-v";
+      for (int i = 0; i < repetitions; i++) {
+        args[i * 2 + 1] = "-H";
+        args[i * 2 + 2] = "host" + i;
+      }
+
+      String[] hosts = parser.parse(args).getValues("--host");
+      Assert.assertEquals(repetitions, hosts.length);
+      Assert.assertEquals("host0", hosts[0]);
+      Assert.assertEquals("host" + (repetitions - 1), hosts[repetitions - 1]);
+    }
 }
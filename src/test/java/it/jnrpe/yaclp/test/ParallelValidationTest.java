@@ -0,0 +1,145 @@
+package it.jnrpe.yaclp.test;
+
+import it.jnrpe.yaclp.*;
+import it.jnrpe.yaclp.validators.IAsyncArgumentValidator;
+import it.jnrpe.yaclp.validators.ValidationException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelValidationTest {
+
+    /**
+     * Slow validator that records how many validations run at the same time.
+     * Values starting with 'bad' are not valid: the earlier they are in the command line, the later
+     * their validation completes.
+     */
+    private static class SlowValidator implements IAsyncArgumentValidator {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        @Override
+        public void validate(final IOption option, final IArgument argument, final String value)
+            throws ValidationException {
+            int current = running.incrementAndGet();
+            maxRunning.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(value.startsWith("bad") ? 100 - 5 * Integer.parseInt(value.substring(4)) : 20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            if (value.startsWith("bad")) {
+                throw new ValidationException("Invalid value <%s>", value);
+            }
+        }
+    }
+
+    private Parser buildParser(final SlowValidator validator, final int parallelism) {
+        return ParserBuilder.forOptionsBasedCli()
+            .withOption(
+                OptionBuilder.forOption("-f", "--file")
+                    .argument(ArgumentBuilder.forArgument("path")
+                        .withMaxRepetitions(Integer.MAX_VALUE)
+                        .withParallelValidation(parallelism)
+                        .withValidator(validator)
+                        .withValidator((option, argument, value) -> {
+                            if (value.startsWith("worse")) {
+                                throw new ValidationException("Very invalid value <%s>", value);
+                            }
+                        })
+                        .build())
+                    .build()
+            ).build();
+    }
+
+    private static String[] args(final String... values) {
+        String[] res = new String[values.length + 1];
+        res[0] = "-f";
+        System.arraycopy(values, 0, res, 1, values.length);
+        return res;
+    }
+
+    /**
+     * Validator whose validations wait for each other in groups of {@link #PARTIES}: it completes only
+     * if that many validations are able to run at the same time.
+     */
+    private static class RendezvousValidator extends SlowValidator {
+        private static final int PARTIES = 4;
+        private final CyclicBarrier barrier = new CyclicBarrier(PARTIES);
+
+        @Override
+        public void validate(final IOption option, final IArgument argument, final String value)
+            throws ValidationException {
+            int current = running.incrementAndGet();
+            maxRunning.accumulateAndGet(current, Math::max);
+            try {
+                barrier.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (BrokenBarrierException | TimeoutException e) {
+                throw new ValidationException("Validations are not running concurrently");
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+
+    @Test
+    public void testParallelismIsBounded() throws Exception {
+        RendezvousValidator validator = new RendezvousValidator();
+        String[] values = new String[16];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = "file-" + i;
+        }
+
+        CommandLine cl = buildParser(validator, RendezvousValidator.PARTIES).parse(args(values));
+
+        Assert.assertArrayEquals(values, cl.getValues("-f"));
+        Assert.assertEquals(RendezvousValidator.PARTIES, validator.maxRunning.get());
+    }
+
+    @Test
+    public void testFirstErrorInCommandLineOrderIsReported() throws Exception {
+        Parser parser = buildParser(new SlowValidator(), 8);
+        for (int i = 0; i < 5; i++) {
+            try {
+                parser.parse(args("ok", "bad-2", "ok", "bad-5", "bad-9", "ok"));
+                Assert.fail("Validation must fail");
+            } catch (ValidationException e) {
+                Assert.assertEquals("Invalid value <bad-2>", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testErrorsOfPreviousValuesComeFirst() throws Exception {
+        Parser parser = buildParser(new SlowValidator(), 8);
+        try {
+            parser.parse(args("ok", "bad-1", "worse"));
+            Assert.fail("Validation must fail");
+        } catch (ValidationException e) {
+            Assert.assertEquals("Invalid value <bad-1>", e.getMessage());
+        }
+
+        try {
+            parser.parse(args("ok", "worse", "bad-1"));
+            Assert.fail("Validation must fail");
+        } catch (ValidationException e) {
+            Assert.assertEquals("Very invalid value <worse>", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSequentialValidation() throws Exception {
+        SlowValidator validator = new SlowValidator();
+        buildParser(validator, 1).parse(args("a", "b", "c"));
+        Assert.assertEquals(1, validator.maxRunning.get());
+    }
+}
@@ -0,0 +1,121 @@
+package it.jnrpe.yaclp.test;
+
+import it.jnrpe.yaclp.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParserSessionTest {
+
+    private Parser buildParser() {
+        IOption verbose = OptionBuilder.forOption("-v", "--verbose").build();
+        return ParserBuilder.forOptionsBasedCli()
+            .withOption(
+                OptionBuilder.forOption("-H", "--host")
+                    .mandatory(true)
+                    .argument(ArgumentBuilder.forArgument("hostname").build())
+                    .build(),
+                OptionBuilder.forOption("-f", "--file")
+                    .argument(ArgumentBuilder.forArgument("path")
+                        .withMaxRepetitions(Integer.MAX_VALUE)
+                        .build())
+                    .build(),
+                verbose,
+                OptionBuilder.forOption("-q", "--quiet").incompatibleWith(verbose).build(),
+                OptionBuilder.forPropertyOption("-D").build()
+            ).build();
+    }
+
+    private static ParserSession feed(final Parser parser, final String... args) throws ParsingException {
+        ParserSession session = parser.newSession();
+        for (String arg : args) {
+            session.feed(arg);
+        }
+        return session;
+    }
+
+    @Test
+    public void testSessionMatchesBatchParsing() throws Exception {
+        Parser parser = buildParser();
+        String[] args = {"-Hlocalhost", "-v", "-f", "/var", "/tmp", "-Dkey=value"};
+
+        CommandLine batch = parser.parse(args);
+        CommandLine incremental = feed(parser, args).finish();
+
+        for (String name : new String[] {"-H", "-f", "-v", "-q"}) {
+            Assert.assertEquals(name, batch.hasOption(name), incremental.hasOption(name));
+            Assert.assertArrayEquals(name, batch.getValues(name), incremental.getValues(name));
+        }
+        Assert.assertEquals("value", incremental.getProperties("-D").getProperty("key"));
+    }
+
+    @Test
+    public void testUnknownOptionIsRejectedImmediately() throws Exception {
+        ParserSession session = feed(buildParser(), "-H", "localhost");
+        try {
+            session.feed("--unknown");
+            Assert.fail("Unknown option must be rejected as soon as it is fed");
+        } catch (ParsingException e) {
+            Assert.assertEquals("Unexpected tokens: [--unknown]", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRepeatedOptionIsRejectedImmediately() throws Exception {
+        ParserSession session = feed(buildParser(), "-H", "localhost");
+        try {
+            session.feed("--host");
+            Assert.fail("Repeated option must be rejected as soon as it is fed");
+        } catch (ParsingException e) {
+            Assert.assertEquals("Option [--host] can be specified only one time", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testIncompatibleOptionIsRejectedImmediately() throws Exception {
+        ParserSession session = feed(buildParser(), "-v");
+        try {
+            session.feed("-q");
+            Assert.fail("Incompatible option must be rejected as soon as it is fed");
+        } catch (ParsingException e) {
+            Assert.assertEquals("Option [--quiet] can not be specified together with option [--verbose]", e.getMessage());
+        }
+    }
+
+    @Test(expected = ParsingException.class)
+    public void testMissingMandatoryOptionIsReportedOnFinish() throws Exception {
+        feed(buildParser(), "-v").finish();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFailedSessionCantBeUsed() throws Exception {
+        ParserSession session = buildParser().newSession();
+        try {
+            session.feed("-x");
+        } catch (ParsingException e) {
+            // expected
+        }
+        session.feed("-v");
+    }
+
+    @Test
+    public void testCommandSession() throws Exception {
+        Parser parser = ParserBuilder.forCommandsBasedCli()
+            .withCommands(CommandBuilder.forNewCommand("co", "checkout")
+                .withOption(OptionBuilder.forOption("-b", "--branch")
+                    .argument(ArgumentBuilder.forArgument("branch").build())
+                    .build())
+                .build())
+            .build();
+
+        CommandLine cl = feed(parser, "checkout", "-bmybranch").finish();
+        Assert.assertTrue(cl.hasCommand("checkout"));
+        Assert.assertEquals("mybranch", cl.getValue("--branch"));
+
+        try {
+            parser.newSession().feed("unknown");
+            Assert.fail("Unknown command must be rejected as soon as it is fed");
+        } catch (ParsingException e) {
+            // expected
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package it.jnrpe.yaclp.test;
 
 import it.jnrpe.yaclp.*;
+import it.jnrpe.yaclp.validators.ValidationException;
+import it.jnrpe.yaclp.validators.ValidatorBuilder;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
 import java.util.Properties;
 
 public class PropertyOptionTest {
@@ -61,4 +67,180 @@ public class PropertyOptionTest {
         Assert.assertEquals("value1", props.getProperty("key1"));
         Assert.assertEquals("value2", props.getProperty("key2"));
     }
+
+    @Test
+    public void testPropertyMap() throws Exception {
+        Parser parser = createParser("::");
+        CommandLine cl = parser.parse(new String[]{"-Dkey::value", "-Durl::http://host::80", "-D", "empty::x"});
+        Map<String, String> props = cl.getPropertyMap("-D");
+
+        Assert.assertNotNull(props);
+        Assert.assertEquals(3, props.size());
+        Assert.assertEquals("value", props.get("key"));
+        Assert.assertEquals("http://host::80", props.get("url"));
+        Assert.assertEquals("x", cl.getProperties("-D").getProperty("empty"));
+        Assert.assertNull(cl.getPropertyMap("-X"));
+
+        try {
+            props.put("other", "value");
+            Assert.fail("The map must be read only");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        // the map is reused by the next parse calls
+        cl.reset();
+        Assert.assertNull(cl.getPropertyMap("-D"));
+        parser.parse(new String[]{"-Dother::value"}, cl);
+        Assert.assertEquals(1, cl.getPropertyMap("-D").size());
+        Assert.assertEquals("value", cl.getProperties("-D").getProperty("other"));
+    }
+
+    private Parser createSchemaParser(final boolean allowUnknownKeys) {
+        return ParserBuilder
+            .forOptionsBasedCli()
+            .withOption(
+                OptionBuilder.forPropertyOption("-D")
+                    .withArgumentValidator(ValidatorBuilder.forString().maxLen(10).build())
+                    .withKey("timeout", ValidatorBuilder.forInteger().min(1).max(60).build())
+                    .withKey("mode", ValidatorBuilder.forEnums().withValues("fast", "safe").build())
+                    .allowUnknownKeys(allowUnknownKeys)
+                    .build()
+            ).build();
+    }
+
+    private static void assertInvalid(final Parser parser, final String... args) {
+        try {
+            parser.parse(args);
+            Assert.fail("Command line must be rejected: " + String.join(" ", args));
+        } catch (ParsingException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSchema() throws Exception {
+        Parser parser = createSchemaParser(false);
+        CommandLine cl = parser.parse(new String[]{"-Dtimeout=30", "-Dmode=SAFE"});
+        Assert.assertEquals("30", cl.getPropertyMap("-D").get("timeout"));
+        Assert.assertEquals("SAFE", cl.getPropertyMap("-D").get("mode"));
+
+        assertInvalid(parser, "-Dtimeout=0");
+        assertInvalid(parser, "-Dtimeout=abc");
+        assertInvalid(parser, "-Dmode=slow");
+        assertInvalid(parser, "-Dother=value");
+
+        try {
+            parser.parse(new String[]{"-Dtimeout=5", "-Dother=value"});
+            Assert.fail("Unknown keys must be rejected");
+        } catch (ParsingException e) {
+            Assert.assertEquals("Property <other> is not allowed for option <-D>", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSchemaAllowingUnknownKeys() throws Exception {
+        Parser parser = createSchemaParser(true);
+        CommandLine cl = parser.parse(new String[]{"-Dtimeout=30", "-Dother=value"});
+        Assert.assertEquals("value", cl.getProperties("-D").getProperty("other"));
+
+        // common validators are applied to all the keys
+        assertInvalid(parser, "-Dother=a-very-long-value");
+        try {
+            parser.parse(new String[]{"-Dtimeout=12345678901"});
+            Assert.fail("Common validators must be applied to declared keys too");
+        } catch (ValidationException e) {
+            Assert.assertEquals("Value is too long (maximum length: 10)", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testManyKeys() throws Exception {
+        PropertyOptionBuilder builder = OptionBuilder.forPropertyOption("-D").allowUnknownKeys(false);
+        String[] args = new String[500];
+        for (int i = 0; i < args.length; i++) {
+            builder.withKey("key" + i, ValidatorBuilder.forInteger().min(i).max(i).build());
+            args[i] = "-Dkey" + i + "=" + i;
+        }
+        Parser parser = ParserBuilder.forOptionsBasedCli().withOption(builder.build()).build();
+
+        Assert.assertEquals(500, parser.parse(args).getPropertyMap("-D").size());
+        assertInvalid(parser, "-Dkey7=8");
+    }
+
+    private static File writePropertiesFile(final String content) throws Exception {
+        File file = File.createTempFile("yaclp", ".properties");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static Parser createFileParser() {
+        return ParserBuilder
+            .forOptionsBasedCli()
+            .withOption(
+                OptionBuilder.forPropertyOption("-D")
+                    .withKey("timeout", ValidatorBuilder.forInteger().min(1).build())
+                    .allowFileReferences(true)
+                    .build()
+            ).build();
+    }
+
+    @Test
+    public void testFileReference() throws Exception {
+        StringBuilder content = new StringBuilder("\uFEFF# comment\n\n  \r\n");
+        for (int i = 0; i < 5000; i++) {
+            content.append("key").append(i).append("=value=").append(i).append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        content.append("timeout=10\nname=caf\u00e9");
+        File file = writePropertiesFile(content.toString());
+
+        for (CommandLine.Storage storage : CommandLine.Storage.values()) {
+            CommandLine cl = new CommandLine(storage);
+            createFileParser().parse(new String[]{"-Dkey0=before", "-D@" + file.getAbsolutePath(),
+                "-D", "key1=after"}, cl);
+            Map<String, String> props = cl.getPropertyMap("-D");
+
+            Assert.assertEquals(storage.name(), 5002, props.size());
+            Assert.assertEquals("value=0", props.get("key0"));
+            Assert.assertEquals("after", props.get("key1"));
+            Assert.assertEquals("value=4999", props.get("key4999"));
+            Assert.assertEquals("10", props.get("timeout"));
+            Assert.assertEquals("caf\u00e9", props.get("name"));
+        }
+    }
+
+    @Test
+    public void testInvalidFileReference() throws Exception {
+        Parser parser = createFileParser();
+
+        File malformed = writePropertiesFile("a=1\nnot a property\n");
+        try {
+            parser.parse(new String[]{"-D@" + malformed.getAbsolutePath()});
+            Assert.fail("Malformed lines must be rejected");
+        } catch (ParsingException e) {
+            Assert.assertEquals("Line 2 of properties file <" + malformed.getAbsolutePath()
+                + "> must be in format key=value", e.getMessage());
+        }
+
+        File invalid = writePropertiesFile("timeout=0\n");
+        assertInvalid(parser, "-D@" + invalid.getAbsolutePath());
+        assertInvalid(parser, "-D@" + invalid.getAbsolutePath() + ".missing");
+
+        // file references are disabled by default
+        assertInvalid(createParser(), "-D@" + malformed.getAbsolutePath());
+    }
+
+    @Test
+    public void testLazyFileReferenceIsReadWhileParsing() throws Exception {
+        File file = writePropertiesFile("timeout=10\n");
+        CommandLine cl = createFileParser().parse(new String[]{"-D@" + file.getAbsolutePath(), "-Dname=x"},
+            new CommandLine(CommandLine.Storage.LAZY));
+
+        // neither changed nor deleted files can affect the parsed values
+        Files.write(file.toPath(), "timeout=0\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals("10", cl.getPropertyMap("-D").get("timeout"));
+        Assert.assertTrue(file.delete());
+        Assert.assertEquals("x", cl.getProperties("-D").getProperty("name"));
+    }
 }
@@ -0,0 +1,118 @@
+package it.jnrpe.yaclp.test;
+
+import it.jnrpe.yaclp.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+public class ShellTokenizerTest {
+
+    private static String[] tokenize(final String text) throws ParsingException {
+        return new ShellTokenizer().tokenize(text).toArray();
+    }
+
+    @Test
+    public void testQuoting() throws Exception {
+        Assert.assertArrayEquals(new String[] {"check_disk", "-w", "10%", "-c", "5 %", "-p", "/var"},
+            tokenize("check_disk -w 10% -c \"5 %\" -p /var"));
+        Assert.assertArrayEquals(new String[] {"a b", "c\\d", "$HOME", "it's"},
+            tokenize("'a b' 'c\\d' \"\\$HOME\" it\\'s"));
+        Assert.assertArrayEquals(new String[] {"a\"b", "x\\y", "ab cd", ""},
+            tokenize("\"a\\\"b\" \"x\\y\" ab\" \"cd \"\""));
+        Assert.assertArrayEquals(new String[] {"-a", "bc", "-d"},
+            tokenize("  -a\tb\\\nc \n -d # a comment\n"));
+        Assert.assertArrayEquals(new String[0], tokenize(" \t\n"));
+    }
+
+    @Test
+    public void testWordsAreViews() throws Exception {
+        ShellTokenizer tokenizer = new ShellTokenizer().tokenize("-c \"5 %\" 'x'y");
+
+        Assert.assertEquals(3, tokenizer.size());
+        Assert.assertEquals("5 %", tokenizer.get(1).toString());
+        Assert.assertEquals(3, tokenizer.start(1));
+        Assert.assertEquals(8, tokenizer.end(1));
+        Assert.assertEquals(3, tokenizer.length(1));
+        Assert.assertEquals("xy", tokenizer.get(2).toString());
+    }
+
+    @Test
+    public void testCharArrayAndBuffers() throws Exception {
+        char[] chars = "skip -H 'local host' skip".toCharArray();
+        Assert.assertArrayEquals(new String[] {"-H", "local host"},
+            new ShellTokenizer().tokenize(chars, 5, 15).toArray());
+
+        ByteBuffer latin1 = ByteBuffer.wrap("-H caf\u00e9".getBytes(StandardCharsets.ISO_8859_1));
+        Assert.assertArrayEquals(new String[] {"-H", "caf\u00e9"},
+            new ShellTokenizer().tokenize(latin1, StandardCharsets.ISO_8859_1).toArray());
+        Assert.assertEquals(0, latin1.position());
+
+        ByteBuffer utf8 = ByteBuffer.wrap("-H \"caf\u00e9 bar\"".getBytes(StandardCharsets.UTF_8));
+        Assert.assertArrayEquals(new String[] {"-H", "caf\u00e9 bar"},
+            new ShellTokenizer().tokenize(utf8, StandardCharsets.UTF_8).toArray());
+
+        Assert.assertArrayEquals(new String[] {"-v"},
+            new ShellTokenizer().tokenize(CharBuffer.wrap("-v")).toArray());
+    }
+
+    @Test(expected = ParsingException.class)
+    public void testUnterminatedQuote() throws Exception {
+        tokenize("-H \"localhost");
+    }
+
+    private static Parser buildParser() {
+        return ParserBuilder.forOptionsBasedCli()
+            .withOption(
+                OptionBuilder.forOption("-w", "--warning")
+                    .argument(ArgumentBuilder.forArgument("threshold").build())
+                    .build(),
+                OptionBuilder.forOption("-c", "--critical")
+                    .argument(ArgumentBuilder.forArgument("threshold").build())
+                    .build(),
+                OptionBuilder.forOption("-p", "--path")
+                    .argument(ArgumentBuilder.forArgument("path").build())
+                    .build()
+            ).build();
+    }
+
+    @Test
+    public void testParseCommandLineString() throws Exception {
+        CommandLine cl = buildParser().parse("-w 10% -c \"5 %\" -p /var");
+
+        Assert.assertEquals("10%", cl.getValue("-w"));
+        Assert.assertEquals("5 %", cl.getValue("--critical"));
+        Assert.assertEquals("/var", cl.getValue("-p"));
+    }
+
+    @Test
+    public void testParseCharArrayRegion() throws Exception {
+        char[] text = "ignored -w 10% -c '5 %' -p /var ignored".toCharArray();
+        CommandLine cl = new CommandLine(CommandLine.Storage.LAZY);
+
+        buildParser().parse(text, 8, 23, cl);
+
+        Assert.assertEquals("10%", cl.getValue("-w"));
+        Assert.assertEquals("5 %", cl.getValue("--critical"));
+        Assert.assertEquals("/var", cl.getValue("-p"));
+    }
+
+    @Test
+    public void testParseByteBuffer() throws Exception {
+        Parser parser = buildParser();
+        String text = "-w 10% -c \"5 %\" -p /caf\u00e9";
+
+        for (Charset charset : new Charset[] {
+            StandardCharsets.ISO_8859_1, StandardCharsets.UTF_8}) {
+            ByteBuffer bytes = ByteBuffer.wrap(text.getBytes(charset));
+            CommandLine cl = parser.parse(bytes, charset);
+
+            Assert.assertEquals(charset.name(), "5 %", cl.getValue("-c"));
+            Assert.assertEquals(charset.name(), "/caf\u00e9", cl.getValue("--path"));
+            Assert.assertEquals(0, bytes.position());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package it.jnrpe.yaclp.test;
+
+import it.jnrpe.yaclp.validators.IArgumentValidator;
+import it.jnrpe.yaclp.validators.StringValidator;
+import it.jnrpe.yaclp.validators.ValidationException;
+import it.jnrpe.yaclp.validators.ValidatorBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+public class StringValidatorTest {
+
+    private static final String[] PATTERNS = {
+        "", "abc", "^abc$", "a.c", "[a-c]+", "[^a-c]*", "host-\\d+", "[\\w.-]+@[\\w-]+(\\.\\w+)+",
+        "(ab|cd)*e", "a{2,3}", "a{2}b{0,}", "x?y+?z*", "(?:a|b)c", "\\Qa.b\\E.*", "[a\\-z]", "\\s*\\S+",
+        "warn.*", ".*\\.log", "[0-9a-fA-F]{1,4}", "a|b|", "(a*)*b", "\\x41\\u0042",
+        "[.]", ".", "..", "a$", "^$", "(a|ab)(c|bcd)(d*)", "[^\\d\\s]+", "\\.\\*\\+",
+        "\\Qab\\E*", "x\\Qab\\E+", "\\Qa\\E{2}b", "a\\Q\\E*", "[\\Qa-c\\E]+", "\\\\Q.*", "\\Q.*+\\E",
+        "\\Qa|b",
+    };
+
+    private static final String[] VALUES = {
+        "", "a", "b", "abc", "abd", "a.c", "aac", "ccc", "xyz", "host-1", "host-", "host-12a", "me@example.com",
+        "me@example", "ababcde", "abcde", "e", "aa", "aaa", "aaaa", "aab", "abbbb", "y", "xyyz", "ac", "bc",
+        "a.b", "a.bcd", "a-", "-", "z", "  word", "word ", "warning", "warn\nx", "app.log", "log", "ffff",
+        "fffff", "0aF", "aaab", "AB", ".", "a\n", "\n", "abcd", "abcbcd", "x1 y", ".*+", "\u00e8\uD83D\uDE00",
+        "ab", "abab", "abbb", "xab", "xabb", "xabab", "aa", "aab", "c", "-", "\\Q", "\\Qabc", "a|b",
+    };
+
+    private static boolean isValid(final IArgumentValidator validator, final String value) {
+        try {
+            validator.validate(null, null, value);
+            return true;
+        } catch (ValidationException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void testLinearEngineMatchesLikeJdk() {
+        for (String regexp : PATTERNS) {
+            Pattern pattern = Pattern.compile(regexp);
+            IArgumentValidator linear = ValidatorBuilder.forString().regexp(regexp)
+                .engine(StringValidator.Engine.LINEAR).build();
+            IArgumentValidator jdk = ValidatorBuilder.forString().regexp(regexp).build();
+            for (String value : VALUES) {
+                boolean expected = pattern.matcher(value).matches();
+                Assert.assertEquals("/" + regexp + "/ on '" + value + "'", expected, isValid(linear, value));
+                Assert.assertEquals("/" + regexp + "/ on '" + value + "'", expected, isValid(jdk, value));
+            }
+        }
+    }
+
+    @Test
+    public void testPathologicalPattern() {
+        IArgumentValidator validator = ValidatorBuilder.forString().regexp("(a+)+b")
+            .engine(StringValidator.Engine.LINEAR).build();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 50000; i++) {
+            sb.append('a');
+        }
+        String value = sb.append('!').toString();
+
+        long start = System.nanoTime();
+        Assert.assertFalse(isValid(validator, value));
+        Assert.assertTrue(isValid(validator, sb.replace(sb.length() - 1, sb.length(), "b").toString()));
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        // backtracking would never complete
+        Assert.assertTrue("Elapsed: " + elapsedMillis + "ms", elapsedMillis < 5000);
+    }
+
+    @Test
+    public void testUnsupportedPatterns() {
+        String[] unsupported = {"(a)\\1", "(?=a)a", "(?i)abc", "a*+", "\\bword\\b", "\\p{Alpha}", "[a-z&&[^b]]"};
+        for (String regexp : unsupported) {
+            try {
+                ValidatorBuilder.forString().regexp(regexp).engine(StringValidator.Engine.LINEAR).build();
+                Assert.fail(regexp + " is not supported");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testUnsupportedGroupMessage() {
+        try {
+            ValidatorBuilder.forString().regexp("(?i)abc").engine(StringValidator.Engine.LINEAR).build();
+            Assert.fail("Inline flags are not supported");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("Only capturing and non capturing groups are supported"));
+        }
+    }
+
+    @Test
+    public void testJdkMatchersAreThreadSafe() {
+        IArgumentValidator validator = ValidatorBuilder.forString().regexp("host-\\d+").build();
+        long valid = IntStream.range(0, 100000).parallel()
+            .filter(i -> isValid(validator, i % 2 == 0 ? "host-" + i : "host-" + i + "x"))
+            .count();
+        Assert.assertEquals(50000, valid);
+    }
+
+    @Test
+    public void testLengthMessages() {
+        IArgumentValidator validator = ValidatorBuilder.forString().minLen(2).maxLen(4).build();
+        try {
+            validator.validate(null, null, "abcde");
+            Assert.fail("Value is too long");
+        } catch (ValidationException e) {
+            Assert.assertEquals("Value is too long (maximum length: 4)", e.getMessage());
+        }
+    }
+}
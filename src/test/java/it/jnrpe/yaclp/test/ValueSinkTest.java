@@ -0,0 +1,206 @@
+package it.jnrpe.yaclp.test;
+
+import it.jnrpe.yaclp.*;
+import it.jnrpe.yaclp.validators.ValidationException;
+import it.jnrpe.yaclp.validators.ValidatorBuilder;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class ValueSinkTest {
+
+    private static Parser buildParser(final ArgumentBuilder argument) {
+        return ParserBuilder.forOptionsBasedCli()
+            .withOption(
+                OptionBuilder.forOption("-H", "--host")
+                    .argument(ArgumentBuilder.forArgument("hostname").build())
+                    .build(),
+                OptionBuilder.forOption("-p", "--path")
+                    .argument(argument.build())
+                    .build()
+            ).build();
+    }
+
+    @Test
+    public void testValuesAreDeliveredInOrder() throws Exception {
+        final List<String> received = new ArrayList<>();
+        Parser parser = buildParser(ArgumentBuilder.forArgument("path")
+            .withMaxRepetitions(Integer.MAX_VALUE)
+            .withValueSink((cl, option, value) -> received.add(option.getLongName() + "=" + value)));
+
+        CommandLine cl = parser.parse(new String[] {"-p", "a", "b", "-H", "host"});
+
+        Assert.assertEquals("[--path=a, --path=b]", received.toString());
+        Assert.assertTrue(cl.hasOption("--path"));
+        Assert.assertArrayEquals(new String[0], cl.getValues("-p"));
+        Assert.assertEquals("host", cl.getValue("-H"));
+    }
+
+    @Test
+    public void testLazyStorage() throws Exception {
+        final List<String> received = new ArrayList<>();
+        Parser parser = buildParser(ArgumentBuilder.forArgument("path")
+            .withMaxRepetitions(Integer.MAX_VALUE)
+            .withValueSink((cl, option, value) -> received.add(value)));
+
+        CommandLine cl = parser.parse(new String[] {"-H", "host", "--path", "a", "b"},
+            new CommandLine(CommandLine.Storage.LAZY));
+
+        Assert.assertEquals("[a, b]", received.toString());
+        Assert.assertTrue(cl.hasOption("-p"));
+        Assert.assertEquals("host", cl.getValue("--host"));
+    }
+
+    @Test
+    public void testValuesAreValidatedBeforeDelivery() throws Exception {
+        final List<String> received = new ArrayList<>();
+        Parser parser = buildParser(ArgumentBuilder.forArgument("path")
+            .withMaxRepetitions(3)
+            .withValidator(ValidatorBuilder.forInteger().min(5).build())
+            .withValueSink((cl, option, value) -> received.add(value)));
+
+        try {
+            parser.parse(new String[] {"-p", "10", "3", "20"});
+            Assert.fail("Invalid value must be reported");
+        } catch (ValidationException e) {
+            Assert.assertEquals("Value must be greater than 5 (current value: 3)", e.getMessage());
+        }
+        Assert.assertEquals("[10]", received.toString());
+
+        received.clear();
+        try {
+            parser.parse(new String[] {"-p", "10", "20", "30", "40"});
+            Assert.fail("Too many values must be reported");
+        } catch (ParsingException e) {
+            Assert.assertEquals("At most 3 <path> arguments for option <--path> must be present", e.getMessage());
+        }
+        Assert.assertEquals("[10, 20, 30]", received.toString());
+    }
+
+    @Test
+    public void testSinkCanRejectValues() throws Exception {
+        Parser parser = buildParser(ArgumentBuilder.forArgument("path")
+            .withMaxRepetitions(Integer.MAX_VALUE)
+            .withValueSink((cl, option, value) -> {
+                if (value.isEmpty()) {
+                    throw new ParsingException("Empty value for option <%s>", option.getLongName());
+                }
+            }));
+
+        try {
+            parser.parse(new String[] {"-p", "a", ""});
+            Assert.fail("Rejected value must be reported");
+        } catch (ParsingException e) {
+            Assert.assertEquals("Empty value for option <--path>", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testAsyncValidatorsRunBeforeDelivery() throws Exception {
+        File existing = File.createTempFile("yaclp", ".tmp");
+        existing.deleteOnExit();
+
+        final List<String> received = new ArrayList<>();
+        Parser parser = buildParser(ArgumentBuilder.forArgument("path")
+            .withMaxRepetitions(Integer.MAX_VALUE)
+            .withParallelValidation(4)
+            .withValidator(ValidatorBuilder.forFile().exists().build())
+            .withValueSink((cl, option, value) -> received.add(value)));
+
+        String path = existing.getAbsolutePath();
+        parser.parse(new String[] {"-p", path, path});
+        Assert.assertEquals(2, received.size());
+
+        received.clear();
+        try {
+            parser.parseAsync(new String[] {"-p", path, path + ".missing", path}).get(20, TimeUnit.SECONDS);
+            Assert.fail("Missing file must be reported");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof ValidationException);
+        }
+        Assert.assertEquals(1, received.size());
+    }
+
+    @Test
+    public void testConcurrentParsing() throws Exception {
+        final Map<CommandLine, List<String>> received = new ConcurrentHashMap<>();
+        Parser parser = buildParser(ArgumentBuilder.forArgument("path")
+            .withMaxRepetitions(Integer.MAX_VALUE)
+            .withValueSink((cl, option, value) ->
+                received.computeIfAbsent(cl, key -> new ArrayList<>()).add(value)));
+
+        List<String[]> argvs = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            argvs.add(new String[] {"-p", i + "-a", i + "-b", "-H", "host-" + i});
+        }
+        List<ParseResult> results = parser.parseAll(argvs, 4);
+
+        Assert.assertEquals(argvs.size(), received.size());
+        for (int i = 0; i < results.size(); i++) {
+            CommandLine cl = results.get(i).getCommandLine();
+            Assert.assertEquals("host-" + i, cl.getValue("-H"));
+            Assert.assertEquals(Arrays.asList(i + "-a", i + "-b"), received.get(cl));
+        }
+    }
+
+    @Test
+    public void testHeapStaysFlat() throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        Assume.assumeTrue(allocations.isThreadAllocatedMemorySupported()
+            && allocations.isThreadAllocatedMemoryEnabled());
+
+        final long[] count = new long[1];
+        Parser sinkParser = buildParser(ArgumentBuilder.forArgument("path")
+            .withMaxRepetitions(Integer.MAX_VALUE)
+            .withValueSink((cl, option, value) -> count[0]++));
+        Parser storingParser = buildParser(ArgumentBuilder.forArgument("path")
+            .withMaxRepetitions(Integer.MAX_VALUE));
+
+        String[] small = buildArgs(100000);
+        String[] large = buildArgs(800000);
+        // warm up the parser buffers
+        sinkParser.parse(large, new CommandLine());
+
+        long threadId = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        sinkParser.parse(small, new CommandLine());
+        long smallAllocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        before = allocations.getThreadAllocatedBytes(threadId);
+        sinkParser.parse(large, new CommandLine());
+        long largeAllocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        before = allocations.getThreadAllocatedBytes(threadId);
+        CommandLine stored = storingParser.parse(large, new CommandLine());
+        long storedAllocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        Assert.assertEquals(100000L + 800000L * 2, count[0]);
+        Assert.assertEquals(800000, stored.getValues("-p").length);
+        Assert.assertTrue("small: " + smallAllocated + " bytes, large: " + largeAllocated + " bytes",
+            largeAllocated < 64 * 1024 && smallAllocated < 64 * 1024);
+        Assert.assertTrue("sink: " + largeAllocated + " bytes, stored: " + storedAllocated + " bytes",
+            largeAllocated * 10 < storedAllocated);
+    }
+
+    private static String[] buildArgs(final int values) {
+        String[] args = new String[values + 1];
+        args[0] = "-p";
+        for (int i = 1; i < args.length; i++) {
+            args[i] = "/var/spool/file-" + i;
+        }
+        return args;
+    }
+}